@@ -0,0 +1,51 @@
+package TravelMate_Backend.demo.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ids de los datos generados por {@code SyntheticDataSeeder}, para elegir a quién consultar en cada
+ * operación.
+ */
+final class BenchmarkDataSet {
+
+    private final long[] userIds;
+    /** Pares (viaje, participante) */
+    private final long[] memberTripIds;
+    private final long[] memberUserIds;
+
+    private BenchmarkDataSet(long[] userIds, long[] memberTripIds, long[] memberUserIds) {
+        this.userIds = userIds;
+        this.memberTripIds = memberTripIds;
+        this.memberUserIds = memberUserIds;
+    }
+
+    static BenchmarkDataSet load(JdbcTemplate jdbcTemplate) {
+        long[] userIds = jdbcTemplate.queryForList(
+                        "SELECT id FROM users WHERE email LIKE 'seed%@travelmate.test' ORDER BY id", Long.class)
+                .stream().mapToLong(Long::longValue).toArray();
+        List<Map<String, Object>> members = jdbcTemplate.queryForList(
+                "SELECT ut.trip_id, ut.user_id FROM users_trip ut JOIN users u ON u.id = ut.user_id "
+                        + "WHERE u.email LIKE 'seed%@travelmate.test' ORDER BY ut.trip_id, ut.user_id");
+        if (userIds.length == 0 || members.isEmpty()) {
+            throw new IllegalStateException("No hay datos sintéticos para el benchmark");
+        }
+        long[] memberTripIds = members.stream().mapToLong(row -> ((Number) row.get("trip_id")).longValue()).toArray();
+        long[] memberUserIds = members.stream().mapToLong(row -> ((Number) row.get("user_id")).longValue()).toArray();
+        return new BenchmarkDataSet(userIds, memberTripIds, memberUserIds);
+    }
+
+    long userId(int index) {
+        return userIds[index % userIds.length];
+    }
+
+    long memberTripId(int index) {
+        return memberTripIds[index % memberTripIds.length];
+    }
+
+    long memberUserId(int index) {
+        return memberUserIds[index % memberUserIds.length];
+    }
+}
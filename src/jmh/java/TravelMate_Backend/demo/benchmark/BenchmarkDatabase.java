@@ -0,0 +1,74 @@
+package TravelMate_Backend.demo.benchmark;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Base PostgreSQL para los benchmarks. Por defecto levanta una instancia embebida (zonky) en un
+ * puerto libre; si se pasa {@code -Dbenchmark.jdbc-url=...} usa ese servidor y trabaja en un
+ * schema propio que se borra al terminar (útil donde no se puede correr initdb, por ejemplo como
+ * root).
+ */
+final class BenchmarkDatabase implements AutoCloseable {
+
+    private final EmbeddedPostgres embedded;
+    private final String jdbcUrl;
+    private final String username;
+    private final String password;
+    private final String schema;
+
+    private BenchmarkDatabase(EmbeddedPostgres embedded, String jdbcUrl, String username, String password, String schema) {
+        this.embedded = embedded;
+        this.jdbcUrl = jdbcUrl;
+        this.username = username;
+        this.password = password;
+        this.schema = schema;
+    }
+
+    static BenchmarkDatabase start() throws IOException, SQLException {
+        String externalUrl = System.getProperty("benchmark.jdbc-url");
+        if (externalUrl == null || externalUrl.isBlank()) {
+            EmbeddedPostgres embedded = EmbeddedPostgres.builder().start();
+            return new BenchmarkDatabase(embedded, embedded.getJdbcUrl("postgres", "postgres"), "postgres", "postgres", null);
+        }
+
+        String username = System.getProperty("benchmark.jdbc-username", "postgres");
+        String password = System.getProperty("benchmark.jdbc-password", "postgres");
+        String schema = "benchmark_" + System.currentTimeMillis();
+        try (Connection connection = DriverManager.getConnection(externalUrl, username, password);
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SCHEMA " + schema);
+        }
+        String separator = externalUrl.contains("?") ? "&" : "?";
+        return new BenchmarkDatabase(null, externalUrl + separator + "currentSchema=" + schema, username, password, schema);
+    }
+
+    String getJdbcUrl() {
+        return jdbcUrl;
+    }
+
+    String getUsername() {
+        return username;
+    }
+
+    String getPassword() {
+        return password;
+    }
+
+    @Override
+    public void close() throws IOException, SQLException {
+        if (embedded != null) {
+            embedded.close();
+            return;
+        }
+        try (Connection connection = DriverManager.getConnection(jdbcUrl, username, password);
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP SCHEMA " + schema + " CASCADE");
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package TravelMate_Backend.demo.benchmark;
+
+import TravelMate_Backend.demo.model.Currency;
+import TravelMate_Backend.demo.service.MoneyAccumulator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara la suma de compras por moneda con {@code BigDecimal} en un {@code HashMap} (como se
+ * hacía en las estadísticas) contra {@link MoneyAccumulator}. Para ver las asignaciones por
+ * operación correr con {@code -prof gc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyAccumulationBenchmark {
+
+    @Param({"100", "10000"})
+    private int purchases;
+
+    private Currency[] currencies;
+    private BigDecimal[] prices;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        currencies = new Currency[purchases];
+        prices = new BigDecimal[purchases];
+        for (int i = 0; i < purchases; i++) {
+            currencies[i] = Currency.values()[random.nextInt(Currency.values().length)];
+            prices[i] = BigDecimal.valueOf(random.nextInt(5_000_000), 2);
+        }
+    }
+
+    @Benchmark
+    public void bigDecimalMap(Blackhole blackhole) {
+        Map<Currency, BigDecimal> byCurrency = new HashMap<>();
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < purchases; i++) {
+            byCurrency.merge(currencies[i], prices[i], BigDecimal::add);
+            total = total.add(prices[i]);
+        }
+        blackhole.consume(byCurrency);
+        blackhole.consume(total);
+    }
+
+    @Benchmark
+    public void moneyAccumulator(Blackhole blackhole) {
+        MoneyAccumulator accumulator = new MoneyAccumulator();
+        for (int i = 0; i < purchases; i++) {
+            accumulator.add(currencies[i], prices[i]);
+        }
+        for (Currency currency : Currency.values()) {
+            blackhole.consume(accumulator.get(currency));
+        }
+        blackhole.consume(accumulator.total());
+    }
+}
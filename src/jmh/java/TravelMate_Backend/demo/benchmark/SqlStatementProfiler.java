@@ -0,0 +1,41 @@
+package TravelMate_Backend.demo.benchmark;
+
+import TravelMate_Backend.demo.support.SqlStatementCounter;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Profiler de JMH que informa las sentencias SQL por operación ({@code sql.statements.norm}).
+ * Se activa con {@code -prof TravelMate_Backend.demo.benchmark.SqlStatementProfiler}.
+ */
+public class SqlStatementProfiler implements InternalProfiler {
+
+    private long statementsBefore;
+
+    @Override
+    public String getDescription() {
+        return "Sentencias SQL por operación";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        statementsBefore = SqlStatementCounter.get();
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams,
+                                                       IterationResult result) {
+        long statements = SqlStatementCounter.get() - statementsBefore;
+        long operations = result.getMetadata().getAllOps();
+        double perOperation = operations > 0 ? (double) statements / operations : Double.NaN;
+        return List.of(new ScalarResult("sql.statements.norm", perOperation, "stmts/op", AggregationPolicy.AVG));
+    }
+}
@@ -0,0 +1,138 @@
+package TravelMate_Backend.demo.benchmark;
+
+import TravelMate_Backend.demo.TravelMateApplication;
+import TravelMate_Backend.demo.config.SyntheticDataSeeder;
+import TravelMate_Backend.demo.dto.TripDetailsResponse;
+import TravelMate_Backend.demo.dto.TripStats;
+import TravelMate_Backend.demo.dto.UserStatsResponse;
+import TravelMate_Backend.demo.service.StatsService;
+import TravelMate_Backend.demo.service.TripServices;
+import TravelMate_Backend.demo.support.SqlStatementCounter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks de {@link StatsService#getUserStats(Long)}, {@link StatsService#getTripStats(Long, Long)}
+ * y {@link TripServices#getTripDetails(Long, Long)} contra PostgreSQL con datos generados por
+ * {@link SyntheticDataSeeder}. Cada operación consulta otro usuario / viaje, recorriendo todos.
+ *
+ * Se mide throughput y la distribución de latencias (p99 en el modo {@code sample}). Para las
+ * asignaciones y las sentencias SQL por operación:
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="TravelMateServicesBenchmark -prof gc -prof TravelMate_Backend.demo.benchmark.SqlStatementProfiler"
+ * </pre>
+ * El tamaño de los datos se cambia con {@code -p users=... -p trips=... -p purchases=... -p randomSeed=...}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class TravelMateServicesBenchmark {
+
+    @Param({"200"})
+    private int users;
+
+    @Param({"1000"})
+    private int trips;
+
+    @Param({"50000"})
+    private int purchases;
+
+    @Param({"42"})
+    private long randomSeed;
+
+    private BenchmarkDatabase database;
+    private ConfigurableApplicationContext context;
+    private BenchmarkDataSet dataSet;
+    private StatsService statsService;
+    private TripServices tripServices;
+    private PrintStream originalOut;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.start();
+        context = new SpringApplicationBuilder(TravelMateApplication.class)
+                .profiles("seed")
+                .initializers(applicationContext -> applicationContext.getBeanFactory()
+                        .addBeanPostProcessor(SqlStatementCounter.dataSourceWrapper()))
+                .run("--spring.datasource.url=" + database.getJdbcUrl(),
+                        "--spring.datasource.username=" + database.getUsername(),
+                        "--spring.datasource.password=" + database.getPassword(),
+                        "--spring.jpa.hibernate.ddl-auto=update",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.format_sql=false",
+                        "--server.port=0",
+                        "--logging.level.root=WARN",
+                        // Se mide el cálculo, no el cache de estadísticas por viaje
+                        "--stats.trip-cache.max-entries=0",
+                        "--stats.rollup.enabled=false",
+                        "--seed.users=" + users,
+                        "--seed.trips=" + trips,
+                        "--seed.purchases=" + purchases,
+                        "--seed.random-seed=" + randomSeed);
+
+        dataSet = BenchmarkDataSet.load(context.getBean(JdbcTemplate.class));
+        statsService = context.getBean(StatsService.class);
+        tripServices = context.getBean(TripServices.class);
+
+        // Los servicios escriben trazas con System.out en cada llamada
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        System.setOut(originalOut);
+        context.close();
+        database.close();
+    }
+
+    /**
+     * Posición de cada hilo en la lista de usuarios / participantes
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next() {
+            return next++ & Integer.MAX_VALUE;
+        }
+    }
+
+    @Benchmark
+    public UserStatsResponse getUserStats(Cursor cursor) {
+        return statsService.getUserStats(dataSet.userId(cursor.next()));
+    }
+
+    @Benchmark
+    public TripStats getTripStats(Cursor cursor) {
+        int member = cursor.next();
+        return statsService.getTripStats(dataSet.memberTripId(member), dataSet.memberUserId(member));
+    }
+
+    @Benchmark
+    public TripDetailsResponse getTripDetails(Cursor cursor) {
+        int member = cursor.next();
+        return tripServices.getTripDetails(dataSet.memberTripId(member), dataSet.memberUserId(member));
+    }
+}
@@ -0,0 +1,108 @@
+package TravelMate_Backend.demo.config;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Prepara las secuencias de ids de viajes, destinos, compras, billeteras y tips. Esas entidades
+ * usan una secuencia con asignación por bloques ({@code pooled-lo}): Hibernate pide un valor y usa
+ * los {@code ids.allocation-size} siguientes sin volver a la base, y como el id se conoce antes del
+ * INSERT puede mandar los inserts en batch (con {@code IDENTITY} no puede).
+ *
+ * Corre antes de que arranque Hibernate para que lea el incremento ya ajustado
+ * ({@code increment_size_mismatch_strategy=fix}). En las tablas que todavía tienen la columna
+ * {@code id} como {@code IDENTITY} le quita la identidad, le pone como default la secuencia (así
+ * los INSERT por SQL directo siguen funcionando) y la adelanta al id más alto. En una base nueva solo
+ * crea las secuencias; las tablas las crea Hibernate con el mismo default.
+ */
+@Component("idSequenceMigration")
+public class IdSequenceMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdSequenceMigration.class);
+
+    // Tabla -> secuencia, las mismas de los @SequenceGenerator
+    private static final Map<String, String> SEQUENCES = new LinkedHashMap<>();
+
+    static {
+        SEQUENCES.put("trips", "trips_seq");
+        SEQUENCES.put("destinations", "destinations_seq");
+        SEQUENCES.put("purchase", "purchase_seq");
+        SEQUENCES.put("wallet", "wallet_seq");
+        SEQUENCES.put("tips", "tips_seq");
+    }
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${ids.allocation-size:50}")
+    private int allocationSize;
+
+    @PostConstruct
+    public void migrate() {
+        if (allocationSize < 1) {
+            throw new IllegalStateException("ids.allocation-size debe ser mayor a 0");
+        }
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        new TransactionTemplate(new DataSourceTransactionManager(dataSource)).executeWithoutResult(status -> {
+            // Una sola instancia migra a la vez
+            jdbcTemplate.queryForObject("SELECT pg_advisory_xact_lock(hashtext('id_sequence_migration'))", Object.class);
+            SEQUENCES.forEach((table, sequence) -> migrate(jdbcTemplate, table, sequence));
+        });
+    }
+
+    private void migrate(JdbcTemplate jdbcTemplate, String table, String sequence) {
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + sequence + " INCREMENT BY " + allocationSize);
+        jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " INCREMENT BY " + allocationSize);
+        if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM information_schema.columns WHERE table_schema = current_schema() "
+                        + "AND table_name = ? AND column_name = 'id')", Boolean.class, table))) {
+            return;
+        }
+
+        // Último id entregado: el más alto de la tabla o, si es mayor, el de la secuencia de la
+        // identidad (los ids de filas borradas no se reutilizan)
+        Long lastId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table, Long.class);
+        String identity = jdbcTemplate.queryForObject(
+                "SELECT is_identity FROM information_schema.columns WHERE table_schema = current_schema() "
+                        + "AND table_name = ? AND column_name = 'id'", String.class, table);
+        if ("YES".equals(identity)) {
+            Long identityLast = jdbcTemplate.queryForObject("SELECT last_value FROM pg_sequences "
+                    + "WHERE schemaname || '.' || sequencename = pg_get_serial_sequence(?, 'id')", Long.class, table);
+            if (identityLast != null && (lastId == null || identityLast > lastId)) {
+                lastId = identityLast;
+            }
+            jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id DROP IDENTITY IF EXISTS");
+            logger.info("Columna {}.id pasada de IDENTITY a la secuencia {}", table, sequence);
+        }
+        jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id SET DEFAULT nextval('" + sequence + "')");
+        jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " OWNED BY " + table + ".id");
+
+        // Que el próximo bloque empiece después del último id (nunca se retrocede)
+        if (lastId != null) {
+            jdbcTemplate.queryForList("SELECT setval('" + sequence + "', ?) "
+                    + "WHERE ? >= (SELECT last_value FROM " + sequence + ")", lastId, lastId);
+        }
+    }
+
+    /**
+     * Hace que Hibernate espere a la migración
+     */
+    @Component
+    static class EntityManagerFactoryDependsOnMigration extends EntityManagerFactoryDependsOnPostProcessor {
+        EntityManagerFactoryDependsOnMigration() {
+            super("idSequenceMigration");
+        }
+    }
+}
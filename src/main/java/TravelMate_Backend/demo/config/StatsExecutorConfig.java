@@ -0,0 +1,33 @@
+package TravelMate_Backend.demo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class StatsExecutorConfig {
+
+    /**
+     * Pool acotado para los calculadores de estadísticas. Si la cola se llena la tarea corre en el
+     * hilo del request, así la carga queda limitada sin rechazar pedidos.
+     */
+    @Bean(name = "statsExecutor", destroyMethod = "shutdownNow")
+    public ExecutorService statsExecutor(@Value("${stats.parallel.threads:4}") int threads,
+                                         @Value("${stats.parallel.queue-capacity:100}") int queueCapacity) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("stats-");
+        threadFactory.setDaemon(true);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                threadFactory,
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -0,0 +1,250 @@
+package TravelMate_Backend.demo.config;
+
+import TravelMate_Backend.demo.model.Currency;
+import TravelMate_Backend.demo.service.IdAllocator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Genera un conjunto grande de datos sintéticos para pruebas de carga y benchmarks: usuarios, viajes
+ * con destinos y participantes, billeteras, tips y compras en todas las monedas. Se activa con el
+ * perfil {@code seed} (ver {@code application-seed.properties}).
+ *
+ * Con la misma semilla y los mismos tamaños siempre se generan los mismos datos. Los ids de usuarios
+ * y viajes se reservan de sus secuencias antes de insertar, y todo se inserta con JDBC en lotes.
+ * Si los usuarios sintéticos ya existen no se vuelve a generar nada.
+ */
+@Component
+@Profile("seed")
+public class SyntheticDataSeeder implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyntheticDataSeeder.class);
+
+    /** Contraseña de todos los usuarios generados */
+    public static final String PASSWORD = "password123";
+
+    private static final String[][] DESTINATIONS = {
+            {"Buenos Aires, Argentina", "Argentina"}, {"Mendoza, Argentina", "Argentina"},
+            {"Bariloche, Argentina", "Argentina"}, {"Salta, Argentina", "Argentina"},
+            {"Ushuaia, Argentina", "Argentina"}, {"Córdoba, Argentina", "Argentina"},
+            {"Santiago, Chile", "Chile"}, {"Valparaíso, Chile", "Chile"},
+            {"Montevideo, Uruguay", "Uruguay"}, {"Punta del Este, Uruguay", "Uruguay"},
+            {"Río de Janeiro, Brasil", "Brasil"}, {"Florianópolis, Brasil", "Brasil"},
+            {"Lima, Perú", "Perú"}, {"Cusco, Perú", "Perú"},
+            {"Madrid, España", "España"}, {"Barcelona, España", "España"},
+            {"Roma, Italia", "Italia"}, {"París, Francia", "Francia"},
+            {"Nueva York, Estados Unidos", "Estados Unidos"}, {"Ciudad de México, México", "México"}
+    };
+
+    private static final String[] CATEGORIES = {"Comida", "Transporte", "Alojamiento", "Excursiones", "Compras", "Entradas", "Otros"};
+
+    private static final String[][] TIP_TYPES = {
+            {"restaurant", "🍽️"}, {"lodging", "🏨"}, {"attraction", "🎯"}, {"gas_station", "⛽"}
+    };
+
+    private static final String PURCHASE_INSERT = "INSERT INTO purchase (id, trip_id, user_id, is_general, description, price, "
+            + "currency, purchase_date, created_by, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private IdAllocator idAllocator;
+
+    @Value("${seed.users:1000}")
+    private int users;
+
+    @Value("${seed.trips:5000}")
+    private int trips;
+
+    @Value("${seed.purchases:100000}")
+    private int purchases;
+
+    @Value("${seed.random-seed:42}")
+    private long randomSeed;
+
+    @Value("${seed.batch-size:1000}")
+    private int batchSize;
+
+    /** Fecha de referencia para las fechas de los viajes; fija para que los datos sean reproducibles */
+    @Value("${seed.base-date:2025-01-01}")
+    private LocalDate baseDate;
+
+    @Override
+    public void run(String... args) {
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM users WHERE email = ?)", Boolean.class, email(0)))) {
+            logger.info("Los datos sintéticos ya existen, no se generan de nuevo");
+            return;
+        }
+        long start = System.currentTimeMillis();
+        seed();
+        logger.info("Datos sintéticos generados en {} ms: {} usuarios, {} viajes, {} compras",
+                System.currentTimeMillis() - start, users, trips, purchases);
+    }
+
+    /**
+     * Email del usuario sintético número {@code index}
+     */
+    public static String email(int index) {
+        return "seed" + index + "@travelmate.test";
+    }
+
+    private void seed() {
+        if (users <= 0 || trips <= 0) {
+            throw new IllegalStateException("seed.users y seed.trips deben ser mayores a cero");
+        }
+        Random random = new Random(randomSeed);
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        String password = passwordEncoder.encode(PASSWORD);
+
+        // Usuarios
+        long[] userIds = idAllocator.reserve("users", users);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            rows.add(new Object[]{userIds[i], "Usuario " + i, email(i), password, now});
+        }
+        batch("INSERT INTO users (id, name, email, password, provider, email_verified, created_at) "
+                + "VALUES (?, ?, ?, ?, 'LOCAL', true, ?)", rows);
+
+        // Destinos (se reutilizan si ya existen con el mismo nombre)
+        long[] destinationIds = new long[DESTINATIONS.length];
+        for (int d = 0; d < DESTINATIONS.length; d++) {
+            String name = DESTINATIONS[d][0];
+            jdbcTemplate.update("INSERT INTO destinations (name, contry, cost) SELECT ?, ?, 0 "
+                    + "WHERE NOT EXISTS (SELECT 1 FROM destinations WHERE name = ?)", name, DESTINATIONS[d][1], name);
+            destinationIds[d] = jdbcTemplate.queryForObject(
+                    "SELECT MIN(id) FROM destinations WHERE name = ?", Long.class, name);
+        }
+
+        // Viajes, con participantes y destinos
+        long[] tripIds = idAllocator.reserve("trips", trips);
+        LocalDate[] startDates = new LocalDate[trips];
+        LocalDate[] endDates = new LocalDate[trips];
+        long[][] members = new long[trips][];
+        List<Object[]> memberRows = new ArrayList<>();
+        List<Object[]> tripDestinationRows = new ArrayList<>();
+        rows.clear();
+        for (int t = 0; t < trips; t++) {
+            // Viajes entre 4 años antes y 1 año después de la fecha base
+            startDates[t] = baseDate.minusYears(4).plusDays(random.nextInt(365 * 5));
+            endDates[t] = startDates[t].plusDays(1 + random.nextInt(random.nextInt(10) == 0 ? 45 : 14));
+            members[t] = random.ints(0, users).distinct().limit(1 + random.nextInt(Math.min(users, 8)))
+                    .mapToLong(i -> userIds[i]).toArray();
+            rows.add(new Object[]{tripIds[t], "Viaje " + t, "Viaje generado para pruebas de carga",
+                    Date.valueOf(startDates[t]), Date.valueOf(endDates[t]),
+                    BigDecimal.valueOf(50_000 + random.nextInt(5_000_000), 2),
+                    members[t][0], "[" + members[t][0] + "]", String.format("S%07X", t)});
+            for (long member : members[t]) {
+                memberRows.add(new Object[]{member, tripIds[t]});
+            }
+            int[] destinations = random.ints(0, DESTINATIONS.length).distinct().limit(1 + random.nextInt(3)).toArray();
+            for (int d : destinations) {
+                tripDestinationRows.add(new Object[]{tripIds[t], destinationIds[d],
+                        random.nextInt(3) == 0 ? "avion" : "auto", DESTINATIONS[d][0]});
+            }
+        }
+        batch("INSERT INTO trips (id, name, description, date_i, date_f, cost, create_by, admin_ids, join_code) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?::jsonb, ?)", rows);
+        batch("INSERT INTO users_trip (user_id, trip_id) VALUES (?, ?)", memberRows);
+        batch("INSERT INTO trip_destinations (trip_id, destination_id, transport_mode, destination_address) "
+                + "VALUES (?, ?, ?, ?)", tripDestinationRows);
+
+        // Billeteras: una general por viaje y una individual para algunos participantes
+        Currency[] currencies = Currency.values();
+        rows.clear();
+        for (int t = 0; t < trips; t++) {
+            rows.add(new Object[]{tripIds[t], null, true, BigDecimal.valueOf(random.nextInt(20_000_000), 2),
+                    currencies[random.nextInt(currencies.length)].name(), now, now});
+            for (long member : members[t]) {
+                if (random.nextBoolean()) {
+                    rows.add(new Object[]{tripIds[t], member, false, BigDecimal.valueOf(random.nextInt(5_000_000), 2),
+                            currencies[random.nextInt(currencies.length)].name(), now, now});
+                }
+            }
+        }
+        batchWithIds("wallet", "INSERT INTO wallet (id, trip_id, user_id, is_general, amount, currency, created_at, updated_at) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", rows);
+
+        // Tips
+        rows.clear();
+        for (int t = 0; t < trips; t++) {
+            int tips = random.nextInt(5);
+            for (int i = 0; i < tips; i++) {
+                String[] type = TIP_TYPES[random.nextInt(TIP_TYPES.length)];
+                rows.add(new Object[]{tripIds[t], "Lugar " + i + " del viaje " + t, "Dirección " + i,
+                        -34.0 - random.nextDouble() * 20, -58.0 - random.nextDouble() * 15,
+                        Math.round((1 + random.nextDouble() * 4) * 10) / 10.0, type[0], type[1],
+                        email(random.nextInt(users)), now});
+            }
+        }
+        batchWithIds("tips", "INSERT INTO tips (id, trip_id, name, address, latitude, longitude, rating, tip_type, tip_icon, "
+                + "created_by, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+
+        // Compras, por lotes para no tenerlas todas en memoria
+        rows.clear();
+        for (int p = 0; p < purchases; p++) {
+            int t = random.nextInt(trips);
+            long buyer = members[t][random.nextInt(members[t].length)];
+            boolean general = random.nextInt(3) == 0;
+            int tripDays = (int) (endDates[t].toEpochDay() - startDates[t].toEpochDay()) + 1;
+            // Un 5% fuera de las fechas del viaje (reservas previas, gastos al volver)
+            LocalDate purchaseDate = random.nextInt(20) == 0
+                    ? startDates[t].plusDays(random.nextBoolean() ? -1 - random.nextInt(30) : tripDays + random.nextInt(10))
+                    : startDates[t].plusDays(random.nextInt(tripDays));
+            rows.add(new Object[]{tripIds[t], general ? null : buyer, general,
+                    CATEGORIES[random.nextInt(CATEGORIES.length)],
+                    BigDecimal.valueOf(100 + random.nextInt(random.nextInt(10) == 0 ? 50_000_000 : 2_000_000), 2),
+                    currencies[random.nextInt(currencies.length)].name(),
+                    Date.valueOf(purchaseDate), buyer, now});
+            if (rows.size() == batchSize) {
+                batchWithIds("purchase", PURCHASE_INSERT, rows);
+                rows.clear();
+            }
+            if ((p + 1) % 100_000 == 0) {
+                logger.info("Compras sintéticas insertadas: {}", p + 1);
+            }
+        }
+        batchWithIds("purchase", PURCHASE_INSERT, rows);
+    }
+
+    /**
+     * Como {@link #batch}, con los ids reservados de a bloques en lugar del default de la columna
+     * (que gasta un bloque de la secuencia por fila). El id va primero en el INSERT.
+     */
+    private void batchWithIds(String table, String sql, List<Object[]> rows) {
+        long[] ids = idAllocator.reserve(table, rows.size());
+        List<Object[]> withIds = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            Object[] row = new Object[rows.get(i).length + 1];
+            row[0] = ids[i];
+            System.arraycopy(rows.get(i), 0, row, 1, rows.get(i).length);
+            withIds.add(row);
+        }
+        batch(sql, withIds);
+    }
+
+    private void batch(String sql, List<Object[]> rows) {
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            jdbcTemplate.batchUpdate(sql, rows.subList(from, Math.min(rows.size(), from + batchSize)));
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package TravelMate_Backend.demo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class ThumbnailExecutorConfig {
+
+    /**
+     * Pool acotado para generar miniaturas de imágenes. A diferencia del de estadísticas, si la cola
+     * se llena la tarea se rechaza en lugar de correr en el hilo del request: la subida no espera
+     * al redimensionado y el viaje queda sin miniaturas (se usa la imagen original).
+     */
+    @Bean(name = "thumbnailExecutor", destroyMethod = "shutdownNow")
+    public ExecutorService thumbnailExecutor(@Value("${thumbnails.threads:2}") int threads,
+                                             @Value("${thumbnails.queue-capacity:100}") int queueCapacity) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("thumbnails-");
+        threadFactory.setDaemon(true);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                threadFactory,
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
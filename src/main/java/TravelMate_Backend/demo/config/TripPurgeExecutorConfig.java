@@ -0,0 +1,33 @@
+package TravelMate_Backend.demo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class TripPurgeExecutorConfig {
+
+    /**
+     * Un solo hilo para borrar los datos de los viajes eliminados, así las purgas no compiten entre
+     * sí por la base. Si la cola se llena la tarea se rechaza: el viaje ya está marcado como borrado
+     * y lo retoma la pasada periódica de {@code TripPurgeService}.
+     */
+    @Bean(name = "tripPurgeExecutor", destroyMethod = "shutdownNow")
+    public ExecutorService tripPurgeExecutor(@Value("${trips.purge.queue-capacity:100}") int queueCapacity) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("trip-purge-");
+        threadFactory.setDaemon(true);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                1, 1, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                threadFactory,
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
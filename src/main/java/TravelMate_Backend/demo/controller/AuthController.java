@@ -64,7 +64,7 @@ public class AuthController {
             userInfo.put("id", user.getId());
             userInfo.put("name", user.getName());
             userInfo.put("email", user.getEmail());
-            userInfo.put("profilePictureUrl", user.getProfilePictureUrl());
+            userInfo.put("profilePictureUrl", userDetailsService.profilePictureUrl(user));
             userInfo.put("provider", user.getProvider().toString());
             
             return ResponseEntity.ok(userInfo);
@@ -0,0 +1,41 @@
+package TravelMate_Backend.demo.controller;
+
+import TravelMate_Backend.demo.service.BlobStore;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Respuestas con una imagen del {@link BlobStore}, leída directo del disco.
+ *
+ * El ETag es el hash del contenido, así que es fuerte y Spring contesta {@code 304} a los pedidos
+ * con {@code If-None-Match}; los pedidos con {@code Range} se contestan con {@code 206} y solo la
+ * parte pedida. Si la URL trae el hash ({@code ?v=...}) el contenido no puede cambiar y se cachea
+ * un año; si no, el cliente revalida con el ETag cada vez.
+ */
+final class ImageResponses {
+
+    private static final Duration VERSIONED_MAX_AGE = Duration.ofDays(365);
+
+    private ImageResponses() {
+    }
+
+    static ResponseEntity<Resource> image(BlobStore blobStore, String hash, String version) throws IOException {
+        if (!blobStore.exists(hash)) {
+            return ResponseEntity.notFound().build();
+        }
+        CacheControl cacheControl = hash.equals(version)
+                ? CacheControl.maxAge(VERSIONED_MAX_AGE).cachePrivate().immutable()
+                : CacheControl.noCache().cachePrivate();
+        return ResponseEntity.ok()
+                .eTag("\"" + hash + "\"")
+                .cacheControl(cacheControl)
+                .contentType(MediaType.parseMediaType(blobStore.mediaType(hash)))
+                .body(new FileSystemResource(blobStore.path(hash)));
+    }
+}
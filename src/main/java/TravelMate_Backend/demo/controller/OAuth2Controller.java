@@ -5,6 +5,7 @@ import TravelMate_Backend.demo.model.AuthProvider;
 import TravelMate_Backend.demo.model.User;
 import TravelMate_Backend.demo.service.AuthService;
 import TravelMate_Backend.demo.service.OAuth2UserService;
+import TravelMate_Backend.demo.service.UserDetailsServiceImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -23,6 +24,9 @@ public class OAuth2Controller {
     
     @Autowired
     private AuthService authService;
+
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
     
     @GetMapping("/user")
     public ResponseEntity<?> getOAuth2User(@AuthenticationPrincipal OAuth2User principal) {
@@ -50,7 +54,7 @@ public class OAuth2Controller {
                     user.getId(),
                     user.getName(),
                     user.getEmail(),
-                    user.getProfilePictureUrl(),
+                    userDetailsService.profilePictureUrl(user),
                     user.getProvider().toString()
             );
             
@@ -118,7 +122,7 @@ public class OAuth2Controller {
                     user.getId(),
                     user.getName(),
                     user.getEmail(),
-                    user.getProfilePictureUrl(),
+                    userDetailsService.profilePictureUrl(user),
                     user.getProvider().toString()
             );
             
@@ -2,6 +2,7 @@ package TravelMate_Backend.demo.controller;
 
 import TravelMate_Backend.demo.dto.*;
 import TravelMate_Backend.demo.model.User;
+import TravelMate_Backend.demo.service.BlobStore;
 import TravelMate_Backend.demo.service.EmailChangeService;
 import TravelMate_Backend.demo.service.UserDetailsServiceImpl;
 import jakarta.validation.Valid;
@@ -11,6 +12,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -24,6 +26,9 @@ public class ProfileController {
     @Autowired
     private EmailChangeService emailChangeService;
 
+    @Autowired
+    private BlobStore blobStore;
+
     /**
      * Actualizar perfil del usuario
      */
@@ -65,6 +70,31 @@ public class ProfileController {
         }
     }
 
+    /**
+     * Foto de perfil como imagen (no como data URL en JSON), con ETag, Cache-Control y soporte de
+     * Range. Si la foto es una URL externa se redirige a ella.
+     */
+    @GetMapping("/{userId}/photo/raw")
+    public ResponseEntity<?> getUserProfilePictureRaw(
+            @PathVariable Long userId,
+            @RequestParam(value = "v", required = false) String version) {
+        try {
+            User user = userDetailsService.getUserById(userId);
+            if (user.getProfilePictureHash() != null) {
+                return ImageResponses.image(blobStore, user.getProfilePictureHash(), version);
+            }
+            if (user.getProfilePictureUrl() != null) {
+                return ResponseEntity.status(HttpStatus.FOUND)
+                        .location(URI.create(user.getProfilePictureUrl()))
+                        .build();
+            }
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body("Photo not found for user: " + userId);
+        }
+    }
+
     /**
      * Iniciar cambio de email - envía código al email actual
      */
@@ -1,15 +1,29 @@
 package TravelMate_Backend.demo.controller;
 
 import TravelMate_Backend.demo.dto.ApiResponse;
+import TravelMate_Backend.demo.dto.PurchaseBatchRequest;
+import TravelMate_Backend.demo.dto.PurchaseBatchResponse;
 import TravelMate_Backend.demo.dto.PurchaseCreateRequest;
+import TravelMate_Backend.demo.dto.PurchasePage;
 import TravelMate_Backend.demo.dto.PurchaseResponse;
 import TravelMate_Backend.demo.dto.PurchaseUpdateRequest;
+import TravelMate_Backend.demo.service.PurchaseCsvExporter;
 import TravelMate_Backend.demo.service.PurchaseService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.List;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
@@ -20,6 +34,12 @@ public class PurchaseController {
     @Autowired
     private PurchaseService purchaseService;
 
+    @Autowired
+    private PurchaseCsvExporter purchaseCsvExporter;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * Crear compra general del viaje
      */
@@ -66,11 +86,44 @@ public class PurchaseController {
     }
 
     /**
-     * Obtener todas las compras de un viaje
+     * Crear varias compras del viaje (generales o individuales) en un solo request. Devuelve el
+     * resultado de cada una; las inválidas no impiden crear las demás.
+     */
+    @PostMapping("/trip/{tripId}/batch")
+    public ResponseEntity<ApiResponse<PurchaseBatchResponse>> createPurchaseBatch(
+            @PathVariable Long tripId,
+            @RequestHeader("User-Id") Long createdByUserId,
+            @Valid @RequestBody PurchaseBatchRequest request) {
+        try {
+            PurchaseBatchResponse result = purchaseService.createPurchaseBatch(tripId, createdByUserId, request.getPurchases());
+            return ResponseEntity.ok(new ApiResponse<>(true,
+                    result.getCreated() + " compras creadas, " + result.getRejected() + " rechazadas", result));
+        } catch (Exception e) {
+            String errorMessage = e.getMessage();
+            if (errorMessage == null || errorMessage.isEmpty()) {
+                errorMessage = e.getClass().getSimpleName() + ": Error desconocido al crear compras";
+            }
+            e.printStackTrace();
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse<>(false, "Error al crear compras: " + errorMessage, null));
+        }
+    }
+
+    /**
+     * Obtener todas las compras de un viaje. Con {@code limit} (o un cursor) se devuelve una página
+     * ({@link PurchasePage}) y las siguientes se piden con {@code afterDate} y {@code afterId}.
      */
     @GetMapping("/trip/{tripId}")
-    public ResponseEntity<ApiResponse<List<PurchaseResponse>>> getAllPurchasesByTrip(@PathVariable Long tripId) {
+    public ResponseEntity<ApiResponse<?>> getAllPurchasesByTrip(
+            @PathVariable Long tripId,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate afterDate,
+            @RequestParam(required = false) Long afterId) {
         try {
+            if (isPageRequest(limit, afterDate, afterId)) {
+                PurchasePage page = purchaseService.getPurchasesPage(tripId, null, null, afterDate, afterId, limit);
+                return ResponseEntity.ok(new ApiResponse<>(true, "Compras obtenidas exitosamente", page));
+            }
             List<PurchaseResponse> purchases = purchaseService.getAllPurchasesByTrip(tripId);
             return ResponseEntity.ok(new ApiResponse<>(true, "Compras obtenidas exitosamente", purchases));
         } catch (Exception e) {
@@ -84,11 +137,19 @@ public class PurchaseController {
     }
 
     /**
-     * Obtener compras generales de un viaje
+     * Obtener compras generales de un viaje (paginadas igual que {@link #getAllPurchasesByTrip})
      */
     @GetMapping("/trip/{tripId}/general")
-    public ResponseEntity<ApiResponse<List<PurchaseResponse>>> getGeneralPurchases(@PathVariable Long tripId) {
+    public ResponseEntity<ApiResponse<?>> getGeneralPurchases(
+            @PathVariable Long tripId,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate afterDate,
+            @RequestParam(required = false) Long afterId) {
         try {
+            if (isPageRequest(limit, afterDate, afterId)) {
+                PurchasePage page = purchaseService.getPurchasesPage(tripId, true, null, afterDate, afterId, limit);
+                return ResponseEntity.ok(new ApiResponse<>(true, "Compras generales obtenidas exitosamente", page));
+            }
             List<PurchaseResponse> purchases = purchaseService.getGeneralPurchases(tripId);
             return ResponseEntity.ok(new ApiResponse<>(true, "Compras generales obtenidas exitosamente", purchases));
         } catch (Exception e) {
@@ -102,13 +163,21 @@ public class PurchaseController {
     }
 
     /**
-     * Obtener compras individuales de un usuario en un viaje
+     * Obtener compras individuales de un usuario en un viaje (paginadas igual que
+     * {@link #getAllPurchasesByTrip})
      */
     @GetMapping("/trip/{tripId}/individual/{userId}")
-    public ResponseEntity<ApiResponse<List<PurchaseResponse>>> getIndividualPurchases(
+    public ResponseEntity<ApiResponse<?>> getIndividualPurchases(
             @PathVariable Long tripId,
-            @PathVariable Long userId) {
+            @PathVariable Long userId,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate afterDate,
+            @RequestParam(required = false) Long afterId) {
         try {
+            if (isPageRequest(limit, afterDate, afterId)) {
+                PurchasePage page = purchaseService.getPurchasesPage(tripId, false, userId, afterDate, afterId, limit);
+                return ResponseEntity.ok(new ApiResponse<>(true, "Compras individuales obtenidas exitosamente", page));
+            }
             List<PurchaseResponse> purchases = purchaseService.getIndividualPurchases(tripId, userId);
             return ResponseEntity.ok(new ApiResponse<>(true, "Compras individuales obtenidas exitosamente", purchases));
         } catch (Exception e) {
@@ -121,6 +190,56 @@ public class PurchaseController {
         }
     }
 
+    /**
+     * Todas las compras del viaje como NDJSON (una compra por línea), escritas a medida que se leen
+     * de la base, en el mismo orden que las páginas
+     */
+    @GetMapping(value = "/trip/{tripId}/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllPurchasesByTrip(@PathVariable Long tripId) {
+        return ndjson(tripId, null, null);
+    }
+
+    /**
+     * Compras generales del viaje como NDJSON
+     */
+    @GetMapping(value = "/trip/{tripId}/general/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamGeneralPurchases(@PathVariable Long tripId) {
+        return ndjson(tripId, true, null);
+    }
+
+    /**
+     * Compras individuales de un usuario en el viaje como NDJSON
+     */
+    @GetMapping(value = "/trip/{tripId}/individual/{userId}/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamIndividualPurchases(
+            @PathVariable Long tripId,
+            @PathVariable Long userId) {
+        return ndjson(tripId, false, userId);
+    }
+
+    /**
+     * Todas las compras del viaje en CSV, con nombres de usuario y código de moneda, escritas a
+     * medida que se leen de la base
+     */
+    @GetMapping("/trip/{tripId}/export.csv")
+    public ResponseEntity<StreamingResponseBody> exportPurchasesByTrip(@PathVariable Long tripId) {
+        try {
+            PurchaseCsvExporter.CsvExport export = purchaseCsvExporter.tripExport(tripId);
+            return ResponseEntity.ok()
+                    .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                            .filename("viaje-" + tripId + "-compras.csv").build().toString())
+                    .body(export::writeTo);
+        } catch (Exception e) {
+            String errorMessage = e.getMessage() != null ? e.getMessage() : "Error desconocido";
+            ApiResponse<Object> error = new ApiResponse<>(false, "Error al exportar compras: " + errorMessage, null);
+            // La respuesta tiene que ser un StreamingResponseBody también cuando falla: el error sale como el JSON de siempre
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> objectMapper.writeValue(out, error));
+        }
+    }
+
     /**
      * Obtener compra por ID
      */
@@ -206,5 +325,27 @@ public class PurchaseController {
                     .body(new ApiResponse<>(false, "Error al eliminar compra: " + errorMessage, null));
         }
     }
-}
 
+    private static boolean isPageRequest(Integer limit, LocalDate afterDate, Long afterId) {
+        return limit != null || afterDate != null || afterId != null;
+    }
+
+    private ResponseEntity<StreamingResponseBody> ndjson(Long tripId, Boolean general, Long userId) {
+        StreamingResponseBody body = out -> {
+            try {
+                purchaseService.streamPurchases(tripId, general, userId, purchase -> {
+                    try {
+                        out.write(objectMapper.writeValueAsBytes(purchase));
+                        out.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                // El cliente cortó la conexión
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+}
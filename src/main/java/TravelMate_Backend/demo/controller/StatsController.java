@@ -2,12 +2,20 @@ package TravelMate_Backend.demo.controller;
 
 import TravelMate_Backend.demo.dto.TripStats;
 import TravelMate_Backend.demo.dto.UserStatsResponse;
+import TravelMate_Backend.demo.service.PurchaseCsvExporter;
 import TravelMate_Backend.demo.service.StatsService;
+import TravelMate_Backend.demo.service.UserStatsSection;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -19,11 +27,27 @@ public class StatsController {
     @Autowired
     private StatsService statsService;
 
+    @Autowired
+    private PurchaseCsvExporter purchaseCsvExporter;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * @param sections secciones a calcular separadas por coma (ej. {@code expenses,monthly,countries});
+     *                 sin el parámetro se calculan todas. Ver {@link UserStatsSection}.
+     */
     @GetMapping("/user/{userId}")
-    public ResponseEntity<?> getUserStats(@PathVariable Long userId) {
+    public ResponseEntity<?> getUserStats(@PathVariable Long userId,
+                                          @RequestParam(required = false) String sections) {
         try {
-            UserStatsResponse stats = statsService.getUserStats(userId);
+            UserStatsResponse stats = statsService.getUserStats(userId, UserStatsSection.parse(sections));
             return ResponseEntity.ok(stats);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
         } catch (RuntimeException e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("success", false);
@@ -37,6 +61,30 @@ public class StatsController {
         }
     }
 
+    /**
+     * Las compras que cuentan para el usuario (las generales de sus viajes y las individuales suyas)
+     * en CSV, escritas a medida que se leen de la base
+     */
+    @GetMapping("/user/{userId}/export.csv")
+    public ResponseEntity<StreamingResponseBody> exportUserPurchases(@PathVariable Long userId) {
+        try {
+            PurchaseCsvExporter.CsvExport export = purchaseCsvExporter.userExport(userId);
+            return ResponseEntity.ok()
+                    .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                            .filename("usuario-" + userId + "-compras.csv").build().toString())
+                    .body(export::writeTo);
+        } catch (RuntimeException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", e.getMessage() != null ? e.getMessage() : "Error desconocido");
+            // La respuesta tiene que ser un StreamingResponseBody también cuando falla
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> objectMapper.writeValue(out, errorResponse));
+        }
+    }
+
     @GetMapping("/trip/{tripId}")
     public ResponseEntity<TripStats> getTripStats(
             @PathVariable Long tripId,
@@ -50,5 +98,10 @@ public class StatsController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
     }
+
+    @GetMapping("/cache")
+    public ResponseEntity<Map<String, Object>> getTripStatsCacheStatistics() {
+        return ResponseEntity.ok(statsService.getTripStatsCacheStatistics());
+    }
 }
 
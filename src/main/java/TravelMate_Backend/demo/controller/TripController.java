@@ -3,17 +3,23 @@ package TravelMate_Backend.demo.controller;
 import TravelMate_Backend.demo.dto.ApiResponse;
 import TravelMate_Backend.demo.dto.TripCreate;
 import TravelMate_Backend.demo.dto.TripDetailsResponse;
+import TravelMate_Backend.demo.dto.TripPage;
+import TravelMate_Backend.demo.dto.TripSummary;
 import TravelMate_Backend.demo.model.Trip;
 import TravelMate_Backend.demo.model.User;
+import TravelMate_Backend.demo.service.BlobStore;
 import TravelMate_Backend.demo.service.TripServices;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,13 +31,35 @@ import java.util.stream.Collectors;
 public class TripController {
     @Autowired
     private TripServices tripServices;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    /**
+     * Viajes del usuario. Con {@code status} se filtra por estado; con {@code limit} se devuelve una
+     * página ({@link TripPage}) y las siguientes se piden con {@code afterDateI} y {@code afterId}.
+     */
     @GetMapping("/user/{userId}")
-    public ResponseEntity<?> getTripsUser( @PathVariable Long userId) {
-        List<Trip> trips = tripServices.getUserTrips(userId);
-        if (trips.isEmpty()) {
-            return ResponseEntity.notFound().build();
+    public ResponseEntity<?> getTripsUser(@PathVariable Long userId,
+                                          @RequestParam(required = false) String status,
+                                          @RequestParam(required = false) Integer limit,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate afterDateI,
+                                          @RequestParam(required = false) Long afterId) {
+        try {
+            if (limit != null) {
+                return ResponseEntity.ok(tripServices.getUserTripsPage(userId, status, afterDateI, afterId, limit));
+            }
+            List<TripSummary> trips = tripServices.getUserTrips(userId, status);
+            if (trips.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(trips);
+        } catch (RuntimeException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", e.getMessage() != null ? e.getMessage() : "Error desconocido");
+            return ResponseEntity.badRequest().body(errorResponse);
         }
-        return ResponseEntity.ok(trips);
     }
 
     @GetMapping("/{id}")
@@ -50,6 +78,25 @@ public class TripController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
         }
     }
+
+    /**
+     * Imagen del viaje (o su miniatura con {@code size}), leída del disco con ETag, Cache-Control y
+     * soporte de Range
+     */
+    @GetMapping("/{id}/image")
+    public ResponseEntity<?> getTripImage(@PathVariable Long id,
+                                          @RequestParam(value = "size", required = false) Integer size,
+                                          @RequestParam(value = "v", required = false) String version) {
+        try {
+            return ImageResponses.image(blobStore, tripServices.getTripImageHash(id, size), version);
+        } catch (RuntimeException | IOException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", e.getMessage() != null ? e.getMessage() : "Error desconocido");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
+        }
+    }
+
     @PostMapping("/add")
     public ResponseEntity<?> addTrip(@RequestPart("trip") TripCreate trip,
                                      @RequestPart(value = "image", required = false) MultipartFile imageFile,
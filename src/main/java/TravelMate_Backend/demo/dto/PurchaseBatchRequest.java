@@ -0,0 +1,32 @@
+package TravelMate_Backend.demo.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Varias compras de un viaje en un solo request (por ejemplo las cargadas sin conexión). Cada
+ * compra se valida por separado: las inválidas se rechazan sin afectar a las demás.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PurchaseBatchRequest {
+
+    @NotEmpty(message = "La lista de compras es obligatoria")
+    private List<Item> purchases;
+
+    @Data
+    @NoArgsConstructor
+    @EqualsAndHashCode(callSuper = true)
+    public static class Item extends PurchaseCreateRequest {
+        // Dueño de la compra individual; null para una compra general
+        private Long userId;
+        // Identificador del cliente para relacionar la compra con su resultado
+        private String clientId;
+    }
+}
@@ -0,0 +1,30 @@
+package TravelMate_Backend.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Resultado de cada compra de un {@link PurchaseBatchRequest}, en el mismo orden
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PurchaseBatchResponse {
+    private int created;
+    private int rejected;
+    private List<ItemResult> results;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemResult {
+        private int index;
+        private String clientId;
+        private String status; // "created" o "rejected"
+        private Long purchaseId;
+        private String message;
+    }
+}
@@ -0,0 +1,22 @@
+package TravelMate_Backend.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Página de compras de un viaje. Para pedir la siguiente se envían {@code nextDate} y
+ * {@code nextId} como {@code afterDate} y {@code afterId}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PurchasePage {
+    private List<PurchaseResponse> purchases;
+    private LocalDate nextDate;
+    private Long nextId;
+    private boolean hasMore;
+}
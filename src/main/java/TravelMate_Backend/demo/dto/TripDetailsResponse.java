@@ -1,6 +1,7 @@
 package TravelMate_Backend.demo.dto;
 
 import lombok.AllArgsConstructor;
+import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -50,10 +51,15 @@ public class TripDetailsResponse {
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
+    @Builder(toBuilder = true)
     public static class ParticipantInfo {
         private Long id;
         private String name;
         private String email;
         private String profilePicture;
+
+        public ParticipantInfo copy() {
+            return toBuilder().build();
+        }
     }
 }
@@ -0,0 +1,22 @@
+package TravelMate_Backend.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Página del listado de viajes. Para pedir la siguiente se envían {@code nextDateI} y
+ * {@code nextId} como {@code afterDateI} y {@code afterId}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TripPage {
+    private List<TripSummary> trips;
+    private LocalDate nextDateI;
+    private Long nextId;
+    private boolean hasMore;
+}
@@ -1,16 +1,20 @@
 package TravelMate_Backend.demo.dto;
 
 import lombok.AllArgsConstructor;
+import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.UnaryOperator;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
+@Builder(toBuilder = true)
 public class TripStats {
     private Long tripId;
     private String tripName;
@@ -42,6 +46,10 @@ public class TripStats {
     // Días más gastados
     private List<DailyExpense> topExpensiveDays;
 
+    // Compras con fecha anterior / posterior al viaje (no entran en dailyExpenses); null si no hay
+    private OutOfRangeExpense expensesBeforeTrip;
+    private OutOfRangeExpense expensesAfterTrip;
+
     // Gastos por categoría
     private List<CategoryExpense> expensesByCategory;
 
@@ -53,34 +61,91 @@ public class TripStats {
 
     private String currency;
 
+    /**
+     * Copia independiente (la usa el cache de estadísticas). Los campos simples los copia
+     * {@code toBuilder}; las listas y los objetos anidados, que son mutables, se copian acá.
+     */
+    public TripStats copy() {
+        return toBuilder()
+                .participantsList(copyList(participantsList, TripDetailsResponse.ParticipantInfo::copy))
+                .dailyExpenses(copyList(dailyExpenses, DailyExpense::copy))
+                .topExpensiveDays(copyList(topExpensiveDays, DailyExpense::copy))
+                .expensesBeforeTrip(expensesBeforeTrip != null ? expensesBeforeTrip.copy() : null)
+                .expensesAfterTrip(expensesAfterTrip != null ? expensesAfterTrip.copy() : null)
+                .expensesByCategory(copyList(expensesByCategory, CategoryExpense::copy))
+                .expensesByParticipant(copyList(expensesByParticipant, ParticipantExpense::copy))
+                .build();
+    }
+
+    private static <T> List<T> copyList(List<T> list, UnaryOperator<T> copyElement) {
+        if (list == null) {
+            return null;
+        }
+        List<T> copy = new ArrayList<>(list.size());
+        for (T element : list) {
+            copy.add(element != null ? copyElement.apply(element) : null);
+        }
+        return copy;
+    }
+
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
+    @Builder(toBuilder = true)
     public static class DailyExpense {
         private LocalDate date;
         private Integer dayNumber;
         private BigDecimal totalExpense;
         private Integer expenseCount;
+
+        public DailyExpense copy() {
+            return toBuilder().build();
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder(toBuilder = true)
+    public static class OutOfRangeExpense {
+        private LocalDate firstDate;
+        private LocalDate lastDate;
+        private BigDecimal totalExpense;
+        private Integer expenseCount;
+
+        public OutOfRangeExpense copy() {
+            return toBuilder().build();
+        }
     }
 
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
+    @Builder(toBuilder = true)
     public static class CategoryExpense {
         private String category;
         private BigDecimal totalAmount;
         private Integer expenseCount;
         private Double percentage;
+
+        public CategoryExpense copy() {
+            return toBuilder().build();
+        }
     }
 
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
+    @Builder(toBuilder = true)
     public static class ParticipantExpense {
         private Long userId;
         private String userName;
         private BigDecimal totalSpent;
         private Integer expenseCount;
+
+        public ParticipantExpense copy() {
+            return toBuilder().build();
+        }
     }
 }
 
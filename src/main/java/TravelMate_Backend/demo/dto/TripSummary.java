@@ -0,0 +1,64 @@
+package TravelMate_Backend.demo.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Viaje para los listados: los mismos datos que el {@code Trip} sin la imagen. En su lugar indica si
+ * tiene imagen, de dónde descargarla y su ETag.
+ */
+@Data
+@NoArgsConstructor
+public class TripSummary {
+    private Long id;
+    private String name;
+    private String description;
+    private LocalDate dateI;
+    private LocalDate dateF;
+    private String joinCode;
+    private BigDecimal cost;
+    private Long createBy;
+    private Set<Long> adminIds;
+    private String status;
+    private String destination;
+
+    private Boolean hasImage;
+    private String imageUrl;
+    private String imageEtag;
+
+    /** URL de cada miniatura por tamaño (lado más largo en px), si ya se generaron */
+    private Map<Integer, String> thumbnailUrls;
+
+    @JsonIgnore
+    private String imageHash;
+
+    @JsonIgnore
+    private Map<Integer, String> imageThumbnails;
+
+    /**
+     * Usado por las consultas de {@code TripRepository} ({@code SUMMARY_SELECT})
+     */
+    public TripSummary(Long id, String name, String description, LocalDate dateI, LocalDate dateF,
+                       String joinCode, BigDecimal cost, Long createBy, Set<Long> adminIds,
+                       Boolean hasImage, String imageHash, Map<Integer, String> imageThumbnails) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.dateI = dateI;
+        this.dateF = dateF;
+        this.joinCode = joinCode;
+        this.cost = cost;
+        this.createBy = createBy;
+        this.adminIds = adminIds;
+        this.hasImage = hasImage;
+        this.imageHash = imageHash;
+        this.imageThumbnails = imageThumbnails;
+        this.imageEtag = imageHash != null ? "\"" + imageHash + "\"" : null;
+    }
+}
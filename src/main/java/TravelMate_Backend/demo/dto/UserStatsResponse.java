@@ -1,5 +1,6 @@
 package TravelMate_Backend.demo.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -10,6 +11,7 @@ import java.util.List;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL) // las secciones no pedidas con ?sections= no se envían
 public class UserStatsResponse {
     // Estadísticas generales
     private Long totalTrips;
@@ -66,6 +68,9 @@ public class UserStatsResponse {
     // 9. Evolución temporal de gastos
     private List<TemporalExpenseStats> temporalExpenses;
     
+    // Secciones que no terminaron a tiempo (solo en modo paralelo con resultados parciales)
+    private List<String> incompleteSections;
+    
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
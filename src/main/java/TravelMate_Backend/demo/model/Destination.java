@@ -4,7 +4,9 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import java.math.BigDecimal;
 import java.util.HashSet;
 import java.util.Set;
@@ -17,7 +19,9 @@ import java.util.Set;
 public class Destination {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "destinations_seq")
+    @SequenceGenerator(name = "destinations_seq", sequenceName = "destinations_seq", allocationSize = 50)
+    @Column(columnDefinition = "bigint default nextval('destinations_seq')")
     private Long id;
 
     //El nombre es completo para despues usarlo en el front ej: "Córdoba, Argentina"
@@ -42,5 +46,7 @@ public class Destination {
 
     @OneToMany(mappedBy = "destination", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Set<TripDestination> tripDestinations = new HashSet<>();
 }
\ No newline at end of file
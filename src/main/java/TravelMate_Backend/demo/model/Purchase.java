@@ -13,14 +13,16 @@ import java.time.LocalDate;
 import java.time.ZonedDateTime;
 
 @Entity
-@Table(name = "purchase")
+@Table(name = "purchase", indexes = @Index(name = "idx_purchase_trip_date_id", columnList = "trip_id, purchase_date, id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Purchase {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "purchase_seq")
+    @SequenceGenerator(name = "purchase_seq", sequenceName = "purchase_seq", allocationSize = 50)
+    @Column(columnDefinition = "bigint default nextval('purchase_seq')")
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -13,13 +13,15 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "tips")
+@Table(name = "tips", indexes = @Index(name = "idx_tips_trip_id", columnList = "trip_id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Tip {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tips_seq")
+    @SequenceGenerator(name = "tips_seq", sequenceName = "tips_seq", allocationSize = 50)
+    @Column(columnDefinition = "bigint default nextval('tips_seq')")
     private Long id;
 
     @NotBlank(message = "El nombre es obligatorio")
@@ -55,7 +57,8 @@ public class Tip {
     private String tipIcon; // 🍽️, 🏨, 🎯, ⛽
 
     @ElementCollection
-    @CollectionTable(name = "tip_types", joinColumns = @JoinColumn(name = "tip_id"))
+    @CollectionTable(name = "tip_types", joinColumns = @JoinColumn(name = "tip_id"),
+            indexes = @Index(name = "idx_tip_types_tip_id", columnList = "tip_id"))
     @Column(name = "type")
     private List<String> types;
 
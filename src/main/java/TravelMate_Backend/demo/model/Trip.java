@@ -8,25 +8,34 @@ import jakarta.validation.constraints.Size;
 import kotlin.reflect.KType;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.annotations.SQLRestriction;
 import org.hibernate.annotations.Type;
 import org.hibernate.type.SqlTypes;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @Entity
-@Table(name = "trips")
+@Table(name = "trips", indexes = @Index(name = "idx_trips_date_i_id", columnList = "date_i, id"))
+// Los viajes borrados no se ven mientras TripPurgeService termina de eliminar sus datos
+@SQLRestriction("deleted_at IS NULL")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Trip {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "trips_seq")
+    @SequenceGenerator(name = "trips_seq", sequenceName = "trips_seq", allocationSize = 50)
+    @Column(columnDefinition = "bigint default nextval('trips_seq')")
     private Long id;
 
     @NotBlank(message = "El nombre es obligatorio")
@@ -49,8 +58,14 @@ public class Trip {
     @Column(name = "cost", precision = 10, scale = 2)
     private BigDecimal cost;
 
-    @Column(name = "image")
-    private byte[] image;
+    // SHA-256 de la imagen en el BlobStore
+    @Column(name = "image_hash", length = 64)
+    private String imageHash;
+
+    // Hash de cada miniatura disponible por tamaño; lo escribe solo TripImageThumbnailer
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "image_thumbnails", columnDefinition = "jsonb", insertable = false, updatable = false)
+    private Map<Integer, String> imageThumbnails;
 
     @Column(name = "createBy")
     private Long createBy;
@@ -62,20 +77,33 @@ public class Trip {
     @Transient
     private String status;
 
+    // Momento en que se borró; la fila se elimina cuando se terminan de borrar sus datos
+    @Column(name = "deleted_at")
+    @JsonIgnore
+    private LocalDateTime deletedAt;
+
     @ManyToMany(mappedBy = "trips", fetch = FetchType.LAZY)
     @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Set<User> users = new HashSet<>();
 
     @OneToMany(mappedBy = "trip", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Set<TripDestination> tripDestinations = new HashSet<>();
 
     @OneToMany(mappedBy = "trip", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Set<Wallet> wallets = new HashSet<>();
 
     @OneToMany(mappedBy = "trip", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Set<Tip> tips = new HashSet<>();
 
     public Trip(String name, String description, LocalDate dateI, LocalDate dateF, BigDecimal cost) {
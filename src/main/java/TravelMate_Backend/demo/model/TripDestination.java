@@ -10,7 +10,7 @@ import java.math.BigDecimal;
 import java.time.ZonedDateTime;
 
 @Entity
-@Table(name = "trip_destinations")
+@Table(name = "trip_destinations", indexes = @Index(name = "idx_trip_destinations_trip_id", columnList = "trip_id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -7,7 +7,9 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -47,6 +49,10 @@ public class User implements UserDetails {
     
     @Column(name = "profile_picture_url", columnDefinition = "TEXT")
     private String profilePictureUrl;
+
+    // SHA-256 de la foto subida por el usuario en el BlobStore (profilePictureUrl queda para URLs externas)
+    @Column(name = "profile_picture_hash", length = 64)
+    private String profilePictureHash;
     
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
@@ -68,10 +74,14 @@ public class User implements UserDetails {
             inverseJoinColumns = @JoinColumn(name = "trip_id")
     )
     @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Set<Trip> trips = new HashSet<>();
 
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Set<Wallet> wallets = new HashSet<>();
     
     @PrePersist
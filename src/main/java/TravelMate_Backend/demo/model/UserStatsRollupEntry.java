@@ -0,0 +1,52 @@
+package TravelMate_Backend.demo.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Gastos de un usuario agrupados por viaje, tipo de compra (general/individual), mes de compra
+ * y moneda. Las filas se escriben con SQL nativo (INSERT ... ON CONFLICT) desde
+ * UserStatsRollupService; la entidad existe para que Hibernate cree la tabla y su índice único.
+ */
+@Entity
+@Table(name = "user_stats_rollup_entry",
+        uniqueConstraints = @UniqueConstraint(name = "uk_user_stats_rollup_entry_bucket",
+                columnNames = {"user_id", "trip_id", "is_general", "period", "currency"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserStatsRollupEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "trip_id", nullable = false)
+    private Long tripId;
+
+    @Column(name = "is_general", nullable = false)
+    private Boolean isGeneral;
+
+    @Column(name = "period", nullable = false, length = 7)
+    private String period; // yyyy-MM de la fecha de compra
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "currency", nullable = false, length = 10)
+    private Currency currency;
+
+    @Column(name = "total", nullable = false, precision = 14, scale = 2)
+    private BigDecimal total;
+
+    @Column(name = "purchase_count", nullable = false)
+    private Long purchaseCount;
+
+    @Column(name = "last_purchase_id")
+    private Long lastPurchaseId; // Se usa para resolver la moneda de la última compra
+}
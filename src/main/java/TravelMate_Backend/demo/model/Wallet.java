@@ -12,14 +12,16 @@ import java.math.BigDecimal;
 import java.time.ZonedDateTime;
 
 @Entity
-@Table(name = "wallet")
+@Table(name = "wallet", indexes = @Index(name = "idx_wallet_trip_id", columnList = "trip_id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Wallet {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "wallet_seq")
+    @SequenceGenerator(name = "wallet_seq", sequenceName = "wallet_seq", allocationSize = 50)
+    @Column(columnDefinition = "bigint default nextval('wallet_seq')")
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
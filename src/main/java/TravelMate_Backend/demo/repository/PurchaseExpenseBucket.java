@@ -0,0 +1,25 @@
+package TravelMate_Backend.demo.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Proyección con las compras agrupadas por viaje, tipo (general/individual), mes de compra y moneda
+ */
+public interface PurchaseExpenseBucket {
+
+    Long getTripId();
+
+    Boolean getIsGeneral();
+
+    /** Mes de compra en formato yyyy-MM */
+    String getPeriod();
+
+    String getCurrency();
+
+    BigDecimal getTotal();
+
+    Long getPurchaseCount();
+
+    /** Id más alto del grupo, para resolver la moneda de la última compra */
+    Long getLastPurchaseId();
+}
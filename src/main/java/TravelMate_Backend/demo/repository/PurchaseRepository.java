@@ -1,28 +1,67 @@
 package TravelMate_Backend.demo.repository;
 
 import TravelMate_Backend.demo.model.Purchase;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface PurchaseRepository extends JpaRepository<Purchase, Long> {
     
+    // Las consultas por viaje hacen JOIN con el viaje para que se aplique su @SQLRestriction: un
+    // viaje borrado no devuelve compras aunque la purga todavía no las haya borrado
+
     // Buscar todas las compras de un viaje
-    List<Purchase> findByTripId(Long tripId);
+    @Query("SELECT p FROM Purchase p JOIN p.trip t WHERE t.id = :tripId")
+    List<Purchase> findByTripId(@Param("tripId") Long tripId);
     
     // Buscar compras generales de un viaje
-    List<Purchase> findByTripIdAndIsGeneralTrue(Long tripId);
+    @Query("SELECT p FROM Purchase p JOIN p.trip t WHERE t.id = :tripId AND p.isGeneral = true")
+    List<Purchase> findByTripIdAndIsGeneralTrue(@Param("tripId") Long tripId);
     
     // Buscar compras individuales de un usuario en un viaje
-    List<Purchase> findByTripIdAndUserIdAndIsGeneralFalse(Long tripId, Long userId);
+    @Query("SELECT p FROM Purchase p JOIN p.trip t WHERE t.id = :tripId AND p.user.id = :userId AND p.isGeneral = false")
+    List<Purchase> findByTripIdAndUserIdAndIsGeneralFalse(@Param("tripId") Long tripId, @Param("userId") Long userId);
     
     // Buscar compra por ID y tripId
-    Optional<Purchase> findByIdAndTripId(Long id, Long tripId);
+    @Query("SELECT p FROM Purchase p JOIN p.trip t WHERE p.id = :id AND t.id = :tripId")
+    Optional<Purchase> findByIdAndTripId(@Param("id") Long id, @Param("tripId") Long tripId);
     
     // Buscar todas las compras individuales de un usuario en un viaje
-    List<Purchase> findByTripIdAndUserId(Long tripId, Long userId);
+    @Query("SELECT p FROM Purchase p JOIN p.trip t WHERE t.id = :tripId AND p.user.id = :userId")
+    List<Purchase> findByTripIdAndUserId(@Param("tripId") Long tripId, @Param("userId") Long userId);
+
+    // Página de compras del viaje (de la más reciente a la más vieja) después de (afterDate, afterId).
+    // general y userId son opcionales: null no filtra
+    @Query("SELECT p FROM Purchase p JOIN p.trip t WHERE t.id = :tripId " +
+           "AND (:general IS NULL OR p.isGeneral = :general) AND (:userId IS NULL OR p.user.id = :userId) " +
+           "AND (p.purchaseDate, p.id) < (:afterDate, :afterId) " +
+           "ORDER BY p.purchaseDate DESC, p.id DESC")
+    List<Purchase> findPageByTripId(@Param("tripId") Long tripId, @Param("general") Boolean general,
+                                    @Param("userId") Long userId, @Param("afterDate") LocalDate afterDate,
+                                    @Param("afterId") Long afterId, Limit limit);
+
+    // Compras generales de varios viajes + las individuales del usuario en esos viajes, en una sola consulta
+    @Query("SELECT p FROM Purchase p LEFT JOIN p.user u " +
+           "WHERE p.trip.id IN :tripIds AND (p.isGeneral = true OR (p.isGeneral = false AND u.id = :userId)) " +
+           "ORDER BY p.id")
+    List<Purchase> findUserStatsPurchases(@Param("tripIds") Collection<Long> tripIds, @Param("userId") Long userId);
+
+    // Mismas compras que findUserStatsPurchases, pero sumadas en la base por viaje, tipo, mes y moneda
+    @Query(value = "SELECT p.trip_id AS \"tripId\", p.is_general AS \"isGeneral\", " +
+           "to_char(p.purchase_date, 'YYYY-MM') AS \"period\", p.currency AS \"currency\", " +
+           "SUM(p.price) AS \"total\", COUNT(*) AS \"purchaseCount\", MAX(p.id) AS \"lastPurchaseId\" " +
+           "FROM purchase p " +
+           "WHERE p.trip_id IN (:tripIds) AND (p.is_general = true OR (p.is_general = false AND p.user_id = :userId)) " +
+           "GROUP BY p.trip_id, p.is_general, to_char(p.purchase_date, 'YYYY-MM'), p.currency",
+           nativeQuery = true)
+    List<PurchaseExpenseBucket> sumUserStatsPurchases(@Param("tripIds") Collection<Long> tripIds, @Param("userId") Long userId);
 }
 
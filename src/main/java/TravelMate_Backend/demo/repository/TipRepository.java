@@ -6,41 +6,54 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface TipRepository extends JpaRepository<Tip, Long> {
     
     /**
-     * Buscar todos los tips de un viaje específico
+     * Buscar todos los tips de un viaje específico. Las consultas por viaje hacen JOIN con el viaje
+     * para que se aplique su {@code @SQLRestriction}: un viaje borrado no devuelve tips aunque la
+     * purga todavía no los haya borrado
      */
-    List<Tip> findByTripIdOrderByCreatedAtDesc(Long tripId);
+    @Query("SELECT t FROM Tip t JOIN t.trip tr WHERE tr.id = :tripId ORDER BY t.createdAt DESC")
+    List<Tip> findByTripIdOrderByCreatedAtDesc(@Param("tripId") Long tripId);
+
+    /**
+     * Buscar los tips de varios viajes a la vez
+     */
+    @Query("SELECT t FROM Tip t JOIN t.trip tr WHERE tr.id IN :tripIds ORDER BY t.createdAt DESC")
+    List<Tip> findByTripIdInOrderByCreatedAtDesc(@Param("tripIds") Collection<Long> tripIds);
     
     /**
      * Buscar tips por tipo en un viaje específico
      */
-    List<Tip> findByTripIdAndTipTypeOrderByCreatedAtDesc(Long tripId, String tipType);
+    @Query("SELECT t FROM Tip t JOIN t.trip tr WHERE tr.id = :tripId AND t.tipType = :tipType ORDER BY t.createdAt DESC")
+    List<Tip> findByTripIdAndTipTypeOrderByCreatedAtDesc(@Param("tripId") Long tripId, @Param("tipType") String tipType);
     
     /**
      * Buscar tips creados por un usuario específico en un viaje
      */
-    List<Tip> findByTripIdAndCreatedByOrderByCreatedAtDesc(Long tripId, String createdBy);
+    @Query("SELECT t FROM Tip t JOIN t.trip tr WHERE tr.id = :tripId AND t.createdBy = :createdBy ORDER BY t.createdAt DESC")
+    List<Tip> findByTripIdAndCreatedByOrderByCreatedAtDesc(@Param("tripId") Long tripId, @Param("createdBy") String createdBy);
     
     /**
      * Contar el número de tips en un viaje
      */
-    long countByTripId(Long tripId);
+    @Query("SELECT COUNT(t) FROM Tip t JOIN t.trip tr WHERE tr.id = :tripId")
+    long countByTripId(@Param("tripId") Long tripId);
     
     /**
      * Buscar tips por tipo y ordenar por distancia
      */
-    @Query("SELECT t FROM Tip t WHERE t.trip.id = :tripId AND t.tipType = :tipType ORDER BY t.distanceKm ASC")
+    @Query("SELECT t FROM Tip t JOIN t.trip tr WHERE tr.id = :tripId AND t.tipType = :tipType ORDER BY t.distanceKm ASC")
     List<Tip> findByTripIdAndTipTypeOrderByDistanceAsc(@Param("tripId") Long tripId, @Param("tipType") String tipType);
     
     /**
      * Buscar tips cercanos a una ubicación específica
      */
-    @Query("SELECT t FROM Tip t WHERE t.trip.id = :tripId AND " +
+    @Query("SELECT t FROM Tip t JOIN t.trip tr WHERE tr.id = :tripId AND " +
            "SQRT(POWER(t.latitude - :latitude, 2) + POWER(t.longitude - :longitude, 2)) <= :radiusKm " +
            "ORDER BY SQRT(POWER(t.latitude - :latitude, 2) + POWER(t.longitude - :longitude, 2)) ASC")
     List<Tip> findNearbyTips(@Param("tripId") Long tripId, 
@@ -0,0 +1,23 @@
+package TravelMate_Backend.demo.repository;
+
+import TravelMate_Backend.demo.model.TripDestination;
+import TravelMate_Backend.demo.model.TripDestinationId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface TripDestinationRepository extends JpaRepository<TripDestination, TripDestinationId> {
+
+    /**
+     * Destinos de varios viajes con su {@code Destination} (y el viaje, que es EAGER) en una sola
+     * consulta, ordenados por viaje y destino
+     */
+    @Query("SELECT td FROM TripDestination td JOIN FETCH td.trip JOIN FETCH td.destination " +
+            "WHERE td.id.tripId IN :tripIds ORDER BY td.id.tripId, td.id.destinationId")
+    List<TripDestination> findWithDestinationByTripIds(@Param("tripIds") Collection<Long> tripIds);
+}
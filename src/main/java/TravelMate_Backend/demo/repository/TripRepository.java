@@ -1,22 +1,60 @@
 package TravelMate_Backend.demo.repository;
 
+import TravelMate_Backend.demo.dto.TripSummary;
 import TravelMate_Backend.demo.model.Trip;
 import TravelMate_Backend.demo.model.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface TripRepository extends JpaRepository<Trip, Long> {
     List<Trip> findByUsersId(Long userId);
+
+    String SUMMARY_SELECT = "SELECT new TravelMate_Backend.demo.dto.TripSummary(t.id, t.name, t.description, " +
+            "t.dateI, t.dateF, t.joinCode, t.cost, t.createBy, t.adminIds, " +
+            "CASE WHEN t.imageHash IS NULL THEN false ELSE true END, t.imageHash, t.imageThumbnails) " +
+            "FROM Trip t JOIN t.users u WHERE u.id = :userId ";
+
+    // El estado del viaje como rangos de fechas (ver TripStatusFilter)
+    String STATUS_BOUNDS = "AND t.dateI BETWEEN :minStart AND :maxStart AND t.dateF BETWEEN :minEnd AND :maxEnd ";
+
+    /**
+     * Viajes del usuario para listados, sin traer la imagen (solo si existe y su hash para el ETag)
+     */
+    @Query(SUMMARY_SELECT + STATUS_BOUNDS + "ORDER BY t.id")
+    List<TripSummary> findSummariesByUserId(@Param("userId") Long userId,
+                                            @Param("minStart") LocalDate minStart, @Param("maxStart") LocalDate maxStart,
+                                            @Param("minEnd") LocalDate minEnd, @Param("maxEnd") LocalDate maxEnd);
+
+    /**
+     * Página de viajes del usuario, de la fecha de inicio más reciente a la más vieja. Paginación por
+     * clave: devuelve los viajes que van después de ({@code afterDateI}, {@code afterId}).
+     */
+    @Query(SUMMARY_SELECT + STATUS_BOUNDS +
+            "AND t.dateI <= :afterDateI AND (t.dateI < :afterDateI OR t.id < :afterId) " +
+            "ORDER BY t.dateI DESC, t.id DESC")
+    List<TripSummary> findSummaryPageByUserId(@Param("userId") Long userId,
+                                              @Param("minStart") LocalDate minStart, @Param("maxStart") LocalDate maxStart,
+                                              @Param("minEnd") LocalDate minEnd, @Param("maxEnd") LocalDate maxEnd,
+                                              @Param("afterDateI") LocalDate afterDateI, @Param("afterId") Long afterId,
+                                              Limit limit);
+
     boolean existsByIdAndUsersId(Long tripId, Long userId);
     Optional<Trip> findByJoinCode(String joinCode);
+    @Query("SELECT t.id FROM Trip t WHERE t.joinCode = :joinCode")
+    Optional<Long> findIdByJoinCode(@Param("joinCode") String joinCode);
     @Modifying
     @Query(value = "DELETE FROM users_trip WHERE trip_id = :tripId", nativeQuery = true)
     void deleteTripRelations(@Param("tripId") Long tripId);
+    @Query(value = "SELECT trip_id, COUNT(*) FROM users_trip WHERE trip_id IN (:tripIds) GROUP BY trip_id", nativeQuery = true)
+    List<Object[]> countUsersByTripIds(@Param("tripIds") Collection<Long> tripIds);
 }
@@ -2,6 +2,9 @@ package TravelMate_Backend.demo.repository;
 
 import TravelMate_Backend.demo.model.Wallet;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,19 +13,34 @@ import java.util.Optional;
 @Repository
 public interface WalletRepository extends JpaRepository<Wallet, Long> {
     
+    // Las consultas hacen JOIN con el viaje para que se aplique su @SQLRestriction: las billeteras de
+    // un viaje borrado no se ven aunque la purga todavía no las haya borrado
+
     // Buscar billetera general de un viaje
-    Optional<Wallet> findByTripIdAndIsGeneralTrue(Long tripId);
+    @Query("SELECT w FROM Wallet w JOIN w.trip t WHERE t.id = :tripId AND w.isGeneral = true")
+    Optional<Wallet> findByTripIdAndIsGeneralTrue(@Param("tripId") Long tripId);
     
     // Buscar billetera individual de un usuario en un viaje
-    Optional<Wallet> findByTripIdAndUserIdAndIsGeneralFalse(Long tripId, Long userId);
+    @Query("SELECT w FROM Wallet w JOIN w.trip t WHERE t.id = :tripId AND w.user.id = :userId AND w.isGeneral = false")
+    Optional<Wallet> findByTripIdAndUserIdAndIsGeneralFalse(@Param("tripId") Long tripId, @Param("userId") Long userId);
     
     // Buscar todas las billeteras de un viaje
-    List<Wallet> findByTripId(Long tripId);
+    @Query("SELECT w FROM Wallet w JOIN w.trip t WHERE t.id = :tripId")
+    List<Wallet> findByTripId(@Param("tripId") Long tripId);
     
     // Buscar todas las billeteras individuales de un usuario en un viaje
-    List<Wallet> findByTripIdAndUserId(Long tripId, Long userId);
+    @Query("SELECT w FROM Wallet w JOIN w.trip t WHERE t.id = :tripId AND w.user.id = :userId")
+    List<Wallet> findByTripIdAndUserId(@Param("tripId") Long tripId, @Param("userId") Long userId);
     
     // Buscar todas las billeteras de un usuario
-    List<Wallet> findByUserId(Long userId);
+    @Query("SELECT w FROM Wallet w JOIN w.trip t WHERE w.user.id = :userId")
+    List<Wallet> findByUserId(@Param("userId") Long userId);
+
+    // Crear la billetera individual con la moneda de la billetera general, sin cargarla (0 si el viaje no la tiene o fue borrado)
+    @Modifying
+    @Query(value = "INSERT INTO wallet (trip_id, user_id, amount, currency, is_general, created_at, updated_at) " +
+            "SELECT w.trip_id, :userId, 0, w.currency, false, now(), now() FROM wallet w JOIN trips t ON t.id = w.trip_id " +
+            "WHERE w.trip_id = :tripId AND w.is_general AND t.deleted_at IS NULL ORDER BY w.id LIMIT 1", nativeQuery = true)
+    int insertIndividualFromGeneral(@Param("tripId") Long tripId, @Param("userId") Long userId);
 }
 
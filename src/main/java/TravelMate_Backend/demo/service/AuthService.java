@@ -31,6 +31,9 @@ public class AuthService {
     
     @Autowired
     private JwtUtils jwtUtils;
+
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
     
     public AuthResponse login(LoginRequest loginRequest) {
         Authentication authentication = authenticationManager.authenticate(
@@ -46,7 +49,7 @@ public class AuthService {
                 user.getId(),
                 user.getName(),
                 user.getEmail(),
-                user.getProfilePictureUrl(),
+                userDetailsService.profilePictureUrl(user),
                 user.getProvider().toString()
         );
     }
@@ -76,7 +79,7 @@ public class AuthService {
                 user.getId(),
                 user.getName(),
                 user.getEmail(),
-                user.getProfilePictureUrl(),
+                userDetailsService.profilePictureUrl(user),
                 user.getProvider().toString()
         );
     }
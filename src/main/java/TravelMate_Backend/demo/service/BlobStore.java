@@ -0,0 +1,215 @@
+package TravelMate_Backend.demo.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * Almacén de archivos (imágenes de viajes y fotos de perfil) en el disco local, direccionado por
+ * contenido: cada archivo se guarda una sola vez con el SHA-256 de sus bytes como nombre, y en la
+ * base solo queda ese hash.
+ *
+ * Los archivos se escriben en streaming a un temporal mientras se calcula el hash y después se
+ * mueven a su lugar ({@code <dir>/ab/cd/abcd...}), así nunca se ve un archivo a medio escribir.
+ * Como el mismo contenido puede estar referenciado desde varias filas, solo se borra un archivo
+ * cuando ya nadie lo referencia y no se volvió a guardar hace poco ({@link #deleteIfOlderThan}).
+ */
+@Component
+public class BlobStore {
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final String DATA_URL_BASE64 = ";base64,";
+
+    @Value("${blobs.dir:data/blobs}")
+    private String dir;
+
+    private Path root;
+    private Path tmp;
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(dir).toAbsolutePath().normalize();
+        tmp = root.resolve("tmp");
+        Files.createDirectories(tmp);
+    }
+
+    /**
+     * Guarda el contenido del stream (sin cargarlo entero en memoria) y devuelve su hash. Si ya
+     * existía un archivo con el mismo contenido no se vuelve a escribir.
+     */
+    public String store(InputStream in) {
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(tmp, "blob-", ".tmp");
+            MessageDigest digest = sha256();
+            try (DigestInputStream digestIn = new DigestInputStream(in, digest)) {
+                Files.copy(digestIn, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+
+            Path target = path(hash);
+            if (Files.exists(target)) {
+                // Se vuelve a usar: que no lo borre una purga mientras se guarda la fila que lo referencia
+                Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+            } else {
+                Files.createDirectories(target.getParent());
+                try {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                    temp = null;
+                } catch (FileAlreadyExistsException e) {
+                    // Lo guardó otro hilo al mismo tiempo; el contenido es el mismo
+                }
+            }
+            return hash;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al guardar el archivo", e);
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // Queda un temporal huérfano en tmp/, no afecta a los archivos guardados
+                }
+            }
+        }
+    }
+
+    /**
+     * Guarda una imagen recibida como data URL ({@code data:image/png;base64,...}) decodificándola
+     * en streaming
+     */
+    public String storeDataUrl(String dataUrl) {
+        int separator = dataUrl.indexOf(DATA_URL_BASE64);
+        if (!isDataUrl(dataUrl) || separator < 0) {
+            throw new IllegalArgumentException("La imagen debe ser una data URL en base64");
+        }
+        byte[] ascii = dataUrl.getBytes(StandardCharsets.US_ASCII);
+        int start = separator + DATA_URL_BASE64.length();
+        try (InputStream decoded = Base64.getMimeDecoder().wrap(
+                new ByteArrayInputStream(ascii, start, ascii.length - start))) {
+            return store(decoded);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al decodificar la imagen", e);
+        }
+    }
+
+    /**
+     * Arma la data URL de un archivo guardado, para las respuestas que la devuelven inline
+     */
+    public String dataUrl(String hash) {
+        try {
+            return "data:" + mediaType(hash) + DATA_URL_BASE64
+                    + Base64.getEncoder().encodeToString(Files.readAllBytes(path(hash)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al leer el archivo " + hash, e);
+        }
+    }
+
+    public static boolean isDataUrl(String value) {
+        return value != null && value.regionMatches(true, 0, "data:", 0, 5);
+    }
+
+    public boolean exists(String hash) {
+        return isHash(hash) && Files.isRegularFile(path(hash));
+    }
+
+    public InputStream open(String hash) throws IOException {
+        return Files.newInputStream(path(hash));
+    }
+
+    public long size(String hash) throws IOException {
+        return Files.size(path(hash));
+    }
+
+    /**
+     * Tipo de la imagen según sus primeros bytes (en la base solo se guarda el hash)
+     */
+    public String mediaType(String hash) throws IOException {
+        byte[] header = new byte[12];
+        int read;
+        try (InputStream in = open(hash)) {
+            read = in.readNBytes(header, 0, header.length);
+        }
+        if (read >= 8 && startsWith(header, 0x89, 'P', 'N', 'G')) {
+            return "image/png";
+        }
+        if (read >= 3 && startsWith(header, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (read >= 6 && startsWith(header, 'G', 'I', 'F', '8')) {
+            return "image/gif";
+        }
+        if (read >= 12 && startsWith(header, 'R', 'I', 'F', 'F')
+                && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P') {
+            return "image/webp";
+        }
+        return "application/octet-stream";
+    }
+
+    /**
+     * Borra el archivo si no se guardó (ni se volvió a guardar) en el último {@code minAge}. Quien
+     * llama tiene que haber verificado antes que ninguna fila lo referencia.
+     *
+     * @return si se borró
+     */
+    public boolean deleteIfOlderThan(String hash, Duration minAge) {
+        Path file = path(hash);
+        try {
+            if (!Files.isRegularFile(file)
+                    || Files.getLastModifiedTime(file).toInstant().isAfter(Instant.now().minus(minAge))) {
+                return false;
+            }
+            return Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al borrar el archivo " + hash, e);
+        }
+    }
+
+    public Path path(String hash) {
+        if (!isHash(hash)) {
+            throw new IllegalArgumentException("Hash inválido: " + hash);
+        }
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    private static boolean isHash(String hash) {
+        return hash != null && HASH.matcher(hash).matches();
+    }
+
+    private static boolean startsWith(byte[] bytes, int... prefix) {
+        for (int i = 0; i < prefix.length; i++) {
+            if ((bytes[i] & 0xFF) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package TravelMate_Backend.demo.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Gastos por día de un viaje en arreglos indexados por día (día 0 = fecha de inicio), llenados en
+ * una sola pasada. Las compras con fecha anterior o posterior al viaje no se descartan: van a dos
+ * casilleros aparte ({@link #BEFORE_TRIP} y {@link #AFTER_TRIP}).
+ *
+ * Los montos se suman en unidades menores como en {@link MoneyAccumulator} (todas las monedas
+ * juntas), con el mismo resultado que sumar con {@code BigDecimal}.
+ */
+public final class DailyExpenseHistogram {
+
+    /** Casillero de las compras anteriores al inicio del viaje */
+    public static final int BEFORE_TRIP = -1;
+    /** Casillero de las compras posteriores al fin del viaje */
+    public static final int AFTER_TRIP = -2;
+
+    private final long firstEpochDay;
+    private final int days;
+
+    // Un casillero por día más los dos de fuera de rango al final
+    private final long[] minorUnits;
+    private final int[] counts;
+    private final int[] scales;
+
+    // Primera y última fecha de cada casillero fuera de rango
+    private final long[] overflowFirstDay = {Long.MAX_VALUE, Long.MAX_VALUE};
+    private final long[] overflowLastDay = {Long.MIN_VALUE, Long.MIN_VALUE};
+
+    public DailyExpenseHistogram(LocalDate firstDay, LocalDate lastDay) {
+        this.firstEpochDay = firstDay.toEpochDay();
+        this.days = (int) Math.max(0, lastDay.toEpochDay() - firstEpochDay + 1);
+        this.minorUnits = new long[days + 2];
+        this.counts = new int[days + 2];
+        this.scales = new int[days + 2];
+        Arrays.fill(scales, -1);
+    }
+
+    public void add(LocalDate date, BigDecimal amount) {
+        long offset = date.toEpochDay() - firstEpochDay;
+        int slot = offset < 0 ? days : offset >= days ? days + 1 : (int) offset;
+        if (slot >= days) {
+            int overflow = slot - days;
+            overflowFirstDay[overflow] = Math.min(overflowFirstDay[overflow], date.toEpochDay());
+            overflowLastDay[overflow] = Math.max(overflowLastDay[overflow], date.toEpochDay());
+        }
+
+        try {
+            minorUnits[slot] = Math.addExact(minorUnits[slot], MoneyAccumulator.toMinorUnits(amount));
+        } catch (ArithmeticException e) {
+            throw new ArithmeticException("Desbordamiento al acumular los gastos del " + date);
+        }
+        scales[slot] = Math.max(scales[slot], Math.max(amount.scale(), 0));
+        counts[slot]++;
+    }
+
+    /**
+     * Cantidad de días del viaje (sin los casilleros fuera de rango)
+     */
+    public int days() {
+        return days;
+    }
+
+    public LocalDate date(int day) {
+        return LocalDate.ofEpochDay(firstEpochDay + day);
+    }
+
+    /**
+     * Total del día (o de {@link #BEFORE_TRIP} / {@link #AFTER_TRIP}); {@code BigDecimal.ZERO} si
+     * no hubo compras
+     */
+    public BigDecimal total(int day) {
+        int slot = slot(day);
+        return MoneyAccumulator.toBigDecimal(minorUnits[slot], scales[slot]);
+    }
+
+    public int count(int day) {
+        return counts[slot(day)];
+    }
+
+    /**
+     * Primera fecha con compras de un casillero fuera de rango, o {@code null} si está vacío
+     */
+    public LocalDate firstDate(int overflow) {
+        int index = overflowIndex(overflow);
+        return counts[days + index] > 0 ? LocalDate.ofEpochDay(overflowFirstDay[index]) : null;
+    }
+
+    public LocalDate lastDate(int overflow) {
+        int index = overflowIndex(overflow);
+        return counts[days + index] > 0 ? LocalDate.ofEpochDay(overflowLastDay[index]) : null;
+    }
+
+    /**
+     * Los {@code k} días del viaje con mayor gasto (solo días con gasto positivo), de mayor a menor;
+     * entre días con el mismo total va primero el anterior. Usa un heap acotado a {@code k}
+     * elementos en lugar de ordenar todos los días.
+     */
+    public int[] topDays(int k) {
+        int[] heap = new int[Math.max(0, Math.min(k, days))];
+        int size = 0;
+        for (int day = 0; day < days; day++) {
+            if (minorUnits[day] <= 0) {
+                continue;
+            }
+            if (size < heap.length) {
+                heap[size] = day;
+                siftUp(heap, size++);
+            } else if (size > 0 && ranksHigher(day, heap[0])) {
+                heap[0] = day;
+                siftDown(heap, size);
+            }
+        }
+
+        // Vaciar el heap (el peor primero) llenando el resultado desde el final
+        int[] top = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            top[i] = heap[0];
+            heap[0] = heap[--size];
+            siftDown(heap, size);
+        }
+        return top;
+    }
+
+    /**
+     * Orden de los días para el top: más gasto primero y, a igual gasto, el día anterior
+     */
+    private boolean ranksHigher(int day, int other) {
+        int comparison = Long.compare(minorUnits[day], minorUnits[other]);
+        return comparison > 0 || (comparison == 0 && day < other);
+    }
+
+    // Heap de mínimos según ranksHigher: en la raíz queda el peor de los k mejores
+
+    private void siftUp(int[] heap, int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (!ranksHigher(heap[parent], heap[index])) {
+                return;
+            }
+            swap(heap, parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int[] heap, int size) {
+        int index = 0;
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= size) {
+                return;
+            }
+            int worst = left;
+            int right = left + 1;
+            if (right < size && ranksHigher(heap[left], heap[right])) {
+                worst = right;
+            }
+            if (!ranksHigher(heap[index], heap[worst])) {
+                return;
+            }
+            swap(heap, index, worst);
+            index = worst;
+        }
+    }
+
+    private static void swap(int[] heap, int i, int j) {
+        int tmp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = tmp;
+    }
+
+    private static int overflowIndex(int overflow) {
+        if (overflow != BEFORE_TRIP && overflow != AFTER_TRIP) {
+            throw new IllegalArgumentException("No es un casillero fuera de rango: " + overflow);
+        }
+        return overflow == BEFORE_TRIP ? 0 : 1;
+    }
+
+    private int slot(int day) {
+        if (day == BEFORE_TRIP || day == AFTER_TRIP) {
+            return days + overflowIndex(day);
+        }
+        if (day < 0 || day >= days) {
+            throw new IndexOutOfBoundsException("Día fuera del viaje: " + day);
+        }
+        return day;
+    }
+}
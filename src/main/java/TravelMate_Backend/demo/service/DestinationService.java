@@ -0,0 +1,171 @@
+package TravelMate_Backend.demo.service;
+
+import TravelMate_Backend.demo.model.Destination;
+import TravelMate_Backend.demo.repository.DestinationRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Busca o crea destinos por nombre sin duplicarlos: la tabla tiene un índice único sobre el nombre
+ * normalizado (sin espacios de más y en minúsculas) y la creación es un
+ * {@code INSERT ... ON CONFLICT DO NOTHING}, así dos viajes creados al mismo tiempo para la misma
+ * ciudad terminan usando la misma fila.
+ *
+ * Delante hay un cache LRU acotado de nombre normalizado → id, de modo que los nombres que se
+ * repiten no van a la base. Un id se cachea recién cuando la transacción que lo leyó o lo creó hace
+ * commit, para no guardar ids de inserciones que después se deshacen.
+ */
+@Service
+public class DestinationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DestinationService.class);
+
+    private static final String NORMALIZED_NAME = "lower(regexp_replace(btrim(name), '\\s+', ' ', 'g'))";
+    private static final String NORMALIZED_PARAMETER = "lower(regexp_replace(btrim(?), '\\s+', ' ', 'g'))";
+    private static final String UNIQUE_INDEX = "uk_destinations_normalized_name";
+
+    @Autowired
+    private DestinationRepository destinationRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${destinations.cache.max-entries:1000}")
+    private int maxEntries;
+
+    private final Map<String, Long> ids = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    /**
+     * Crea el índice único si todavía no existe, uniendo antes los destinos repetidos
+     */
+    @PostConstruct
+    public void ensureUniqueIndex() {
+        Boolean exists = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_indexes WHERE schemaname = current_schema() AND indexname = ?)",
+                Boolean.class, UNIQUE_INDEX);
+        if (Boolean.TRUE.equals(exists)) {
+            return;
+        }
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            int merged = mergeDuplicates();
+            if (merged > 0) {
+                logger.info("Destinos repetidos unidos antes de crear el índice único: {}", merged);
+            }
+            jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS " + UNIQUE_INDEX
+                    + " ON destinations ((" + NORMALIZED_NAME + "))");
+        });
+    }
+
+    /**
+     * Destino con ese nombre, creándolo si no existe. Devuelve una referencia: sus datos se cargan
+     * solo si se usan.
+     */
+    public Destination findOrCreate(String name) {
+        return destinationRepository.getReferenceById(findOrCreateId(name));
+    }
+
+    public Long findOrCreateId(String name) {
+        if (name == null || name.isBlank()) {
+            throw new RuntimeException("El nombre del destino es obligatorio");
+        }
+        String key = normalize(name);
+        synchronized (ids) {
+            Long id = ids.get(key);
+            if (id != null) {
+                return id;
+            }
+        }
+
+        String trimmed = name.trim().replaceAll("\\s+", " ");
+        List<Long> inserted = jdbcTemplate.queryForList("INSERT INTO destinations (name, contry, cost) VALUES (?, ?, 0) "
+                + "ON CONFLICT ((" + NORMALIZED_NAME + ")) DO NOTHING RETURNING id", Long.class,
+                trimmed, extractCountry(trimmed));
+        // Si ya existía (o lo creó otra transacción al mismo tiempo) el INSERT no devuelve nada
+        Long id = !inserted.isEmpty() ? inserted.get(0) : jdbcTemplate.queryForObject(
+                "SELECT id FROM destinations WHERE " + NORMALIZED_NAME + " = " + NORMALIZED_PARAMETER,
+                Long.class, trimmed);
+
+        cacheAfterCommit(key, id);
+        return id;
+    }
+
+    /**
+     * La misma normalización que el índice único
+     */
+    static String normalize(String name) {
+        return name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private void cacheAfterCommit(String key, Long id) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache(key, id);
+                }
+            });
+        } else {
+            cache(key, id);
+        }
+    }
+
+    private void cache(String key, Long id) {
+        synchronized (ids) {
+            ids.put(key, id);
+        }
+    }
+
+    /**
+     * Deja una sola fila por nombre normalizado (la de menor id) y pasa a ella los destinos de los
+     * viajes que apuntaban a las demás
+     */
+    private int mergeDuplicates() {
+        List<Map<String, Object>> duplicates = jdbcTemplate.queryForList(
+                "SELECT id, keep_id FROM (SELECT id, MIN(id) OVER (PARTITION BY " + NORMALIZED_NAME + ") AS keep_id "
+                        + "FROM destinations) d WHERE id <> keep_id ORDER BY id");
+        for (Map<String, Object> duplicate : duplicates) {
+            long id = ((Number) duplicate.get("id")).longValue();
+            long keepId = ((Number) duplicate.get("keep_id")).longValue();
+            // Si el viaje ya tiene el destino que queda, la fila repetida sobra
+            jdbcTemplate.update("DELETE FROM trip_destinations td WHERE td.destination_id = ? AND EXISTS "
+                    + "(SELECT 1 FROM trip_destinations k WHERE k.trip_id = td.trip_id AND k.destination_id = ?)", id, keepId);
+            jdbcTemplate.update("UPDATE trip_destinations SET destination_id = ? WHERE destination_id = ?", keepId, id);
+            jdbcTemplate.update("DELETE FROM destinations WHERE id = ?", id);
+        }
+        return duplicates.size();
+    }
+
+    private static String extractCountry(String destinationName) {
+        // Extraer país del nombre del destino (última parte después de la coma)
+        String[] parts = destinationName.split(",");
+        if (parts.length > 1) {
+            return parts[parts.length - 1].trim();
+        }
+        return "Unknown";
+    }
+}
@@ -25,6 +25,9 @@ public class EmailChangeService {
     @Autowired
     private EmailChangeTokenRepository tokenRepository;
 
+    @Autowired
+    private UserSummaryCache userSummaryCache;
+
     private static final SecureRandom random = new SecureRandom();
 
     @Autowired
@@ -136,6 +139,7 @@ public class EmailChangeService {
 
         user.setEmail(token.getNewEmail());
         userRepository.save(user);
+        userSummaryCache.evict(user.getId());
 
         // Marcar token como usado
         token.setUsed(true);
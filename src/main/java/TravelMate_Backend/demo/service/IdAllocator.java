@@ -0,0 +1,36 @@
+package TravelMate_Backend.demo.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reserva ids para los INSERT por SQL directo con la misma regla que Hibernate ({@code pooled-lo}):
+ * cada {@code nextval} de la secuencia de la tabla es el primero de un bloque de tantos ids como el
+ * incremento de la secuencia. Así un INSERT en batch no gasta un bloque entero por fila (que es lo
+ * que pasa si se deja el {@code DEFAULT nextval} de la columna) y los ids se conocen de antemano.
+ *
+ * Con las tablas que siguen en {@code IDENTITY} (incremento 1) es un {@code nextval} por id.
+ */
+@Component
+public class IdAllocator {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public long[] reserve(String table, int count) {
+        if (count <= 0) {
+            return new long[0];
+        }
+        String sequence = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(pg_get_serial_sequence(?, 'id'), ?)", String.class, table, table + "_seq");
+        long increment = jdbcTemplate.queryForObject(
+                "SELECT seqincrement FROM pg_sequence WHERE seqrelid = ?::regclass", Long.class, sequence);
+        long blocks = (count + increment - 1) / increment;
+        return jdbcTemplate.queryForList("SELECT b.first + g.n FROM "
+                                + "(SELECT nextval(?::regclass) AS first FROM generate_series(1, ?)) b "
+                                + "CROSS JOIN generate_series(0, ? - 1) AS g(n) ORDER BY 1 LIMIT ?",
+                        Long.class, sequence, blocks, increment, count)
+                .stream().mapToLong(Long::longValue).toArray();
+    }
+}
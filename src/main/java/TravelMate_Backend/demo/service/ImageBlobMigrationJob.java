@@ -0,0 +1,114 @@
+package TravelMate_Backend.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Mueve al {@link BlobStore} las imágenes que quedaron guardadas en la base: la columna
+ * {@code trips.image} (bytea) y las fotos de perfil guardadas como data URL en
+ * {@code users.profile_picture_url}. Corre al arrancar, por lotes, y cada fila se actualiza por
+ * separado después de escribir el archivo, así si se corta a mitad de camino se retoma en el
+ * siguiente arranque sin perder nada.
+ *
+ * Cuando no quedan imágenes en {@code trips.image} la columna se puede borrar a mano.
+ */
+@Component
+public class ImageBlobMigrationJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageBlobMigrationJob.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Value("${blobs.migration.enabled:true}")
+    private boolean enabled;
+
+    @Value("${blobs.migration.batch-size:100}")
+    private int batchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        int trips = migrateTripImages();
+        int users = migrateProfilePictures();
+        if (trips > 0 || users > 0) {
+            logger.info("Imágenes movidas al almacén de archivos: {} viajes, {} fotos de perfil", trips, users);
+        }
+    }
+
+    public int migrateTripImages() {
+        if (!tripImageColumnExists()) {
+            return 0;
+        }
+        int migrated = 0;
+        List<Long> ids;
+        do {
+            ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM trips WHERE image IS NOT NULL ORDER BY id LIMIT ?", Long.class, batchSize);
+            for (Long id : ids) {
+                // De a una imagen por vez para no tener el lote entero en memoria
+                String hash = jdbcTemplate.query("SELECT image FROM trips WHERE id = ?", rs -> {
+                    if (!rs.next()) {
+                        return null;
+                    }
+                    try (InputStream image = rs.getBinaryStream(1)) {
+                        return image != null ? blobStore.store(image) : null;
+                    } catch (IOException e) {
+                        throw new RuntimeException("Error al leer la imagen del viaje " + id, e);
+                    }
+                }, id);
+                jdbcTemplate.update("UPDATE trips SET image_hash = COALESCE(?, image_hash), image = NULL WHERE id = ?",
+                        hash, id);
+                migrated++;
+            }
+        } while (ids.size() == batchSize);
+        return migrated;
+    }
+
+    public int migrateProfilePictures() {
+        int migrated = 0;
+        List<Long> ids;
+        do {
+            ids = jdbcTemplate.queryForList("SELECT id FROM users WHERE profile_picture_url ILIKE 'data:%' "
+                    + "ORDER BY id LIMIT ?", Long.class, batchSize);
+            for (Long id : ids) {
+                String dataUrl = jdbcTemplate.queryForObject(
+                        "SELECT profile_picture_url FROM users WHERE id = ?", String.class, id);
+                String hash;
+                try {
+                    hash = blobStore.storeDataUrl(dataUrl);
+                } catch (IllegalArgumentException e) {
+                    // Data URL que no está en base64: no se puede usar como imagen
+                    logger.warn("Foto de perfil inválida del usuario {}, se descarta", id);
+                    hash = null;
+                }
+                // Solo si no cambió mientras tanto
+                jdbcTemplate.update("UPDATE users SET profile_picture_hash = ?, profile_picture_url = NULL "
+                        + "WHERE id = ? AND profile_picture_url = ?", hash, id, dataUrl);
+                migrated++;
+            }
+        } while (ids.size() == batchSize);
+        return migrated;
+    }
+
+    private boolean tripImageColumnExists() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM information_schema.columns WHERE table_schema = current_schema() "
+                        + "AND table_name = 'trips' AND column_name = 'image')", Boolean.class));
+    }
+}
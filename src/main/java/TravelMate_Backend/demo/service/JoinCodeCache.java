@@ -0,0 +1,111 @@
+package TravelMate_Backend.demo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Cache de código de invitación → id del viaje para {@code TripServices.joinTripByCode}. Los links
+ * de invitación se abren en ráfagas (se comparten en grupos), muchas veces con códigos mal escritos
+ * o de viajes borrados, así que también se guardan los códigos que no existen (entradas negativas,
+ * con un tiempo de vida corto por si el código se crea en otra instancia).
+ *
+ * Los viajes nuevos se agregan después del commit de {@code createTrip} y se quitan al borrarlos.
+ * Una entrada negativa nunca pisa una positiva, así una búsqueda que no encontró el código justo
+ * antes de que se creara no lo esconde. Tamaño máximo LRU.
+ */
+@Component
+public class JoinCodeCache {
+
+    @Value("${trips.join-cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${trips.join-cache.negative-ttl-seconds:30}")
+    private long negativeTtlSeconds;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    /**
+     * Id del viaje con ese código; si no está en el cache lo busca con {@code loader} y guarda el
+     * resultado, también cuando no existe
+     */
+    public Optional<Long> get(String code, Function<String, Optional<Long>> loader) {
+        synchronized (entries) {
+            Entry entry = entries.get(code);
+            if (entry != null && !expired(entry)) {
+                return Optional.ofNullable(entry.tripId);
+            }
+        }
+        Optional<Long> tripId = loader.apply(code);
+        if (tripId.isPresent()) {
+            put(code, tripId.get());
+        } else {
+            putMissing(code);
+        }
+        return tripId;
+    }
+
+    public void putAfterCommit(String code, Long tripId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    put(code, tripId);
+                }
+            });
+        } else {
+            put(code, tripId);
+        }
+    }
+
+    public void put(String code, Long tripId) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(code, new Entry(tripId, System.nanoTime()));
+        }
+    }
+
+    private void putMissing(String code) {
+        if (maxEntries <= 0 || negativeTtlSeconds <= 0) {
+            return;
+        }
+        synchronized (entries) {
+            Entry entry = entries.get(code);
+            if (entry == null || expired(entry)) {
+                entries.put(code, new Entry(null, System.nanoTime()));
+            }
+        }
+    }
+
+    public void evict(String code) {
+        synchronized (entries) {
+            entries.remove(code);
+        }
+    }
+
+    public void evictTrip(Long tripId) {
+        synchronized (entries) {
+            entries.values().removeIf(entry -> tripId.equals(entry.tripId));
+        }
+    }
+
+    private boolean expired(Entry entry) {
+        return entry.tripId == null && System.nanoTime() - entry.cachedAt > negativeTtlSeconds * 1_000_000_000L;
+    }
+
+    private record Entry(Long tripId, long cachedAt) {
+    }
+}
@@ -0,0 +1,148 @@
+package TravelMate_Backend.demo.service;
+
+import TravelMate_Backend.demo.model.Currency;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Acumulador de montos en unidades menores (centavos) con un casillero {@code long} por moneda,
+ * para sumar compras sin crear un {@link BigDecimal} por cada suma. Solo se convierte a
+ * {@code BigDecimal} al armar la respuesta.
+ *
+ * El resultado es idéntico a sumar con {@code BigDecimal.ZERO.add(...)}: también se conserva la
+ * escala más grande de los montos sumados (un total sin montos es {@code BigDecimal.ZERO}).
+ * Si la suma se sale del rango de {@code long} se lanza {@link ArithmeticException}.
+ */
+public final class MoneyAccumulator {
+
+    /** Decimales de las unidades menores (los precios se guardan como numeric(12,2)) */
+    public static final int SCALE = 2;
+
+    private static final Currency[] CURRENCIES = Currency.values();
+    // Casillero extra para montos sin moneda
+    private static final int NO_CURRENCY = CURRENCIES.length;
+
+    private final long[] minorUnits = new long[CURRENCIES.length + 1];
+    private final long[] counts = new long[CURRENCIES.length + 1];
+    // Escala más grande sumada en cada casillero; -1 si no se sumó nada
+    private final int[] scales = new int[CURRENCIES.length + 1];
+
+    public MoneyAccumulator() {
+        Arrays.fill(scales, -1);
+    }
+
+    public void add(Currency currency, BigDecimal amount) {
+        add(currency, amount, 1);
+    }
+
+    /**
+     * Suma un monto que corresponde a {@code count} compras. Un monto {@code null} solo suma al
+     * contador.
+     */
+    public void add(Currency currency, BigDecimal amount, long count) {
+        int slot = slot(currency);
+        if (amount != null) {
+            minorUnits[slot] = addExact(minorUnits[slot], toMinorUnits(amount), currency);
+            scales[slot] = Math.max(scales[slot], Math.max(amount.scale(), 0));
+        } else {
+            scales[slot] = Math.max(scales[slot], 0);
+        }
+        counts[slot] += count;
+    }
+
+    public void addAll(MoneyAccumulator other) {
+        for (int slot = 0; slot < minorUnits.length; slot++) {
+            if (other.scales[slot] < 0) {
+                continue;
+            }
+            minorUnits[slot] = addExact(minorUnits[slot], other.minorUnits[slot],
+                    slot < NO_CURRENCY ? CURRENCIES[slot] : null);
+            scales[slot] = Math.max(scales[slot], other.scales[slot]);
+            counts[slot] += other.counts[slot];
+        }
+    }
+
+    public boolean isEmpty() {
+        for (int scale : scales) {
+            if (scale >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean contains(Currency currency) {
+        return scales[slot(currency)] >= 0;
+    }
+
+    /**
+     * Total de una moneda, o {@code BigDecimal.ZERO} si no se sumó nada en ella
+     */
+    public BigDecimal get(Currency currency) {
+        int slot = slot(currency);
+        return toBigDecimal(minorUnits[slot], scales[slot]);
+    }
+
+    public long getCount(Currency currency) {
+        return counts[slot(currency)];
+    }
+
+    /**
+     * Total de todas las monedas juntas (como se mostraban hasta ahora los totales por viaje)
+     */
+    public BigDecimal total() {
+        long total = 0;
+        int scale = -1;
+        for (int slot = 0; slot < minorUnits.length; slot++) {
+            if (scales[slot] >= 0) {
+                total = addExact(total, minorUnits[slot], null);
+                scale = Math.max(scale, scales[slot]);
+            }
+        }
+        return toBigDecimal(total, scale);
+    }
+
+    public long totalCount() {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * @throws ArithmeticException si el monto tiene fracciones de centavo o no entra en un {@code long}
+     */
+    public static long toMinorUnits(BigDecimal amount) {
+        try {
+            return amount.movePointRight(SCALE).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new ArithmeticException("Monto fuera del rango soportado: " + amount.toPlainString());
+        }
+    }
+
+    /**
+     * Convierte unidades menores al {@code BigDecimal} con la escala dada; con escala negativa (nada
+     * sumado) devuelve {@code BigDecimal.ZERO}
+     */
+    static BigDecimal toBigDecimal(long minorUnits, int scale) {
+        if (scale < 0) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal value = BigDecimal.valueOf(minorUnits, SCALE);
+        return scale == SCALE ? value : value.setScale(scale);
+    }
+
+    private static long addExact(long current, long amount, Currency currency) {
+        try {
+            return Math.addExact(current, amount);
+        } catch (ArithmeticException e) {
+            throw new ArithmeticException("Desbordamiento al acumular montos" + (currency != null ? " en " + currency : ""));
+        }
+    }
+
+    private static int slot(Currency currency) {
+        return currency != null ? currency.ordinal() : NO_CURRENCY;
+    }
+}
@@ -67,6 +67,7 @@ public class OAuth2UserService extends DefaultOAuth2UserService {
                 user.setGoogleId(googleId);
                 user.setProvider(AuthProvider.GOOGLE);
                 user.setProfilePictureUrl(profilePictureUrl);
+                user.setProfilePictureHash(null);
                 user = userRepository.save(user);
             }
         } else {
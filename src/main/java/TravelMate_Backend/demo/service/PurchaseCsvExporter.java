@@ -0,0 +1,143 @@
+package TravelMate_Backend.demo.service;
+
+import TravelMate_Backend.demo.dto.PurchaseResponse;
+import TravelMate_Backend.demo.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Exporta compras a CSV para pasarlas a una planilla o a la contabilidad. Las filas salen del
+ * cursor de {@link PurchaseService#streamPurchases} / {@link PurchaseService#streamUserPurchases}
+ * y se escriben apenas se leen, así ni la lista ni el archivo completo quedan en memoria.
+ *
+ * Cada exportación se valida al pedirla (viaje o usuario inexistente) y devuelve un
+ * {@link CsvExport} que escribe el archivo después, cuando ya se respondió con el encabezado.
+ */
+@Component
+public class PurchaseCsvExporter {
+
+    private static final String HEADER = "id,fecha,viaje_id,viaje,descripcion,tipo,usuario_id,usuario,usuario_email,"
+            + "monto,moneda,creado_por_id,creado_por,creado_por_email,creado_el";
+
+    @Autowired
+    private PurchaseService purchaseService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @FunctionalInterface
+    public interface CsvExport {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Todas las compras del viaje
+     */
+    public CsvExport tripExport(Long tripId) {
+        Map<Long, String> tripNames = new HashMap<>();
+        jdbcTemplate.query("SELECT id, name FROM trips WHERE id = ? AND deleted_at IS NULL",
+                rs -> {
+                    tripNames.put(rs.getLong(1), rs.getString(2));
+                }, tripId);
+        if (tripNames.isEmpty()) {
+            throw new RuntimeException("Viaje no encontrado");
+        }
+        return out -> write(out, tripNames, consumer -> purchaseService.streamPurchases(tripId, null, null, consumer));
+    }
+
+    /**
+     * Las compras que cuentan para el usuario en todos sus viajes
+     */
+    public CsvExport userExport(Long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new RuntimeException("Usuario no encontrado");
+        }
+        // Los nombres de sus viajes se leen antes: son pocos y así no se repiten en cada fila
+        Map<Long, String> tripNames = new HashMap<>();
+        jdbcTemplate.query("SELECT t.id, t.name FROM trips t JOIN users_trip ut ON ut.trip_id = t.id "
+                        + "WHERE ut.user_id = ? AND t.deleted_at IS NULL",
+                rs -> {
+                    tripNames.put(rs.getLong(1), rs.getString(2));
+                }, userId);
+        return out -> write(out, tripNames, consumer -> purchaseService.streamUserPurchases(userId, consumer));
+    }
+
+    private void write(OutputStream out, Map<Long, String> tripNames,
+                       Consumer<Consumer<PurchaseResponse>> purchases) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        // BOM para que las planillas lo abran como UTF-8
+        writer.write('\uFEFF');
+        writer.write(HEADER);
+        writer.write("\r\n");
+        try {
+            purchases.accept(purchase -> {
+                try {
+                    writeRow(writer, purchase, tripNames);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // El cliente cortó la conexión
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private void writeRow(Writer writer, PurchaseResponse purchase, Map<Long, String> tripNames) throws IOException {
+        List<String> cells = List.of(
+                String.valueOf(purchase.getId()),
+                purchase.getPurchaseDate().toString(),
+                String.valueOf(purchase.getTripId()),
+                text(tripNames.get(purchase.getTripId())),
+                text(purchase.getDescription()),
+                Boolean.TRUE.equals(purchase.getIsGeneral()) ? "general" : "individual",
+                purchase.getUserId() != null ? String.valueOf(purchase.getUserId()) : "",
+                text(purchase.getUserName()),
+                text(purchase.getUserEmail()),
+                purchase.getPrice().toPlainString(),
+                purchase.getCurrency().getCode(),
+                purchase.getCreatedBy() != null ? String.valueOf(purchase.getCreatedBy()) : "",
+                text(purchase.getCreatedByName()),
+                text(purchase.getCreatedByEmail()),
+                purchase.getCreatedAt() != null
+                        ? purchase.getCreatedAt().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME)
+                        : "");
+        writer.write(String.join(",", cells));
+        writer.write("\r\n");
+    }
+
+    /**
+     * Texto cargado por los usuarios: entre comillas si hace falta, y sin que una planilla lo pueda
+     * tomar como fórmula
+     */
+    static String text(String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+        if ("=+-@\t\r".indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+}
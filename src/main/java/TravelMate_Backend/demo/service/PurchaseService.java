@@ -1,6 +1,9 @@
 package TravelMate_Backend.demo.service;
 
+import TravelMate_Backend.demo.dto.PurchaseBatchRequest;
+import TravelMate_Backend.demo.dto.PurchaseBatchResponse;
 import TravelMate_Backend.demo.dto.PurchaseCreateRequest;
+import TravelMate_Backend.demo.dto.PurchasePage;
 import TravelMate_Backend.demo.dto.PurchaseResponse;
 import TravelMate_Backend.demo.dto.PurchaseUpdateRequest;
 import TravelMate_Backend.demo.model.*;
@@ -8,25 +11,91 @@ import TravelMate_Backend.demo.repository.PurchaseRepository;
 import TravelMate_Backend.demo.repository.TripRepository;
 import TravelMate_Backend.demo.repository.UserRepository;
 import jakarta.transaction.Transactional;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class PurchaseService {
 
+    // Cursor de la primera página: antes de cualquier compra real
+    private static final LocalDate FIRST_PAGE_DATE = LocalDate.of(9999, 12, 31);
+
+    private static final String STREAM_SELECT = "SELECT p.id, p.trip_id, p.user_id, owner.name AS user_name, " +
+            "owner.email AS user_email, p.description, p.price, p.currency, p.purchase_date, p.is_general, " +
+            "p.created_by, creator.name AS created_by_name, creator.email AS created_by_email, " +
+            "p.created_at, p.updated_at " +
+            "FROM purchase p " +
+            "JOIN trips t ON t.id = p.trip_id AND t.deleted_at IS NULL " +
+            "LEFT JOIN users owner ON owner.id = p.user_id " +
+            "LEFT JOIN users creator ON creator.id = p.created_by ";
+
     @Autowired
     private PurchaseRepository purchaseRepository;
 
     @Autowired
     private TripRepository tripRepository;
 
+    @Autowired
+    private TripMembershipIndex membershipIndex;
+
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserStatsRollupService statsRollupService;
+
+    @Autowired
+    private TripStatsCache tripStatsCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private IdAllocator idAllocator;
+
+    @Autowired
+    private UserSummaryCache userSummaryCache;
+
+    @Autowired
+    private Validator validator;
+
+    @Value("${purchases.batch.max-size:500}")
+    private int maxBatchSize;
+
+    @Value("${purchases.page.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${purchases.page.max-size:200}")
+    private int maxPageSize;
+
+    @Value("${purchases.stream.fetch-size:500}")
+    private int streamFetchSize;
+
     /**
      * Crear compra general del viaje
      */
@@ -49,6 +118,8 @@ public class PurchaseService {
         purchase.setCreatedBy(createdByUserId); // Usuario que creó la compra
 
         purchase = purchaseRepository.save(purchase);
+        statsRollupService.purchaseAdded(purchase);
+        tripStatsCache.invalidateTrip(tripId);
         return convertToResponse(purchase);
     }
 
@@ -67,7 +138,7 @@ public class PurchaseService {
                 .orElseThrow(() -> new RuntimeException("Usuario creador no encontrado"));
 
         // Verificar que el usuario pertenece al viaje
-        boolean userBelongsToTrip = tripRepository.existsByIdAndUsersId(tripId, userId);
+        boolean userBelongsToTrip = membershipIndex.isMember(tripId, userId);
         if (!userBelongsToTrip) {
             throw new RuntimeException("El usuario no pertenece a este viaje");
         }
@@ -83,17 +154,134 @@ public class PurchaseService {
         purchase.setCreatedBy(createdByUserId); // Usuario que creó la compra
 
         purchase = purchaseRepository.save(purchase);
+        statsRollupService.purchaseAdded(purchase);
+        tripStatsCache.invalidateTrip(tripId);
         return convertToResponse(purchase);
     }
 
+    /**
+     * Crear varias compras del viaje de una vez. Se validan todas antes de guardar (la pertenencia
+     * al viaje una vez por usuario distinto) y las válidas se insertan en un solo batch JDBC; las
+     * inválidas se informan en su resultado sin afectar a las demás.
+     */
+    public PurchaseBatchResponse createPurchaseBatch(Long tripId, Long createdByUserId, List<PurchaseBatchRequest.Item> items) {
+        if (items == null || items.isEmpty()) {
+            throw new RuntimeException("La lista de compras es obligatoria");
+        }
+        if (items.size() > maxBatchSize) {
+            throw new RuntimeException("Se pueden crear hasta " + maxBatchSize + " compras por request");
+        }
+        if (!tripRepository.existsById(tripId)) {
+            throw new RuntimeException("Viaje no encontrado");
+        }
+        // Verificar que el usuario creador existe
+        if (!userRepository.existsById(createdByUserId)) {
+            throw new RuntimeException("Usuario creador no encontrado");
+        }
+
+        List<PurchaseBatchResponse.ItemResult> results = new ArrayList<>(items.size());
+        List<Purchase> valid = new ArrayList<>();
+        List<PurchaseBatchResponse.ItemResult> validResults = new ArrayList<>();
+        Map<Long, Boolean> members = new HashMap<>();
+        Trip trip = tripRepository.getReferenceById(tripId);
+        for (int i = 0; i < items.size(); i++) {
+            PurchaseBatchRequest.Item item = items.get(i);
+            PurchaseBatchResponse.ItemResult result = new PurchaseBatchResponse.ItemResult(
+                    i, item != null ? item.getClientId() : null, "rejected", null, null);
+            results.add(result);
+
+            String error = validateBatchItem(item, tripId, members);
+            if (error != null) {
+                result.setMessage(error);
+                continue;
+            }
+            Purchase purchase = new Purchase();
+            purchase.setTrip(trip);
+            purchase.setUser(item.getUserId() != null ? userRepository.getReferenceById(item.getUserId()) : null);
+            purchase.setDescription(item.getDescription());
+            purchase.setPrice(item.getPrice());
+            purchase.setCurrency(item.getCurrency());
+            purchase.setPurchaseDate(item.getPurchaseDate());
+            purchase.setIsGeneral(item.getUserId() == null);
+            purchase.setCreatedBy(createdByUserId);
+            valid.add(purchase);
+            validResults.add(result);
+        }
+
+        insertBatch(valid);
+        for (int i = 0; i < valid.size(); i++) {
+            Purchase purchase = valid.get(i);
+            statsRollupService.purchaseAdded(purchase);
+            validResults.get(i).setStatus("created");
+            validResults.get(i).setPurchaseId(purchase.getId());
+        }
+        if (!valid.isEmpty()) {
+            tripStatsCache.invalidateTrip(tripId);
+        }
+        return new PurchaseBatchResponse(valid.size(), items.size() - valid.size(), results);
+    }
+
+    /**
+     * @return el motivo por el que la compra no se puede crear, o null si es válida
+     */
+    private String validateBatchItem(PurchaseBatchRequest.Item item, Long tripId, Map<Long, Boolean> members) {
+        if (item == null) {
+            return "La compra es obligatoria";
+        }
+        Set<ConstraintViolation<PurchaseBatchRequest.Item>> violations = validator.validate(item);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+        }
+        // Quien está en users_trip existe, no hace falta buscar al usuario
+        if (item.getUserId() != null
+                && !members.computeIfAbsent(item.getUserId(), userId -> membershipIndex.isMember(tripId, userId))) {
+            return "El usuario no pertenece a este viaje";
+        }
+        return null;
+    }
+
+    private void insertBatch(List<Purchase> purchases) {
+        if (purchases.isEmpty()) {
+            return;
+        }
+        long[] ids = idAllocator.reserve("purchase", purchases.size());
+        for (int i = 0; i < purchases.size(); i++) {
+            purchases.get(i).setId(ids[i]);
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO purchase (id, trip_id, user_id, description, price, currency, purchase_date, " +
+                "is_general, created_by, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, now(), now())",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Purchase purchase = purchases.get(i);
+                        ps.setLong(1, purchase.getId());
+                        ps.setLong(2, purchase.getTrip().getId());
+                        ps.setObject(3, purchase.getUser() != null ? purchase.getUser().getId() : null, Types.BIGINT);
+                        ps.setString(4, purchase.getDescription());
+                        ps.setBigDecimal(5, purchase.getPrice());
+                        ps.setString(6, purchase.getCurrency().name());
+                        ps.setObject(7, purchase.getPurchaseDate());
+                        ps.setBoolean(8, purchase.getIsGeneral());
+                        ps.setLong(9, purchase.getCreatedBy());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return purchases.size();
+                    }
+                });
+    }
+
     /**
      * Obtener todas las compras de un viaje
      */
     public List<PurchaseResponse> getAllPurchasesByTrip(Long tripId) {
         List<Purchase> purchases = purchaseRepository.findByTripId(tripId);
-        return purchases.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        return convertToResponses(purchases);
     }
 
     /**
@@ -101,9 +289,7 @@ public class PurchaseService {
      */
     public List<PurchaseResponse> getGeneralPurchases(Long tripId) {
         List<Purchase> purchases = purchaseRepository.findByTripIdAndIsGeneralTrue(tripId);
-        return purchases.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        return convertToResponses(purchases);
     }
 
     /**
@@ -111,9 +297,84 @@ public class PurchaseService {
      */
     public List<PurchaseResponse> getIndividualPurchases(Long tripId, Long userId) {
         List<Purchase> purchases = purchaseRepository.findByTripIdAndUserIdAndIsGeneralFalse(tripId, userId);
-        return purchases.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        return convertToResponses(purchases);
+    }
+
+    /**
+     * Una página de las compras del viaje, de la más reciente a la más vieja por fecha de compra. La
+     * primera página se pide sin cursor; las siguientes con la última compra de la anterior.
+     *
+     * @param general solo las generales (true) o solo las individuales (false); null para todas
+     * @param userId  solo las de ese usuario; null para todas
+     * @param limit   tamaño de la página; null para {@code purchases.page.default-size}
+     */
+    public PurchasePage getPurchasesPage(Long tripId, Boolean general, Long userId,
+                                         LocalDate afterDate, Long afterId, Integer limit) {
+        if ((afterDate == null) != (afterId == null)) {
+            throw new RuntimeException("afterDate y afterId se envían juntos");
+        }
+        int pageSize = Math.max(1, Math.min(limit != null ? limit : defaultPageSize, maxPageSize));
+
+        // Se pide una más para saber si hay otra página
+        List<Purchase> purchases = new ArrayList<>(purchaseRepository.findPageByTripId(tripId, general, userId,
+                afterDate != null ? afterDate : FIRST_PAGE_DATE,
+                afterId != null ? afterId : Long.MAX_VALUE,
+                Limit.of(pageSize + 1)));
+        boolean hasMore = purchases.size() > pageSize;
+        if (hasMore) {
+            purchases.remove(pageSize);
+        }
+
+        Purchase last = hasMore ? purchases.get(purchases.size() - 1) : null;
+        return new PurchasePage(convertToResponses(purchases),
+                last != null ? last.getPurchaseDate() : null, last != null ? last.getId() : null, hasMore);
+    }
+
+    /**
+     * Recorre las compras del viaje en el mismo orden que {@link #getPurchasesPage} sin cargarlas
+     * todas: se leen de a {@code purchases.stream.fetch-size} filas con un cursor de la base, ya con
+     * los nombres del dueño y del creador, y cada una se pasa a {@code consumer} apenas se lee.
+     *
+     * @param general solo las generales (true) o solo las individuales (false); null para todas
+     * @param userId  solo las de ese usuario; null para todas
+     */
+    public void streamPurchases(Long tripId, Boolean general, Long userId, Consumer<PurchaseResponse> consumer) {
+        StringBuilder sql = new StringBuilder(STREAM_SELECT).append("WHERE p.trip_id = ? ");
+        List<Object> params = new ArrayList<>(List.of(tripId));
+        if (general != null) {
+            sql.append("AND p.is_general = ? ");
+            params.add(general);
+        }
+        if (userId != null) {
+            sql.append("AND p.user_id = ? ");
+            params.add(userId);
+        }
+        stream(sql, params, consumer);
+    }
+
+    /**
+     * Como {@link #streamPurchases}, con las compras que cuentan para el usuario en todos sus viajes:
+     * las generales y las individuales suyas (las mismas que usan sus estadísticas)
+     */
+    public void streamUserPurchases(Long userId, Consumer<PurchaseResponse> consumer) {
+        StringBuilder sql = new StringBuilder(STREAM_SELECT)
+                .append("JOIN users_trip ut ON ut.trip_id = p.trip_id AND ut.user_id = ? ")
+                .append("WHERE (p.is_general OR p.user_id = ?) ");
+        stream(sql, List.of(userId, userId), consumer);
+    }
+
+    private void stream(StringBuilder sql, List<Object> params, Consumer<PurchaseResponse> consumer) {
+        sql.append("ORDER BY p.purchase_date DESC, p.id DESC");
+
+        // El cursor solo se usa dentro de una transacción (la de la clase)
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql.toString());
+            ps.setFetchSize(streamFetchSize);
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(mapStreamedPurchase(rs)));
     }
 
     /**
@@ -139,12 +400,15 @@ public class PurchaseService {
             throw new RuntimeException("Esta compra no es una compra general");
         }
 
+        statsRollupService.purchaseRemoved(purchase);
         purchase.setDescription(request.getDescription());
         purchase.setPrice(request.getPrice());
         purchase.setCurrency(request.getCurrency());
         purchase.setPurchaseDate(request.getPurchaseDate());
 
         purchase = purchaseRepository.save(purchase);
+        statsRollupService.purchaseAdded(purchase);
+        tripStatsCache.invalidateTrip(tripId);
         return convertToResponse(purchase);
     }
 
@@ -170,12 +434,15 @@ public class PurchaseService {
             throw new RuntimeException("Esta compra no pertenece al usuario especificado");
         }
 
+        statsRollupService.purchaseRemoved(purchase);
         purchase.setDescription(request.getDescription());
         purchase.setPrice(request.getPrice());
         purchase.setCurrency(request.getCurrency());
         purchase.setPurchaseDate(request.getPurchaseDate());
 
         purchase = purchaseRepository.save(purchase);
+        statsRollupService.purchaseAdded(purchase);
+        tripStatsCache.invalidateTrip(tripId);
         return convertToResponse(purchase);
     }
 
@@ -185,49 +452,93 @@ public class PurchaseService {
     public void deletePurchase(Long tripId, Long purchaseId) {
         Purchase purchase = purchaseRepository.findByIdAndTripId(purchaseId, tripId)
                 .orElseThrow(() -> new RuntimeException("Compra no encontrada"));
+        statsRollupService.purchaseRemoved(purchase);
         purchaseRepository.delete(purchase);
+        tripStatsCache.invalidateTrip(tripId);
+    }
+
+    private PurchaseResponse mapStreamedPurchase(ResultSet rs) throws SQLException {
+        PurchaseResponse response = new PurchaseResponse();
+        response.setId(rs.getLong("id"));
+        response.setTripId(rs.getLong("trip_id"));
+        response.setUserId(rs.getObject("user_id", Long.class));
+        response.setUserName(rs.getString("user_name"));
+        response.setUserEmail(rs.getString("user_email"));
+        response.setDescription(rs.getString("description"));
+        response.setPrice(rs.getBigDecimal("price"));
+        Currency currency = Currency.valueOf(rs.getString("currency"));
+        response.setCurrency(currency);
+        response.setCurrencySymbol(currency.getSymbol());
+        response.setPurchaseDate(rs.getObject("purchase_date", LocalDate.class));
+        response.setIsGeneral(rs.getBoolean("is_general"));
+        response.setCreatedBy(rs.getObject("created_by", Long.class));
+        response.setCreatedByName(rs.getString("created_by_name"));
+        response.setCreatedByEmail(rs.getString("created_by_email"));
+        response.setCreatedAt(toZonedDateTime(rs.getObject("created_at", OffsetDateTime.class)));
+        response.setUpdatedAt(toZonedDateTime(rs.getObject("updated_at", OffsetDateTime.class)));
+        return response;
+    }
+
+    private static ZonedDateTime toZonedDateTime(OffsetDateTime value) {
+        return value != null ? value.atZoneSameInstant(ZoneId.systemDefault()) : null;
     }
 
     /**
      * Convertir Purchase a PurchaseResponse
      */
     private PurchaseResponse convertToResponse(Purchase purchase) {
-        PurchaseResponse response = new PurchaseResponse();
-        response.setId(purchase.getId());
-        response.setTripId(purchase.getTrip().getId());
-        response.setDescription(purchase.getDescription());
-        response.setPrice(purchase.getPrice());
-        response.setCurrency(purchase.getCurrency());
-        response.setCurrencySymbol(purchase.getCurrency().getSymbol());
-        response.setPurchaseDate(purchase.getPurchaseDate());
-        response.setIsGeneral(purchase.getIsGeneral());
-        response.setCreatedBy(purchase.getCreatedBy());
-        response.setCreatedAt(purchase.getCreatedAt());
-        response.setUpdatedAt(purchase.getUpdatedAt());
-
-        // Información del usuario dueño de la compra (si es individual)
-        if (purchase.getUser() != null) {
-            response.setUserId(purchase.getUser().getId());
-            response.setUserName(purchase.getUser().getName());
-            response.setUserEmail(purchase.getUser().getEmail());
-        }
-
-        // Información del usuario que creó la compra
-        if (purchase.getCreatedBy() != null) {
-            try {
-                User createdByUser = userRepository.findById(purchase.getCreatedBy())
-                        .orElse(null);
-                if (createdByUser != null) {
-                    response.setCreatedByName(createdByUser.getName());
-                    response.setCreatedByEmail(createdByUser.getEmail());
-                }
-            } catch (Exception e) {
-                // Si no se puede obtener el usuario, simplemente no se asigna
-                // El createdBy ya está asignado arriba
+        return convertToResponses(List.of(purchase)).get(0);
+    }
+
+    /**
+     * Convertir varias compras. Los nombres y emails del dueño y del creador salen de
+     * {@link UserSummaryCache}, con una sola búsqueda para los usuarios que no estén cargados.
+     */
+    private List<PurchaseResponse> convertToResponses(List<Purchase> purchases) {
+        Set<Long> userIds = new HashSet<>();
+        for (Purchase purchase : purchases) {
+            // getId() del proxy de User no lo inicializa
+            if (purchase.getUser() != null) {
+                userIds.add(purchase.getUser().getId());
             }
+            userIds.add(purchase.getCreatedBy());
         }
+        Map<Long, UserSummaryCache.UserSummary> users = userSummaryCache.getAll(userIds);
+
+        List<PurchaseResponse> responses = new ArrayList<>(purchases.size());
+        for (Purchase purchase : purchases) {
+            PurchaseResponse response = new PurchaseResponse();
+            response.setId(purchase.getId());
+            response.setTripId(purchase.getTrip().getId());
+            response.setDescription(purchase.getDescription());
+            response.setPrice(purchase.getPrice());
+            response.setCurrency(purchase.getCurrency());
+            response.setCurrencySymbol(purchase.getCurrency().getSymbol());
+            response.setPurchaseDate(purchase.getPurchaseDate());
+            response.setIsGeneral(purchase.getIsGeneral());
+            response.setCreatedBy(purchase.getCreatedBy());
+            response.setCreatedAt(purchase.getCreatedAt());
+            response.setUpdatedAt(purchase.getUpdatedAt());
+
+            // Información del usuario dueño de la compra (si es individual)
+            if (purchase.getUser() != null) {
+                response.setUserId(purchase.getUser().getId());
+                UserSummaryCache.UserSummary owner = users.get(purchase.getUser().getId());
+                if (owner != null) {
+                    response.setUserName(owner.name());
+                    response.setUserEmail(owner.email());
+                }
+            }
 
-        return response;
+            // Información del usuario que creó la compra (si ya no existe, solo queda el id)
+            UserSummaryCache.UserSummary creator = users.get(purchase.getCreatedBy());
+            if (creator != null) {
+                response.setCreatedByName(creator.name());
+                response.setCreatedByEmail(creator.email());
+            }
+            responses.add(response);
+        }
+        return responses;
     }
 }
 
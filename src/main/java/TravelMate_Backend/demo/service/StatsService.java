@@ -8,24 +8,39 @@ import TravelMate_Backend.demo.repository.*;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
-import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class StatsService {
 
+    // Cantidad de días en el top de días más gastados de un viaje
+    private static final int TOP_EXPENSIVE_DAYS = 5;
+
     @Autowired
     private TripRepository tripRepository;
 
+    @Autowired
+    private TripMembershipIndex membershipIndex;
+
     @Autowired
     private PurchaseRepository purchaseRepository;
 
@@ -38,10 +53,47 @@ public class StatsService {
     @Autowired
     private TipRepository tipRepository;
 
+    @Autowired
+    private UserStatsRollupService statsRollupService;
+
+    @Autowired
+    private TripStatsCache tripStatsCache;
+
+    @Autowired
+    private TripDestinationLoader tripDestinationLoader;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("statsExecutor")
+    private ExecutorService statsExecutor;
+
+    @Value("${stats.expenses.aggregate-in-db:true}")
+    private boolean aggregateExpensesInDb;
+
+    @Value("${stats.parallel.enabled:false}")
+    private boolean parallelExecution;
+
+    @Value("${stats.parallel.timeout-ms:5000}")
+    private long parallelTimeoutMs;
+
+    @Value("${stats.parallel.partial-results:false}")
+    private boolean partialResults;
+
     @PersistenceContext
     private EntityManager entityManager;
 
     public UserStatsResponse getUserStats(Long userId) {
+        return getUserStats(userId, UserStatsSection.all());
+    }
+
+    /**
+     * Calcula solo las secciones pedidas. Los datos que ninguna de ellas necesita (destinos,
+     * compras, participantes, tips) no se cargan, y los campos de las demás secciones quedan en
+     * {@code null}.
+     */
+    public UserStatsResponse getUserStats(Long userId, Set<UserStatsSection> sections) {
         // Verificar que el usuario existe
         userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
@@ -53,134 +105,152 @@ public class StatsService {
             return createEmptyStats();
         }
 
-        // Inicializar relaciones lazy para evitar problemas
-        for (Trip trip : userTrips) {
-            try {
-                Hibernate.initialize(trip.getTripDestinations());
-                if (trip.getTripDestinations() != null) {
-                    for (TripDestination td : trip.getTripDestinations()) {
-                        Hibernate.initialize(td.getDestination());
+        UserStatsSnapshot snapshot = buildSnapshot(userTrips, userId, UserStatsSection.requiredSources(sections));
+
+        if (parallelExecution && sections.size() > 1) {
+            return calculateSectionsInParallel(sections, snapshot);
+        }
+
+        UserStatsResponse stats = new UserStatsResponse();
+        for (UserStatsSection section : sections) {
+            calculateSection(section, snapshot, stats);
+        }
+        return stats;
+    }
+
+    /**
+     * Corre cada sección en {@code statsExecutor} sobre su propio {@link UserStatsResponse} y después
+     * junta los resultados en el hilo del request. Si se vence {@code stats.parallel.timeout-ms}
+     * falla el request, salvo con {@code stats.parallel.partial-results}, donde las secciones que no
+     * terminaron quedan afuera y se listan en {@code incompleteSections}.
+     */
+    private UserStatsResponse calculateSectionsInParallel(Set<UserStatsSection> sections, UserStatsSnapshot snapshot) {
+        Map<UserStatsSection, Future<UserStatsResponse>> futures = new EnumMap<>(UserStatsSection.class);
+        for (UserStatsSection section : sections) {
+            futures.put(section, statsExecutor.submit(() -> {
+                UserStatsResponse partial = new UserStatsResponse();
+                calculateSection(section, snapshot, partial);
+                return partial;
+            }));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(parallelTimeoutMs);
+        UserStatsResponse stats = new UserStatsResponse();
+        List<String> incompleteSections = new ArrayList<>();
+        try {
+            for (Map.Entry<UserStatsSection, Future<UserStatsResponse>> entry : futures.entrySet()) {
+                try {
+                    UserStatsResponse partial = entry.getValue().get(
+                            Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    entry.getKey().mergeInto(partial, stats);
+                } catch (TimeoutException e) {
+                    if (!partialResults) {
+                        throw new RuntimeException("Tiempo de espera agotado al calcular las estadísticas");
                     }
+                    entry.getValue().cancel(true);
+                    incompleteSections.add(entry.getKey().getKey());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException runtimeException) {
+                        throw runtimeException;
+                    }
+                    throw new RuntimeException("Error al calcular estadísticas: " + e.getCause().getMessage(), e.getCause());
                 }
-            } catch (Exception e) {
-                System.out.println("Error al inicializar relaciones del viaje " + trip.getId() + ": " + e.getMessage());
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Cálculo de estadísticas interrumpido");
+        } finally {
+            futures.values().forEach(future -> future.cancel(true));
         }
 
-        UserStatsResponse stats = new UserStatsResponse();
+        if (!incompleteSections.isEmpty()) {
+            stats.setIncompleteSections(incompleteSections);
+        }
+        return stats;
+    }
 
-        // Estadísticas generales de viajes
+    private void calculateSection(UserStatsSection section, UserStatsSnapshot snapshot, UserStatsResponse stats) {
+        List<UserStatsSnapshot.TripData> userTrips = snapshot.trips();
+        UserExpenseIndex expenseIndex = snapshot.expenses();
+        switch (section) {
+            // Estadísticas generales de viajes
+            case SUMMARY -> calculateSummaryStats(userTrips, stats);
+            // Estadísticas de gastos
+            case EXPENSES -> calculateExpenseStats(userTrips, expenseIndex, stats);
+            // Estadísticas de destinos
+            case DESTINATIONS -> calculateDestinationStats(userTrips, stats);
+            // Estadísticas mensuales
+            case MONTHLY -> calculateMonthlyStats(userTrips, expenseIndex, stats);
+            // Top viajes más costosos
+            case TOP_TRIPS -> calculateTopExpensiveTrips(userTrips, expenseIndex, stats);
+            // Total de participantes (suma de todos los participantes de todos los viajes)
+            case PARTICIPANTS -> stats.setTotalParticipants(snapshot.participantsByTrip().values().stream()
+                    .mapToLong(Long::longValue)
+                    .sum());
+            // ALTA PRIORIDAD - Nuevas estadísticas
+            // 1. Distribución de gastos por moneda
+            case CURRENCIES -> calculateExpensesByCurrency(expenseIndex, stats);
+            // 2. Distribución de países visitados
+            case COUNTRIES -> calculateCountriesVisited(userTrips, stats);
+            // 3. Estadísticas de Tips
+            case TIPS -> calculateTipStats(userTrips, snapshot.tipsByTrip(), stats);
+            // 4. Gastos anuales
+            case YEARLY -> calculateYearlyExpenses(userTrips, expenseIndex, stats);
+            // 5. Duración de viajes
+            case DURATION -> calculateTripDurationStats(userTrips, stats);
+            // MEDIA PRIORIDAD - Nuevas estadísticas
+            // 6. Distribución de modos de transporte
+            case TRANSPORT -> calculateTransportModeStats(userTrips, stats);
+            // 7. Gastos generales vs individuales
+            case GENERAL_VS_INDIVIDUAL -> calculateGeneralVsIndividualExpenses(expenseIndex, stats);
+            // 8. Top destinos extendido
+            case TOP_DESTINATIONS -> calculateTopDestinations(userTrips, stats);
+            // 9. Evolución temporal de gastos
+            case TEMPORAL -> calculateTemporalExpenses(expenseIndex, stats);
+        }
+    }
+
+    private void calculateSummaryStats(List<UserStatsSnapshot.TripData> userTrips, UserStatsResponse stats) {
         stats.setTotalTrips((long) userTrips.size());
         stats.setCompletedTrips(userTrips.stream()
-                .filter(t -> "completed".equalsIgnoreCase(determineStatus(t)))
+                .filter(t -> "completed".equalsIgnoreCase(determineStatus(t.dateI(), t.dateF())))
                 .count());
         stats.setPlanningTrips(userTrips.stream()
-                .filter(t -> "planning".equalsIgnoreCase(determineStatus(t)))
+                .filter(t -> "planning".equalsIgnoreCase(determineStatus(t.dateI(), t.dateF())))
                 .count());
         stats.setActiveTrips(userTrips.stream()
-                .filter(t -> "active".equalsIgnoreCase(determineStatus(t)))
+                .filter(t -> "active".equalsIgnoreCase(determineStatus(t.dateI(), t.dateF())))
                 .count());
 
         // Calcular días totales viajados
         long totalDays = userTrips.stream()
                 .mapToLong(trip -> {
-                    if (trip.getDateI() != null && trip.getDateF() != null) {
-                        return java.time.temporal.ChronoUnit.DAYS.between(trip.getDateI(), trip.getDateF()) + 1;
+                    if (trip.dateI() != null && trip.dateF() != null) {
+                        return java.time.temporal.ChronoUnit.DAYS.between(trip.dateI(), trip.dateF()) + 1;
                     }
                     return 0;
                 })
                 .sum();
         stats.setTotalDaysTraveled(totalDays);
-
-        // Estadísticas de gastos
-        calculateExpenseStats(userTrips, userId, stats);
-
-        // Estadísticas de destinos
-        calculateDestinationStats(userTrips, stats);
-
-        // Estadísticas mensuales
-        calculateMonthlyStats(userTrips, userId, stats);
-
-        // Top viajes más costosos
-        calculateTopExpensiveTrips(userTrips, userId, stats);
-
-        // Total de participantes (suma de todos los participantes de todos los viajes)
-        //Todo arreglar con metodo de participantes
-        stats.setTotalParticipants(userTrips.stream()
-                .mapToLong(trip -> {
-                    try {
-                        return trip.getUsers() != null ? trip.getUsers().size() : 0;
-                    } catch (Exception e) {
-                        return 0;
-                    }
-                })
-                .sum());
-
-        // ALTA PRIORIDAD - Nuevas estadísticas
-        // 1. Distribución de gastos por moneda
-        calculateExpensesByCurrency(userTrips, userId, stats);
-        
-        // 2. Distribución de países visitados
-        calculateCountriesVisited(userTrips, stats);
-        
-        // 3. Estadísticas de Tips
-        calculateTipStats(userTrips, stats);
-        
-        // 4. Gastos anuales
-        calculateYearlyExpenses(userTrips, userId, stats);
-        
-        // 5. Duración de viajes
-        calculateTripDurationStats(userTrips, stats);
-        
-        // MEDIA PRIORIDAD - Nuevas estadísticas
-        // 6. Distribución de modos de transporte
-        calculateTransportModeStats(userTrips, stats);
-        
-        // 7. Gastos generales vs individuales
-        calculateGeneralVsIndividualExpenses(userTrips, userId, stats);
-        
-        // 8. Top destinos extendido
-        calculateTopDestinations(userTrips, stats);
-        
-        // 9. Evolución temporal de gastos
-        calculateTemporalExpenses(userTrips, userId, stats);
-
-        return stats;
     }
 
-    private void calculateExpenseStats(List<Trip> trips, Long userId, UserStatsResponse stats) {
+    private void calculateExpenseStats(List<UserStatsSnapshot.TripData> trips, UserExpenseIndex expenseIndex,
+                                       UserStatsResponse stats) {
         BigDecimal totalSpent = BigDecimal.ZERO;
         Map<Long, BigDecimal> tripExpenses = new HashMap<>();
         Map<Long, String> tripNames = new HashMap<>();
         Map<Long, TravelMate_Backend.demo.model.Currency> tripCurrencies = new HashMap<>();
 
-        for (Trip trip : trips) {
-            // Obtener todas las compras del viaje (generales e individuales del usuario)
-            List<Purchase> generalPurchases = purchaseRepository.findByTripIdAndIsGeneralTrue(trip.getId());
-            List<Purchase> individualPurchases = purchaseRepository.findByTripIdAndUserIdAndIsGeneralFalse(trip.getId(), userId);
+        for (UserStatsSnapshot.TripData trip : trips) {
+            // Compras generales del viaje + individuales del usuario
+            BigDecimal tripTotal = expenseIndex.getTripTotal(trip.id());
+            TravelMate_Backend.demo.model.Currency tripCurrency = expenseIndex.hasPurchases(trip.id())
+                    ? expenseIndex.getTripCurrency(trip.id())
+                    : TravelMate_Backend.demo.model.Currency.PESOS; // Default
 
-            BigDecimal tripTotal = BigDecimal.ZERO;
-            TravelMate_Backend.demo.model.Currency tripCurrency = TravelMate_Backend.demo.model.Currency.PESOS; // Default
-
-            // Sumar compras generales
-            for (Purchase purchase : generalPurchases) {
-                tripTotal = tripTotal.add(purchase.getPrice());
-                if (purchase.getCurrency() != null) {
-                    tripCurrency = purchase.getCurrency();
-                }
-            }
-
-            // Sumar compras individuales del usuario
-            for (Purchase purchase : individualPurchases) {
-                tripTotal = tripTotal.add(purchase.getPrice());
-                if (purchase.getCurrency() != null) {
-                    tripCurrency = purchase.getCurrency();
-                }
-            }
-
-            tripExpenses.put(trip.getId(), tripTotal);
-            tripNames.put(trip.getId(), trip.getName());
-            tripCurrencies.put(trip.getId(), tripCurrency);
+            tripExpenses.put(trip.id(), tripTotal);
+            tripNames.put(trip.id(), trip.name());
+            tripCurrencies.put(trip.id(), tripCurrency);
             totalSpent = totalSpent.add(tripTotal);
         }
 
@@ -207,31 +277,26 @@ public class StatsService {
         }
     }
 
-    private void calculateDestinationStats(List<Trip> trips, UserStatsResponse stats) {
+    private void calculateDestinationStats(List<UserStatsSnapshot.TripData> trips, UserStatsResponse stats) {
         Map<String, Long> destinationCount = new HashMap<>();
 
-        for (Trip trip : trips) {
+        for (UserStatsSnapshot.TripData trip : trips) {
             String destination = null;
             
             // Intentar obtener el destino desde TripDestination
-            try {
-                if (trip.getTripDestinations() != null && !trip.getTripDestinations().isEmpty()) {
-                    // Obtener el primer destino (puede haber múltiples)
-                    TripDestination tripDestination = trip.getTripDestinations().iterator().next();
-                    if (tripDestination != null && tripDestination.getDestination() != null) {
-                        destination = tripDestination.getDestination().getName();
-                    } else if (tripDestination != null && tripDestination.getDestinationAddress() != null) {
-                        destination = tripDestination.getDestinationAddress();
-                    }
+            if (!trip.destinations().isEmpty()) {
+                // Obtener el primer destino (puede haber múltiples)
+                UserStatsSnapshot.DestinationData tripDestination = trip.destinations().get(0);
+                if (tripDestination.name() != null) {
+                    destination = tripDestination.name();
+                } else if (tripDestination.address() != null) {
+                    destination = tripDestination.address();
                 }
-            } catch (Exception e) {
-                // Si hay error al acceder a la relación, usar el nombre del viaje
-                System.out.println("Error al obtener destino del viaje " + trip.getId() + ": " + e.getMessage());
             }
             
             // Fallback al nombre del viaje si no se encontró destino
             if (destination == null || destination.isEmpty()) {
-                destination = trip.getName();
+                destination = trip.name();
             }
             
             if (destination != null && !destination.isEmpty()) {
@@ -251,43 +316,30 @@ public class StatsService {
         }
     }
 
-    private void calculateMonthlyStats(List<Trip> trips, Long userId, UserStatsResponse stats) {
+    private void calculateMonthlyStats(List<UserStatsSnapshot.TripData> trips, UserExpenseIndex expenseIndex,
+                                       UserStatsResponse stats) {
         Map<String, Long> monthlyTripCount = new HashMap<>();
-        Map<String, BigDecimal> monthlyExpense = new HashMap<>();
+        Map<String, MoneyAccumulator> monthlyExpense = new HashMap<>();
         Map<String, TravelMate_Backend.demo.model.Currency> monthlyCurrency = new HashMap<>();
 
         DateTimeFormatter monthFormatter = DateTimeFormatter.ofPattern("yyyy-MM");
         DateTimeFormatter displayFormatter = DateTimeFormatter.ofPattern("MMMM yyyy", new Locale("es", "ES"));
 
-        for (Trip trip : trips) {
-            if (trip.getDateI() != null) {
-                String monthKey = trip.getDateI().format(monthFormatter);
-                String monthDisplay = trip.getDateI().format(displayFormatter);
+        for (UserStatsSnapshot.TripData trip : trips) {
+            if (trip.dateI() != null) {
+                String monthKey = trip.dateI().format(monthFormatter);
+                String monthDisplay = trip.dateI().format(displayFormatter);
                 
                 monthlyTripCount.put(monthKey, monthlyTripCount.getOrDefault(monthKey, 0L) + 1);
 
-                // Calcular gastos del mes
-                List<Purchase> generalPurchases = purchaseRepository.findByTripIdAndIsGeneralTrue(trip.getId());
-                List<Purchase> individualPurchases = purchaseRepository.findByTripIdAndUserIdAndIsGeneralFalse(trip.getId(), userId);
-
-                BigDecimal monthTotal = monthlyExpense.getOrDefault(monthKey, BigDecimal.ZERO);
+                // Calcular gastos del mes (en centavos; se convierte al armar la respuesta)
+                expenseIndex.addTripAmountsTo(trip.id(),
+                        monthlyExpense.computeIfAbsent(monthKey, key -> new MoneyAccumulator()));
                 TravelMate_Backend.demo.model.Currency currentMonthCurrency = monthlyCurrency.getOrDefault(monthKey, TravelMate_Backend.demo.model.Currency.PESOS);
-
-                for (Purchase purchase : generalPurchases) {
-                    monthTotal = monthTotal.add(purchase.getPrice());
-                    if (purchase.getCurrency() != null) {
-                        currentMonthCurrency = purchase.getCurrency();
-                    }
-                }
-
-                for (Purchase purchase : individualPurchases) {
-                    monthTotal = monthTotal.add(purchase.getPrice());
-                    if (purchase.getCurrency() != null) {
-                        currentMonthCurrency = purchase.getCurrency();
-                    }
+                if (expenseIndex.hasPurchases(trip.id())) {
+                    currentMonthCurrency = expenseIndex.getTripCurrency(trip.id());
                 }
 
-                monthlyExpense.put(monthKey, monthTotal);
                 monthlyCurrency.put(monthKey, currentMonthCurrency);
             }
         }
@@ -320,7 +372,7 @@ public class StatsService {
                     } catch (Exception e) {
                         monthly.setMonthName(entry.getKey());
                     }
-                    monthly.setTotalExpense(entry.getValue());
+                    monthly.setTotalExpense(entry.getValue().total());
                     monthly.setCurrency(monthlyCurrency.getOrDefault(entry.getKey(), TravelMate_Backend.demo.model.Currency.PESOS).name());
                     return monthly;
                 })
@@ -330,36 +382,19 @@ public class StatsService {
         stats.setMonthlyExpenses(monthlyExpenses);
     }
 
-    private void calculateTopExpensiveTrips(List<Trip> trips, Long userId, UserStatsResponse stats) {
+    private void calculateTopExpensiveTrips(List<UserStatsSnapshot.TripData> trips, UserExpenseIndex expenseIndex,
+                                            UserStatsResponse stats) {
         List<UserStatsResponse.TripExpense> tripExpenses = new ArrayList<>();
 
-        for (Trip trip : trips) {
-            List<Purchase> generalPurchases = purchaseRepository.findByTripIdAndIsGeneralTrue(trip.getId());
-            List<Purchase> individualPurchases = purchaseRepository.findByTripIdAndUserIdAndIsGeneralFalse(trip.getId(), userId);
-
-            BigDecimal tripTotal = BigDecimal.ZERO;
-            TravelMate_Backend.demo.model.Currency tripCurrency = TravelMate_Backend.demo.model.Currency.PESOS;
-
-            for (Purchase purchase : generalPurchases) {
-                tripTotal = tripTotal.add(purchase.getPrice());
-                if (purchase.getCurrency() != null) {
-                    tripCurrency = purchase.getCurrency();
-                }
-            }
-
-            for (Purchase purchase : individualPurchases) {
-                tripTotal = tripTotal.add(purchase.getPrice());
-                if (purchase.getCurrency() != null) {
-                    tripCurrency = purchase.getCurrency();
-                }
-            }
+        for (UserStatsSnapshot.TripData trip : trips) {
+            BigDecimal tripTotal = expenseIndex.getTripTotal(trip.id());
 
             if (tripTotal.compareTo(BigDecimal.ZERO) > 0) {
                 UserStatsResponse.TripExpense tripExpense = new UserStatsResponse.TripExpense();
-                tripExpense.setTripId(trip.getId());
-                tripExpense.setTripName(trip.getName());
+                tripExpense.setTripId(trip.id());
+                tripExpense.setTripName(trip.name());
                 tripExpense.setTotalExpense(tripTotal);
-                tripExpense.setCurrency(tripCurrency.name());
+                tripExpense.setCurrency(expenseIndex.getTripCurrency(trip.id()).name());
                 tripExpenses.add(tripExpense);
             }
         }
@@ -374,28 +409,9 @@ public class StatsService {
     /**
      * 1. Distribución de gastos por moneda
      */
-    private void calculateExpensesByCurrency(List<Trip> trips, Long userId, UserStatsResponse stats) {
-        Map<TravelMate_Backend.demo.model.Currency, BigDecimal> expensesByCurrency = new HashMap<>();
-        Map<TravelMate_Backend.demo.model.Currency, Long> purchaseCountByCurrency = new HashMap<>();
-        
-        for (Trip trip : trips) {
-            List<Purchase> generalPurchases = purchaseRepository.findByTripIdAndIsGeneralTrue(trip.getId());
-            List<Purchase> individualPurchases = purchaseRepository.findByTripIdAndUserIdAndIsGeneralFalse(trip.getId(), userId);
-            
-            List<Purchase> allPurchases = new ArrayList<>();
-            allPurchases.addAll(generalPurchases);
-            allPurchases.addAll(individualPurchases);
-            
-            for (Purchase purchase : allPurchases) {
-                TravelMate_Backend.demo.model.Currency currency = purchase.getCurrency();
-                if (currency != null) {
-                    expensesByCurrency.put(currency, 
-                        expensesByCurrency.getOrDefault(currency, BigDecimal.ZERO).add(purchase.getPrice()));
-                    purchaseCountByCurrency.put(currency, 
-                        purchaseCountByCurrency.getOrDefault(currency, 0L) + 1);
-                }
-            }
-        }
+    private void calculateExpensesByCurrency(UserExpenseIndex expenseIndex, UserStatsResponse stats) {
+        Map<TravelMate_Backend.demo.model.Currency, BigDecimal> expensesByCurrency = expenseIndex.getTotalByCurrency();
+        Map<TravelMate_Backend.demo.model.Currency, Long> purchaseCountByCurrency = expenseIndex.getCountByCurrency();
         
         List<UserStatsResponse.CurrencyExpenseStats> currencyStats = expensesByCurrency.entrySet().stream()
                 .map(entry -> {
@@ -417,21 +433,15 @@ public class StatsService {
     /**
      * 2. Distribución de países visitados
      */
-    private void calculateCountriesVisited(List<Trip> trips, UserStatsResponse stats) {
+    private void calculateCountriesVisited(List<UserStatsSnapshot.TripData> trips, UserStatsResponse stats) {
         Map<String, Long> countryCount = new HashMap<>();
         
-        for (Trip trip : trips) {
-            try {
-                if (trip.getTripDestinations() != null && !trip.getTripDestinations().isEmpty()) {
-                    for (TripDestination td : trip.getTripDestinations()) {
-                        if (td.getDestination() != null && td.getDestination().getCountry() != null) {
-                            String country = td.getDestination().getCountry();
-                            countryCount.put(country, countryCount.getOrDefault(country, 0L) + 1);
-                        }
-                    }
+        for (UserStatsSnapshot.TripData trip : trips) {
+            for (UserStatsSnapshot.DestinationData td : trip.destinations()) {
+                if (td.country() != null) {
+                    String country = td.country();
+                    countryCount.put(country, countryCount.getOrDefault(country, 0L) + 1);
                 }
-            } catch (Exception e) {
-                System.out.println("Error al obtener países del viaje " + trip.getId() + ": " + e.getMessage());
             }
         }
         
@@ -451,33 +461,30 @@ public class StatsService {
     /**
      * 3. Estadísticas de Tips
      */
-    private void calculateTipStats(List<Trip> trips, UserStatsResponse stats) {
-        List<Tip> allTips = new ArrayList<>();
+    private void calculateTipStats(List<UserStatsSnapshot.TripData> trips,
+                                   Map<Long, List<UserStatsSnapshot.TipData>> tipsByTrip, UserStatsResponse stats) {
+        List<UserStatsSnapshot.TipData> allTips = new ArrayList<>();
         Map<String, Long> tipsByType = new HashMap<>();
         Map<String, List<Double>> ratingsByType = new HashMap<>();
         Map<String, String> iconByType = new HashMap<>();
         
-        for (Trip trip : trips) {
-            try {
-                List<Tip> tripTips = tipRepository.findByTripIdOrderByCreatedAtDesc(trip.getId());
-                allTips.addAll(tripTips);
-                
-                for (Tip tip : tripTips) {
-                    String tipType = tip.getTipType();
-                    if (tipType != null && !tipType.isEmpty()) {
-                        tipsByType.put(tipType, tipsByType.getOrDefault(tipType, 0L) + 1);
-                        
-                        if (tip.getRating() != null) {
-                            ratingsByType.computeIfAbsent(tipType, k -> new ArrayList<>()).add(tip.getRating());
-                        }
-                        
-                        if (tip.getTipIcon() != null && !iconByType.containsKey(tipType)) {
-                            iconByType.put(tipType, tip.getTipIcon());
-                        }
+        for (UserStatsSnapshot.TripData trip : trips) {
+            List<UserStatsSnapshot.TipData> tripTips = tipsByTrip.getOrDefault(trip.id(), Collections.emptyList());
+            allTips.addAll(tripTips);
+
+            for (UserStatsSnapshot.TipData tip : tripTips) {
+                String tipType = tip.tipType();
+                if (tipType != null && !tipType.isEmpty()) {
+                    tipsByType.put(tipType, tipsByType.getOrDefault(tipType, 0L) + 1);
+
+                    if (tip.rating() != null) {
+                        ratingsByType.computeIfAbsent(tipType, k -> new ArrayList<>()).add(tip.rating());
+                    }
+
+                    if (tip.tipIcon() != null && !iconByType.containsKey(tipType)) {
+                        iconByType.put(tipType, tip.tipIcon());
                     }
                 }
-            } catch (Exception e) {
-                System.out.println("Error al obtener tips del viaje " + trip.getId() + ": " + e.getMessage());
             }
         }
         
@@ -499,11 +506,11 @@ public class StatsService {
         
         // Rating promedio general
         double totalRating = allTips.stream()
-                .filter(t -> t.getRating() != null)
-                .mapToDouble(Tip::getRating)
+                .filter(t -> t.rating() != null)
+                .mapToDouble(UserStatsSnapshot.TipData::rating)
                 .sum();
         long tipsWithRating = allTips.stream()
-                .filter(t -> t.getRating() != null)
+                .filter(t -> t.rating() != null)
                 .count();
         tipStats.setAverageRating(tipsWithRating > 0 ? totalRating / tipsWithRating : 0.0);
         
@@ -531,41 +538,28 @@ public class StatsService {
     /**
      * 4. Gastos anuales
      */
-    private void calculateYearlyExpenses(List<Trip> trips, Long userId, UserStatsResponse stats) {
-        Map<String, BigDecimal> yearlyExpense = new HashMap<>();
+    private void calculateYearlyExpenses(List<UserStatsSnapshot.TripData> trips, UserExpenseIndex expenseIndex,
+                                         UserStatsResponse stats) {
+        Map<String, MoneyAccumulator> yearlyExpense = new HashMap<>();
         Map<String, Long> yearlyTripCount = new HashMap<>();
         Map<String, TravelMate_Backend.demo.model.Currency> yearlyCurrency = new HashMap<>();
         
         DateTimeFormatter yearFormatter = DateTimeFormatter.ofPattern("yyyy");
         
-        for (Trip trip : trips) {
-            if (trip.getDateI() != null) {
-                String year = trip.getDateI().format(yearFormatter);
+        for (UserStatsSnapshot.TripData trip : trips) {
+            if (trip.dateI() != null) {
+                String year = trip.dateI().format(yearFormatter);
                 
                 yearlyTripCount.put(year, yearlyTripCount.getOrDefault(year, 0L) + 1);
                 
-                // Calcular gastos del año
-                List<Purchase> generalPurchases = purchaseRepository.findByTripIdAndIsGeneralTrue(trip.getId());
-                List<Purchase> individualPurchases = purchaseRepository.findByTripIdAndUserIdAndIsGeneralFalse(trip.getId(), userId);
-                
-                BigDecimal yearTotal = yearlyExpense.getOrDefault(year, BigDecimal.ZERO);
+                // Calcular gastos del año (en centavos; se convierte al armar la respuesta)
+                expenseIndex.addTripAmountsTo(trip.id(),
+                        yearlyExpense.computeIfAbsent(year, key -> new MoneyAccumulator()));
                 TravelMate_Backend.demo.model.Currency currentYearCurrency = yearlyCurrency.getOrDefault(year, TravelMate_Backend.demo.model.Currency.PESOS);
-                
-                for (Purchase purchase : generalPurchases) {
-                    yearTotal = yearTotal.add(purchase.getPrice());
-                    if (purchase.getCurrency() != null) {
-                        currentYearCurrency = purchase.getCurrency();
-                    }
+                if (expenseIndex.hasPurchases(trip.id())) {
+                    currentYearCurrency = expenseIndex.getTripCurrency(trip.id());
                 }
                 
-                for (Purchase purchase : individualPurchases) {
-                    yearTotal = yearTotal.add(purchase.getPrice());
-                    if (purchase.getCurrency() != null) {
-                        currentYearCurrency = purchase.getCurrency();
-                    }
-                }
-                
-                yearlyExpense.put(year, yearTotal);
                 yearlyCurrency.put(year, currentYearCurrency);
             }
         }
@@ -576,7 +570,7 @@ public class StatsService {
                     String year = entry.getKey();
                     UserStatsResponse.YearlyExpenseStats stat = new UserStatsResponse.YearlyExpenseStats();
                     stat.setYear(year);
-                    stat.setTotalExpense(entry.getValue());
+                    stat.setTotalExpense(entry.getValue().total());
                     stat.setCurrency(yearlyCurrency.getOrDefault(year, TravelMate_Backend.demo.model.Currency.PESOS).name());
                     stat.setTripCount(yearlyTripCount.getOrDefault(year, 0L));
                     return stat;
@@ -589,12 +583,12 @@ public class StatsService {
     /**
      * 5. Duración de viajes
      */
-    private void calculateTripDurationStats(List<Trip> trips, UserStatsResponse stats) {
+    private void calculateTripDurationStats(List<UserStatsSnapshot.TripData> trips, UserStatsResponse stats) {
         List<Long> durations = new ArrayList<>();
         
-        for (Trip trip : trips) {
-            if (trip.getDateI() != null && trip.getDateF() != null) {
-                long days = java.time.temporal.ChronoUnit.DAYS.between(trip.getDateI(), trip.getDateF()) + 1;
+        for (UserStatsSnapshot.TripData trip : trips) {
+            if (trip.dateI() != null && trip.dateF() != null) {
+                long days = java.time.temporal.ChronoUnit.DAYS.between(trip.dateI(), trip.dateF()) + 1;
                 durations.add(days);
             }
         }
@@ -657,21 +651,15 @@ public class StatsService {
     /**
      * 6. Distribución de modos de transporte
      */
-    private void calculateTransportModeStats(List<Trip> trips, UserStatsResponse stats) {
+    private void calculateTransportModeStats(List<UserStatsSnapshot.TripData> trips, UserStatsResponse stats) {
         Map<String, Long> transportCount = new HashMap<>();
         
-        for (Trip trip : trips) {
-            try {
-                if (trip.getTripDestinations() != null && !trip.getTripDestinations().isEmpty()) {
-                    for (TripDestination td : trip.getTripDestinations()) {
-                        String transportMode = td.getTransportMode();
-                        if (transportMode != null && !transportMode.isEmpty()) {
-                            transportCount.put(transportMode, transportCount.getOrDefault(transportMode, 0L) + 1);
-                        }
-                    }
+        for (UserStatsSnapshot.TripData trip : trips) {
+            for (UserStatsSnapshot.DestinationData td : trip.destinations()) {
+                String transportMode = td.transportMode();
+                if (transportMode != null && !transportMode.isEmpty()) {
+                    transportCount.put(transportMode, transportCount.getOrDefault(transportMode, 0L) + 1);
                 }
-            } catch (Exception e) {
-                System.out.println("Error al obtener modos de transporte del viaje " + trip.getId() + ": " + e.getMessage());
             }
         }
         
@@ -691,40 +679,17 @@ public class StatsService {
     /**
      * 7. Gastos generales vs individuales
      */
-    private void calculateGeneralVsIndividualExpenses(List<Trip> trips, Long userId, UserStatsResponse stats) {
-        BigDecimal generalTotal = BigDecimal.ZERO;
-        BigDecimal individualTotal = BigDecimal.ZERO;
-        long generalCount = 0;
-        long individualCount = 0;
-        TravelMate_Backend.demo.model.Currency dominantCurrency = TravelMate_Backend.demo.model.Currency.PESOS;
-        
-        for (Trip trip : trips) {
-            List<Purchase> generalPurchases = purchaseRepository.findByTripIdAndIsGeneralTrue(trip.getId());
-            List<Purchase> individualPurchases = purchaseRepository.findByTripIdAndUserIdAndIsGeneralFalse(trip.getId(), userId);
-            
-            for (Purchase purchase : generalPurchases) {
-                generalTotal = generalTotal.add(purchase.getPrice());
-                generalCount++;
-                if (purchase.getCurrency() != null) {
-                    dominantCurrency = purchase.getCurrency();
-                }
-            }
-            
-            for (Purchase purchase : individualPurchases) {
-                individualTotal = individualTotal.add(purchase.getPrice());
-                individualCount++;
-                if (purchase.getCurrency() != null) {
-                    dominantCurrency = purchase.getCurrency();
-                }
-            }
-        }
+    private void calculateGeneralVsIndividualExpenses(UserExpenseIndex expenseIndex, UserStatsResponse stats) {
+        TravelMate_Backend.demo.model.Currency dominantCurrency = expenseIndex.getLastCurrency() != null
+                ? expenseIndex.getLastCurrency()
+                : TravelMate_Backend.demo.model.Currency.PESOS;
         
         UserStatsResponse.GeneralVsIndividualExpenseStats expenseStats = 
             new UserStatsResponse.GeneralVsIndividualExpenseStats();
-        expenseStats.setGeneralExpenses(generalTotal);
-        expenseStats.setIndividualExpenses(individualTotal);
-        expenseStats.setGeneralPurchaseCount(generalCount);
-        expenseStats.setIndividualPurchaseCount(individualCount);
+        expenseStats.setGeneralExpenses(expenseIndex.getGeneralTotal());
+        expenseStats.setIndividualExpenses(expenseIndex.getIndividualTotal());
+        expenseStats.setGeneralPurchaseCount(expenseIndex.getGeneralCount());
+        expenseStats.setIndividualPurchaseCount(expenseIndex.getIndividualCount());
         expenseStats.setCurrency(dominantCurrency.name());
         
         stats.setGeneralVsIndividualExpenses(expenseStats);
@@ -733,33 +698,27 @@ public class StatsService {
     /**
      * 8. Top destinos extendido
      */
-    private void calculateTopDestinations(List<Trip> trips, UserStatsResponse stats) {
+    private void calculateTopDestinations(List<UserStatsSnapshot.TripData> trips, UserStatsResponse stats) {
         Map<String, DestinationInfo> destinationMap = new HashMap<>();
         
-        for (Trip trip : trips) {
-            try {
-                if (trip.getTripDestinations() != null && !trip.getTripDestinations().isEmpty()) {
-                    for (TripDestination td : trip.getTripDestinations()) {
-                        String destinationName = null;
-                        String country = null;
-                        
-                        if (td.getDestination() != null) {
-                            destinationName = td.getDestination().getName();
-                            country = td.getDestination().getCountry();
-                        } else if (td.getDestinationAddress() != null) {
-                            destinationName = td.getDestinationAddress();
-                        }
-                        
-                        if (destinationName != null && !destinationName.isEmpty()) {
-                            DestinationInfo info = destinationMap.getOrDefault(destinationName, 
-                                new DestinationInfo(destinationName, country));
-                            info.incrementCount();
-                            destinationMap.put(destinationName, info);
-                        }
-                    }
+        for (UserStatsSnapshot.TripData trip : trips) {
+            for (UserStatsSnapshot.DestinationData td : trip.destinations()) {
+                String destinationName = null;
+                String country = null;
+
+                if (td.name() != null) {
+                    destinationName = td.name();
+                    country = td.country();
+                } else if (td.address() != null) {
+                    destinationName = td.address();
+                }
+
+                if (destinationName != null && !destinationName.isEmpty()) {
+                    DestinationInfo info = destinationMap.getOrDefault(destinationName,
+                        new DestinationInfo(destinationName, country));
+                    info.incrementCount();
+                    destinationMap.put(destinationName, info);
                 }
-            } catch (Exception e) {
-                System.out.println("Error al obtener destinos del viaje " + trip.getId() + ": " + e.getMessage());
             }
         }
         
@@ -781,55 +740,20 @@ public class StatsService {
     /**
      * 9. Evolución temporal de gastos
      */
-    private void calculateTemporalExpenses(List<Trip> trips, Long userId, UserStatsResponse stats) {
-        Map<String, BigDecimal> temporalExpense = new HashMap<>();
-        Map<String, Long> temporalPurchaseCount = new HashMap<>();
-        Map<String, TravelMate_Backend.demo.model.Currency> temporalCurrency = new HashMap<>();
-        
-        DateTimeFormatter monthFormatter = DateTimeFormatter.ofPattern("yyyy-MM");
+    private void calculateTemporalExpenses(UserExpenseIndex expenseIndex, UserStatsResponse stats) {
         DateTimeFormatter displayFormatter = DateTimeFormatter.ofPattern("MMMM yyyy", new Locale("es", "ES"));
         
-        for (Trip trip : trips) {
-            List<Purchase> generalPurchases = purchaseRepository.findByTripIdAndIsGeneralTrue(trip.getId());
-            List<Purchase> individualPurchases = purchaseRepository.findByTripIdAndUserIdAndIsGeneralFalse(trip.getId(), userId);
-            
-            List<Purchase> allPurchases = new ArrayList<>();
-            allPurchases.addAll(generalPurchases);
-            allPurchases.addAll(individualPurchases);
-            
-            for (Purchase purchase : allPurchases) {
-                if (purchase.getPurchaseDate() != null) {
-                    String monthKey = purchase.getPurchaseDate().format(monthFormatter);
-                    
-                    BigDecimal monthTotal = temporalExpense.getOrDefault(monthKey, BigDecimal.ZERO);
-                    monthTotal = monthTotal.add(purchase.getPrice());
-                    temporalExpense.put(monthKey, monthTotal);
-                    
-                    temporalPurchaseCount.put(monthKey, 
-                        temporalPurchaseCount.getOrDefault(monthKey, 0L) + 1);
-                    
-                    if (purchase.getCurrency() != null) {
-                        temporalCurrency.put(monthKey, purchase.getCurrency());
-                    }
-                }
-            }
-        }
-        
-        List<UserStatsResponse.TemporalExpenseStats> temporalExpenses = temporalExpense.entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
-                .map(entry -> {
-                    String monthKey = entry.getKey();
+        // El índice ya viene ordenado por mes de compra
+        List<UserStatsResponse.TemporalExpenseStats> temporalExpenses = expenseIndex.getPeriods().stream()
+                .map(period -> {
+                    String monthKey = period.toString();
                     UserStatsResponse.TemporalExpenseStats stat = new UserStatsResponse.TemporalExpenseStats();
                     stat.setPeriod(monthKey);
-                    try {
-                        LocalDate date = LocalDate.parse(monthKey + "-01");
-                        stat.setPeriodName(date.format(displayFormatter));
-                    } catch (Exception e) {
-                        stat.setPeriodName(monthKey);
-                    }
-                    stat.setTotalExpense(entry.getValue());
-                    stat.setCurrency(temporalCurrency.getOrDefault(monthKey, TravelMate_Backend.demo.model.Currency.PESOS).name());
-                    stat.setPurchaseCount(temporalPurchaseCount.getOrDefault(monthKey, 0L));
+                    stat.setPeriodName(period.atDay(1).format(displayFormatter));
+                    stat.setTotalExpense(expenseIndex.getPeriodTotal(period));
+                    TravelMate_Backend.demo.model.Currency currency = expenseIndex.getPeriodCurrency(period);
+                    stat.setCurrency((currency != null ? currency : TravelMate_Backend.demo.model.Currency.PESOS).name());
+                    stat.setPurchaseCount(expenseIndex.getPeriodCount(period));
                     return stat;
                 })
                 .collect(Collectors.toList());
@@ -837,6 +761,93 @@ public class StatsService {
         stats.setTemporalExpenses(temporalExpenses);
     }
 
+    /**
+     * Copia a un {@link UserStatsSnapshot} los datos de los viajes que necesitan las secciones
+     * pedidas, para que los calculadores no dependan de la sesión de Hibernate
+     */
+    private UserStatsSnapshot buildSnapshot(List<Trip> userTrips, Long userId, Set<UserStatsSection.Source> sources) {
+        List<Long> tripIds = userTrips.stream()
+                .map(Trip::getId)
+                .collect(Collectors.toList());
+
+        // Los destinos de todos los viajes en una sola consulta
+        Map<Long, List<TripDestination>> tripDestinations = sources.contains(UserStatsSection.Source.DESTINATIONS)
+                ? tripDestinationLoader.loadByTripIds(tripIds)
+                : Map.of();
+
+        List<UserStatsSnapshot.TripData> trips = new ArrayList<>();
+        for (Trip trip : userTrips) {
+            List<UserStatsSnapshot.DestinationData> destinations = new ArrayList<>();
+            if (sources.contains(UserStatsSection.Source.DESTINATIONS)) {
+                for (TripDestination td : tripDestinations.getOrDefault(trip.getId(), List.of())) {
+                    Destination destination = td.getDestination();
+                    destinations.add(new UserStatsSnapshot.DestinationData(
+                            destination != null ? destination.getName() : null,
+                            destination != null ? destination.getCountry() : null,
+                            td.getDestinationAddress(),
+                            td.getTransportMode()));
+                }
+            }
+            trips.add(new UserStatsSnapshot.TripData(trip.getId(), trip.getName(), trip.getDateI(), trip.getDateF(),
+                    destinations));
+        }
+
+        // Cargar una sola vez los gastos de todos los viajes del usuario
+        UserExpenseIndex expenseIndex = sources.contains(UserStatsSection.Source.EXPENSES)
+                ? buildExpenseIndex(userTrips, userId)
+                : null;
+
+        Map<Long, List<UserStatsSnapshot.TipData>> tipsByTrip = new HashMap<>();
+        if (sources.contains(UserStatsSection.Source.TIPS)) {
+            for (Tip tip : tipRepository.findByTripIdInOrderByCreatedAtDesc(tripIds)) {
+                tipsByTrip.computeIfAbsent(tip.getTrip().getId(), id -> new ArrayList<>())
+                        .add(new UserStatsSnapshot.TipData(tip.getTipType(), tip.getRating(), tip.getTipIcon()));
+            }
+            tipsByTrip.replaceAll((tripId, tips) -> List.copyOf(tips));
+        }
+
+        Map<Long, Long> participantsByTrip = new HashMap<>();
+        if (sources.contains(UserStatsSection.Source.PARTICIPANTS)) {
+            // Una sola consulta sobre users_trip, sin cargar los usuarios
+            for (Object[] row : tripRepository.countUsersByTripIds(tripIds)) {
+                participantsByTrip.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+            }
+        }
+
+        return new UserStatsSnapshot(trips, expenseIndex, tipsByTrip, participantsByTrip);
+    }
+
+    /**
+     * Carga en una sola consulta las compras generales de los viajes del usuario y sus compras
+     * individuales, y las indexa para que todos los calculadores las compartan. Con el rollup
+     * activado se leen los totales precalculados; si no, por defecto las compras se suman en la base
+     * ({@code stats.expenses.aggregate-in-db}) y solo viajan los totales por viaje, tipo, mes y moneda.
+     */
+    private UserExpenseIndex buildExpenseIndex(List<Trip> trips, Long userId) {
+        List<Long> tripIds = trips.stream()
+                .map(Trip::getId)
+                .collect(Collectors.toList());
+
+        UserExpenseIndex expenseIndex = new UserExpenseIndex(tripIds);
+        if (statsRollupService.isEnabled()) {
+            statsRollupService.loadInto(expenseIndex, userId, tripIds);
+            return expenseIndex;
+        }
+        if (aggregateExpensesInDb) {
+            for (PurchaseExpenseBucket bucket : purchaseRepository.sumUserStatsPurchases(tripIds, userId)) {
+                expenseIndex.addBucket(bucket.getTripId(), Boolean.TRUE.equals(bucket.getIsGeneral()),
+                        bucket.getPeriod() != null ? YearMonth.parse(bucket.getPeriod()) : null,
+                        bucket.getCurrency() != null ? TravelMate_Backend.demo.model.Currency.valueOf(bucket.getCurrency()) : null,
+                        bucket.getTotal(), bucket.getPurchaseCount(), bucket.getLastPurchaseId());
+            }
+            return expenseIndex;
+        }
+        for (Purchase purchase : purchaseRepository.findUserStatsPurchases(tripIds, userId)) {
+            expenseIndex.addPurchase(purchase);
+        }
+        return expenseIndex;
+    }
+
     // Clase auxiliar para destinos
     private static class DestinationInfo {
         String name;
@@ -854,14 +865,18 @@ public class StatsService {
     }
     
     private String determineStatus(Trip trip) {
-        if (trip.getDateI() == null || trip.getDateF() == null) {
+        return determineStatus(trip.getDateI(), trip.getDateF());
+    }
+
+    private String determineStatus(LocalDate dateI, LocalDate dateF) {
+        if (dateI == null || dateF == null) {
             return "planning";
         }
 
         LocalDate today = LocalDate.now();
-        if (today.isBefore(trip.getDateI())) {
+        if (today.isBefore(dateI)) {
             return "planning";
-        } else if (today.isAfter(trip.getDateF())) {
+        } else if (today.isAfter(dateF)) {
             return "completed";
         } else {
             return "active";
@@ -919,7 +934,7 @@ public class StatsService {
         tripRepository.findById(tripId)
                 .orElseThrow(() -> new RuntimeException("Viaje no encontrado"));
 
-        boolean userParticipates = tripRepository.existsByIdAndUsersId(tripId, userId);
+        boolean userParticipates = membershipIndex.isMember(tripId, userId);
 
         if (!userParticipates) {
             throw new RuntimeException("No tienes acceso a este viaje");
@@ -929,9 +944,32 @@ public class StatsService {
     }
 
     /**
-     * Obtiene estadísticas detalladas de un viaje específico para un usuario
+     * Obtiene estadísticas detalladas de un viaje específico para un usuario. Si no hubo cambios en
+     * el viaje desde el último cálculo se devuelven desde {@link TripStatsCache} sin ir a la base.
+     *
+     * Corre sin la transacción de la clase: un acierto del cache no pide una conexión a la base.
+     * Solo el cálculo corre en una transacción de solo lectura.
      */
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
     public TripStats getTripStats(Long tripId, Long userId) {
+        long version = tripStatsCache.currentVersion(tripId);
+        TripStats cached = tripStatsCache.get(tripId, userId, version);
+        if (cached != null) {
+            return cached;
+        }
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        TripStats stats = transaction.execute(status -> calculateTripStats(tripId, userId));
+        tripStatsCache.put(tripId, userId, version, stats);
+        return stats;
+    }
+
+    public Map<String, Object> getTripStatsCacheStatistics() {
+        return tripStatsCache.getStatistics();
+    }
+
+    private TripStats calculateTripStats(Long tripId, Long userId) {
         // Verificar que el viaje existe
         Trip trip = tripRepository.findById(tripId)
                 .orElseThrow(() -> new RuntimeException("Viaje no encontrado"));
@@ -957,8 +995,9 @@ public class StatsService {
         // Obtener destino principal
         String destination = "Sin destino";
         try {
-            if (trip.getTripDestinations() != null && !trip.getTripDestinations().isEmpty()) {
-                TripDestination tripDestination = trip.getTripDestinations().iterator().next();
+            List<TripDestination> tripDestinations = tripDestinationLoader.loadByTripId(tripId);
+            if (!tripDestinations.isEmpty()) {
+                TripDestination tripDestination = tripDestinations.get(0);
                 if (tripDestination != null && tripDestination.getDestination() != null) {
                     destination = tripDestination.getDestination().getName();
                 } else if (tripDestination != null && tripDestination.getDestinationAddress() != null) {
@@ -994,14 +1033,14 @@ public class StatsService {
         List<Purchase> generalPurchases = purchaseRepository.findByTripIdAndIsGeneralTrue(tripId);
         List<Purchase> userIndividualPurchases = purchaseRepository.findByTripIdAndUserIdAndIsGeneralFalse(tripId, userId);
 
+        MoneyAccumulator generalSpent = sumPurchases(generalPurchases);
+        MoneyAccumulator personalSpent = sumPurchases(userIndividualPurchases);
+
         // Total gastado (generales + todos los individuales)
-        BigDecimal totalSpent = BigDecimal.ZERO;
-        for (Purchase p : generalPurchases) {
-            totalSpent = totalSpent.add(p.getPrice());
-        }
-        for (Purchase p : userIndividualPurchases) {
-            totalSpent = totalSpent.add(p.getPrice());
-        }
+        MoneyAccumulator spent = new MoneyAccumulator();
+        spent.addAll(generalSpent);
+        spent.addAll(personalSpent);
+        BigDecimal totalSpent = spent.total();
         stats.setTotalSpent(totalSpent);
 
         // Promedio diario
@@ -1011,36 +1050,38 @@ public class StatsService {
         stats.setAverageDailyExpense(averageDailyExpense);
 
         // Billetera general del viaje
-        calculateGeneralWalletStats(tripId, stats);
+        calculateGeneralWalletStats(tripId, generalSpent.total(), stats);
 
         // Billetera personal del usuario
-        calculatePersonalWalletStats(tripId, userId, stats);
+        calculatePersonalWalletStats(tripId, userId, personalSpent.total(), stats);
 
         // Gasto personal del usuario
-        BigDecimal userPersonalSpent = userIndividualPurchases.stream()
-                .map(Purchase::getPrice)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        stats.setUserPersonalSpent(userPersonalSpent);
+        stats.setUserPersonalSpent(personalSpent.total());
 
-        // Gastos por día
+        // Gastos por día y top días más gastados
         calculateDailyExpenses(trip, generalPurchases, userIndividualPurchases, stats);
 
-        // Top días más gastados
-        calculateTopExpensiveDays(stats);
-
         // Gastos por categoría
         calculateExpensesByCategory(generalPurchases, userIndividualPurchases, totalSpent, stats);
 
         // Gastos por participante
-        calculateExpensesByParticipant(trip, generalPurchases, userIndividualPurchases, stats);
+        calculateExpensesByParticipant(trip, generalSpent.total(), userIndividualPurchases, stats);
 
         return stats;
     }
 
+    private static MoneyAccumulator sumPurchases(List<Purchase> purchases) {
+        MoneyAccumulator accumulator = new MoneyAccumulator();
+        for (Purchase purchase : purchases) {
+            accumulator.add(purchase.getCurrency(), purchase.getPrice());
+        }
+        return accumulator;
+    }
+
     /**
      * Calcula estadísticas de la billetera general del viaje
      */
-    private void calculateGeneralWalletStats(Long tripId, TripStats stats) {
+    private void calculateGeneralWalletStats(Long tripId, BigDecimal generalSpent, TripStats stats) {
         // Buscar billetera general del viaje (sin usuario asignado)
         Wallet generalWallet = walletRepository.findByTripIdAndIsGeneralTrue(tripId)
                 .orElse(null);
@@ -1051,12 +1092,6 @@ public class StatsService {
         if (generalWallet != null) {
             initialGeneralBudget = generalWallet.getAmount();
 
-            // Calcular gastos generales
-            List<Purchase> generalPurchases = purchaseRepository.findByTripIdAndIsGeneralTrue(tripId);
-            BigDecimal generalSpent = generalPurchases.stream()
-                    .map(Purchase::getPrice)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
             currentGeneralBalance = initialGeneralBudget.subtract(generalSpent);
 
             Double generalBudgetUsagePercent = initialGeneralBudget.compareTo(BigDecimal.ZERO) > 0
@@ -1076,7 +1111,7 @@ public class StatsService {
     /**
      * Calcula estadísticas de la billetera personal del usuario
      */
-    private void calculatePersonalWalletStats(Long tripId, Long userId, TripStats stats) {
+    private void calculatePersonalWalletStats(Long tripId, Long userId, BigDecimal userSpent, TripStats stats) {
         // Buscar billetera personal del usuario para este viaje
         Wallet personalWallet = walletRepository.findByTripIdAndUserIdAndIsGeneralFalse(tripId, userId)
                 .orElse(null);
@@ -1087,12 +1122,6 @@ public class StatsService {
         if (personalWallet != null) {
             userInitialBudget = personalWallet.getAmount();
 
-            // Calcular gastos personales
-            List<Purchase> userPurchases = purchaseRepository.findByTripIdAndUserIdAndIsGeneralFalse(tripId, userId);
-            BigDecimal userSpent = userPurchases.stream()
-                    .map(Purchase::getPrice)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
             userCurrentBalance = userInitialBudget.subtract(userSpent);
 
             Double userBudgetUsagePercent = userInitialBudget.compareTo(BigDecimal.ZERO) > 0
@@ -1110,58 +1139,54 @@ public class StatsService {
     }
 
     /**
-     * Calcula gastos diarios del viaje
+     * Calcula gastos diarios del viaje, los días más gastados y los gastos fuera de las fechas del
+     * viaje, con un histograma por día llenado en una pasada
      */
     private void calculateDailyExpenses(Trip trip, List<Purchase> generalPurchases,
                                         List<Purchase> allIndividualPurchases, TripStats stats) {
-        List<Purchase> allPurchases = new ArrayList<>();
-        allPurchases.addAll(generalPurchases);
-        allPurchases.addAll(allIndividualPurchases);
-
-        // Agrupar compras por fecha
-        Map<LocalDate, List<Purchase>> purchasesByDate = allPurchases.stream()
-                .filter(p -> p.getPurchaseDate() != null)
-                .collect(Collectors.groupingBy(Purchase::getPurchaseDate));
-
-        List<TripStats.DailyExpense> dailyExpenses = new ArrayList<>();
-
-        if (trip.getDateI() != null && trip.getDateF() != null) {
-            LocalDate currentDate = trip.getDateI();
-            int dayNumber = 1;
-
-            while (!currentDate.isAfter(trip.getDateF())) {
-                List<Purchase> dayPurchases = purchasesByDate.getOrDefault(currentDate, Collections.emptyList());
-                BigDecimal dayTotal = dayPurchases.stream()
-                        .map(Purchase::getPrice)
-                        .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-                TripStats.DailyExpense dailyExpense = new TripStats.DailyExpense();
-                dailyExpense.setDate(currentDate);
-                dailyExpense.setDayNumber(dayNumber);
-                dailyExpense.setTotalExpense(dayTotal);
-                dailyExpense.setExpenseCount(dayPurchases.size());
-
-                dailyExpenses.add(dailyExpense);
+        if (trip.getDateI() == null || trip.getDateF() == null) {
+            stats.setDailyExpenses(new ArrayList<>());
+            stats.setTopExpensiveDays(new ArrayList<>());
+            return;
+        }
 
-                currentDate = currentDate.plusDays(1);
-                dayNumber++;
+        DailyExpenseHistogram histogram = new DailyExpenseHistogram(trip.getDateI(), trip.getDateF());
+        for (List<Purchase> purchases : List.of(generalPurchases, allIndividualPurchases)) {
+            for (Purchase purchase : purchases) {
+                if (purchase.getPurchaseDate() != null) {
+                    histogram.add(purchase.getPurchaseDate(), purchase.getPrice());
+                }
             }
         }
 
+        List<TripStats.DailyExpense> dailyExpenses = new ArrayList<>(histogram.days());
+        for (int day = 0; day < histogram.days(); day++) {
+            TripStats.DailyExpense dailyExpense = new TripStats.DailyExpense();
+            dailyExpense.setDate(histogram.date(day));
+            dailyExpense.setDayNumber(day + 1);
+            dailyExpense.setTotalExpense(histogram.total(day));
+            dailyExpense.setExpenseCount(histogram.count(day));
+            dailyExpenses.add(dailyExpense);
+        }
         stats.setDailyExpenses(dailyExpenses);
-    }
-
-    /**
-     * Calcula los días más gastados
-     */
-    private void calculateTopExpensiveDays(TripStats stats) {
-        List<TripStats.DailyExpense> topDays = stats.getDailyExpenses().stream()
-                .filter(d -> d.getTotalExpense().compareTo(BigDecimal.ZERO) > 0)
-                .sorted((d1, d2) -> d2.getTotalExpense().compareTo(d1.getTotalExpense()))
-                .limit(5)
-                .collect(Collectors.toList());
 
+        // Top días más gastados
+        List<TripStats.DailyExpense> topDays = new ArrayList<>();
+        for (int day : histogram.topDays(TOP_EXPENSIVE_DAYS)) {
+            topDays.add(dailyExpenses.get(day));
+        }
         stats.setTopExpensiveDays(topDays);
+
+        stats.setExpensesBeforeTrip(outOfRangeExpense(histogram, DailyExpenseHistogram.BEFORE_TRIP));
+        stats.setExpensesAfterTrip(outOfRangeExpense(histogram, DailyExpenseHistogram.AFTER_TRIP));
+    }
+
+    private static TripStats.OutOfRangeExpense outOfRangeExpense(DailyExpenseHistogram histogram, int overflow) {
+        if (histogram.count(overflow) == 0) {
+            return null;
+        }
+        return new TripStats.OutOfRangeExpense(histogram.firstDate(overflow), histogram.lastDate(overflow),
+                histogram.total(overflow), histogram.count(overflow));
     }
 
     /**
@@ -1175,17 +1200,18 @@ public class StatsService {
         allPurchases.addAll(allIndividualPurchases);
 
         // Agrupar por categoría (usando description como categoría)
-        Map<String, List<Purchase>> purchasesByCategory = allPurchases.stream()
-                .filter(p -> p.getDescription() != null && !p.getDescription().trim().isEmpty())
-                .collect(Collectors.groupingBy(Purchase::getDescription));
+        Map<String, MoneyAccumulator> expensesByCategory = new HashMap<>();
+        for (Purchase purchase : allPurchases) {
+            if (purchase.getDescription() != null && !purchase.getDescription().trim().isEmpty()) {
+                expensesByCategory.computeIfAbsent(purchase.getDescription(), description -> new MoneyAccumulator())
+                        .add(purchase.getCurrency(), purchase.getPrice());
+            }
+        }
 
-        List<TripStats.CategoryExpense> categoryExpenses = purchasesByCategory.entrySet().stream()
+        List<TripStats.CategoryExpense> categoryExpenses = expensesByCategory.entrySet().stream()
                 .map(entry -> {
                     String category = entry.getKey();
-                    List<Purchase> purchases = entry.getValue();
-                    BigDecimal categoryTotal = purchases.stream()
-                            .map(Purchase::getPrice)
-                            .reduce(BigDecimal.ZERO, BigDecimal::add);
+                    BigDecimal categoryTotal = entry.getValue().total();
 
                     Double percentage = totalSpent.compareTo(BigDecimal.ZERO) > 0
                             ? categoryTotal.divide(totalSpent, 4, RoundingMode.HALF_UP)
@@ -1195,7 +1221,7 @@ public class StatsService {
                     TripStats.CategoryExpense categoryExpense = new TripStats.CategoryExpense();
                     categoryExpense.setCategory(category);
                     categoryExpense.setTotalAmount(categoryTotal);
-                    categoryExpense.setExpenseCount(purchases.size());
+                    categoryExpense.setExpenseCount((int) entry.getValue().totalCount());
                     categoryExpense.setPercentage(percentage);
 
                     return categoryExpense;
@@ -1209,45 +1235,39 @@ public class StatsService {
     /**
      * Calcula gastos por participante
      */
-    private void calculateExpensesByParticipant(Trip trip, List<Purchase> generalPurchases,
+    private void calculateExpensesByParticipant(Trip trip, BigDecimal generalTotal,
                                                 List<Purchase> allIndividualPurchases, TripStats stats) {
-        Map<Long, BigDecimal> expensesByUser = new HashMap<>();
-        Map<Long, Integer> purchaseCountByUser = new HashMap<>();
+        Map<Long, MoneyAccumulator> expensesByUser = new HashMap<>();
 
-        // Contar compras individuales por usuario
+        // Sumar y contar compras individuales por usuario
         for (Purchase purchase : allIndividualPurchases) {
-            Long purchaseUserId = purchase.getUser().getId();
-            expensesByUser.put(purchaseUserId,
-                    expensesByUser.getOrDefault(purchaseUserId, BigDecimal.ZERO).add(purchase.getPrice()));
-            purchaseCountByUser.put(purchaseUserId,
-                    purchaseCountByUser.getOrDefault(purchaseUserId, 0) + 1);
+            expensesByUser.computeIfAbsent(purchase.getUser().getId(), id -> new MoneyAccumulator())
+                    .add(purchase.getCurrency(), purchase.getPrice());
         }
 
         // Distribuir compras generales equitativamente entre participantes
-        BigDecimal generalTotal = generalPurchases.stream()
-                .map(Purchase::getPrice)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
         int participantCount = trip.getUsers().size();
         if (participantCount > 0 && generalTotal.compareTo(BigDecimal.ZERO) > 0) {
             BigDecimal generalPerPerson = generalTotal.divide(
                     BigDecimal.valueOf(participantCount), 2, RoundingMode.HALF_UP);
 
             for (User user : trip.getUsers()) {
-                Long userIdKey = user.getId();
-                expensesByUser.put(userIdKey,
-                        expensesByUser.getOrDefault(userIdKey, BigDecimal.ZERO).add(generalPerPerson));
+                // La parte de las compras generales no cuenta como compra del usuario
+                expensesByUser.computeIfAbsent(user.getId(), id -> new MoneyAccumulator())
+                        .add(null, generalPerPerson, 0);
             }
         }
 
         // Crear lista de gastos por participante
+        MoneyAccumulator noExpenses = new MoneyAccumulator();
         List<TripStats.ParticipantExpense> participantExpenses = trip.getUsers().stream()
                 .map(user -> {
+                    MoneyAccumulator userExpenses = expensesByUser.getOrDefault(user.getId(), noExpenses);
                     TripStats.ParticipantExpense participantExpense = new TripStats.ParticipantExpense();
                     participantExpense.setUserId(user.getId());
                     participantExpense.setUserName(user.getName());
-                    participantExpense.setTotalSpent(expensesByUser.getOrDefault(user.getId(), BigDecimal.ZERO));
-                    participantExpense.setExpenseCount(purchaseCountByUser.getOrDefault(user.getId(), 0));
+                    participantExpense.setTotalSpent(userExpenses.total());
+                    participantExpense.setExpenseCount((int) userExpenses.totalCount());
                     return participantExpense;
                 })
                 .sorted((p1, p2) -> p2.getTotalSpent().compareTo(p1.getTotalSpent()))
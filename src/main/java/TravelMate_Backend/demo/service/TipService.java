@@ -23,6 +23,9 @@ public class TipService {
     
     @Autowired
     private TripRepository tripRepository;
+
+    @Autowired
+    private TripMembershipIndex membershipIndex;
     
     @Autowired
     private UserRepository userRepository;
@@ -54,8 +57,8 @@ public class TipService {
         User user = userOpt.get();
         System.out.println("TipService.createTip - Usuario encontrado: " + user.getName() + " (ID: " + user.getId() + ")");
         
-        // Verificar que el usuario está en el viaje usando una consulta directa
-        boolean userInTrip = tripRepository.existsByIdAndUsersId(tripId, user.getId());
+        // Verificar que el usuario está en el viaje
+        boolean userInTrip = membershipIndex.isMember(tripId, user.getId());
         System.out.println("TipService.createTip - Usuario en viaje: " + userInTrip);
         
         if (!userInTrip) {
@@ -0,0 +1,52 @@
+package TravelMate_Backend.demo.service;
+
+import TravelMate_Backend.demo.model.TripDestination;
+import TravelMate_Backend.demo.repository.TripDestinationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Única forma de leer los destinos de los viajes: trae los {@link TripDestination} de todos los
+ * viajes pedidos junto con su {@code Destination} en una consulta (por bloques si son muchos ids),
+ * en lugar de recorrer {@code Trip.getTripDestinations()} viaje por viaje.
+ *
+ * Los destinos de cada viaje quedan ordenados por id de destino, así "el primero" es siempre el
+ * mismo.
+ */
+@Component
+public class TripDestinationLoader {
+
+    // Límite de parámetros por consulta
+    private static final int MAX_IDS_PER_QUERY = 1000;
+
+    @Autowired
+    private TripDestinationRepository tripDestinationRepository;
+
+    /**
+     * @return destinos de cada viaje; los viajes sin destinos no aparecen en el mapa
+     */
+    public Map<Long, List<TripDestination>> loadByTripIds(Collection<Long> tripIds) {
+        Map<Long, List<TripDestination>> byTrip = new HashMap<>();
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(tripIds));
+        for (int from = 0; from < ids.size(); from += MAX_IDS_PER_QUERY) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + MAX_IDS_PER_QUERY));
+            for (TripDestination tripDestination : tripDestinationRepository.findWithDestinationByTripIds(chunk)) {
+                byTrip.computeIfAbsent(tripDestination.getId().getTripId(), id -> new ArrayList<>())
+                        .add(tripDestination);
+            }
+        }
+        return byTrip;
+    }
+
+    public List<TripDestination> loadByTripId(Long tripId) {
+        return loadByTripIds(Set.of(tripId)).getOrDefault(tripId, List.of());
+    }
+}
@@ -0,0 +1,190 @@
+package TravelMate_Backend.demo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Genera en segundo plano las miniaturas de la imagen de un viaje (por defecto 128 y 512 px del
+ * lado más largo, en JPEG), las guarda en el {@link BlobStore} y registra en
+ * {@code trips.image_thumbnails} el hash de cada tamaño disponible.
+ *
+ * Las tareas corren en {@code thumbnailExecutor} después del commit del viaje, así la subida no
+ * incluye el redimensionado. La imagen se decodifica con submuestreo para no tener en memoria el
+ * original completo cuando es mucho más grande que la miniatura mayor.
+ */
+@Service
+public class TripImageThumbnailer {
+
+    private static final Logger logger = LoggerFactory.getLogger(TripImageThumbnailer.class);
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier("thumbnailExecutor")
+    private ExecutorService thumbnailExecutor;
+
+    @Value("${thumbnails.sizes:128,512}")
+    private int[] sizes;
+
+    @Value("${thumbnails.quality:0.8}")
+    private float quality;
+
+    /**
+     * Encola la generación de las miniaturas para cuando termine la transacción actual (el viaje
+     * tiene que estar guardado para registrar los tamaños)
+     */
+    public void scheduleAfterCommit(Long tripId, String imageHash) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    schedule(tripId, imageHash);
+                }
+            });
+        } else {
+            schedule(tripId, imageHash);
+        }
+    }
+
+    public void schedule(Long tripId, String imageHash) {
+        try {
+            thumbnailExecutor.execute(() -> {
+                try {
+                    generate(tripId, imageHash);
+                } catch (Exception e) {
+                    logger.warn("No se pudieron generar las miniaturas del viaje {}: {}", tripId, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("Cola de miniaturas llena, el viaje {} queda sin miniaturas", tripId);
+        }
+    }
+
+    /**
+     * Genera y registra las miniaturas. Si la imagen del viaje cambió mientras tanto no se registra
+     * nada.
+     *
+     * @return hash de cada tamaño generado, vacío si la imagen no se pudo decodificar
+     */
+    public Map<Integer, String> generate(Long tripId, String imageHash) throws IOException {
+        int[] sorted = Arrays.stream(sizes).filter(size -> size > 0).sorted().toArray();
+        Map<Integer, String> thumbnails = new TreeMap<>();
+        BufferedImage image = read(imageHash, sorted.length > 0 ? sorted[sorted.length - 1] : 0);
+        if (image == null) {
+            logger.warn("Formato de imagen no soportado para miniaturas (viaje {})", tripId);
+            return thumbnails;
+        }
+        for (int size : sorted) {
+            thumbnails.put(size, blobStore.store(new ByteArrayInputStream(toJpeg(resize(image, size)))));
+        }
+
+        try {
+            jdbcTemplate.update("UPDATE trips SET image_thumbnails = ?::jsonb WHERE id = ? AND image_hash = ?",
+                    objectMapper.writeValueAsString(thumbnails), tripId, imageHash);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        return thumbnails;
+    }
+
+    /**
+     * Decodifica la imagen salteando píxeles mientras el resultado siga teniendo al menos el doble
+     * de {@code maxSize} (para que la reducción final conserve la calidad)
+     */
+    private BufferedImage read(String imageHash, int maxSize) throws IOException {
+        try (InputStream in = blobStore.open(imageHash);
+             ImageInputStream imageIn = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageIn);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageIn, true, true);
+                int longest = Math.max(reader.getWidth(0), reader.getHeight(0));
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = maxSize > 0 ? Math.max(1, longest / (2 * maxSize)) : 1;
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Escala para que el lado más largo mida {@code size} (nunca agranda). El fondo queda blanco
+     * porque JPEG no tiene transparencia.
+     */
+    private static BufferedImage resize(BufferedImage image, int size) {
+        int longest = Math.max(image.getWidth(), image.getHeight());
+        double scale = Math.min(1.0, (double) size / longest);
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+
+        BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = thumbnail.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return thumbnail;
+    }
+
+    private byte[] toJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(imageOut);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,338 @@
+package TravelMate_Backend.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Índice en memoria de qué viajes tiene cada usuario ({@code users_trip}), para responder "¿el
+ * usuario participa de este viaje?" sin ir a la base en cada request.
+ *
+ * Por usuario se guarda un {@code long[]} ordenado con los ids de sus viajes (búsqueda binaria, sin
+ * objetos por viaje). Se carga la primera vez que se consulta al usuario y se descartan los menos
+ * usados cuando se superan {@code trips.membership.max-users} usuarios o
+ * {@code trips.membership.max-trip-ids} ids en total. Los arrays nunca se modifican: cada cambio
+ * arma uno nuevo, así las consultas leen sin bloquear.
+ *
+ * Quien modifica {@code users_trip} avisa acá en la misma transacción ({@link #memberAdded},
+ * {@link #memberRemoved}, {@link #tripDeleted}). Un alta entra al índice recién con el commit;
+ * mientras tanto solo la ve la transacción que la hizo, así ningún otro request le da acceso a un
+ * participante que todavía puede deshacerse. Las bajas se aplican enseguida (quitar un acceso antes
+ * de tiempo es lo seguro) y otra vez después del commit, por si otra consulta cargó al usuario
+ * desde la base antes de que el cambio fuera visible; si la transacción se deshace, se descartan los
+ * usuarios afectados. Una carga que se cruza con cualquier cambio no se guarda, ni la que hace una
+ * transacción con altas propias del usuario sin confirmar. Aun así {@link #verifyAndRepair()}
+ * compara periódicamente el índice con la base por si algo escribió {@code users_trip} sin avisar.
+ */
+@Component
+public class TripMembershipIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(TripMembershipIndex.class);
+
+    private static final long[] NO_TRIPS = new long[0];
+    private static final int VERIFY_CHUNK_SIZE = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${trips.membership.max-users:10000}")
+    private int maxUsers;
+
+    @Value("${trips.membership.max-trip-ids:1000000}")
+    private long maxTripIds;
+
+    private final LinkedHashMap<Long, long[]> tripsByUser = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Protegidos por tripsByUser
+    private long cachedTripIds;
+    private long generation;
+
+    // Clave de las altas sin commit de la transacción en curso (un Set<Membership> por transacción)
+    private final Object pendingAdditionsKey = new Object();
+
+    public boolean isMember(Long tripId, Long userId) {
+        if (tripId == null || userId == null) {
+            return false;
+        }
+        Set<Membership> pending = currentPendingAdditions();
+        if (pending != null && pending.contains(new Membership(userId, tripId))) {
+            return true;
+        }
+        return Arrays.binarySearch(tripsOf(userId), tripId) >= 0;
+    }
+
+    public void memberAdded(Long userId, Long tripId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            synchronized (tripsByUser) {
+                setMember(userId, tripId, true);
+            }
+            return;
+        }
+        pendingAdditions().add(new Membership(userId, tripId));
+        afterCompletion(committed -> {
+            if (committed) {
+                setMember(userId, tripId, true);
+            }
+        });
+    }
+
+    public void memberRemoved(Long userId, Long tripId) {
+        Set<Membership> pending = currentPendingAdditions();
+        if (pending != null) {
+            pending.remove(new Membership(userId, tripId));
+        }
+        synchronized (tripsByUser) {
+            setMember(userId, tripId, false);
+        }
+        afterCompletion(committed -> {
+            if (committed) {
+                setMember(userId, tripId, false);
+            } else {
+                evict(userId);
+            }
+        });
+    }
+
+    public void tripDeleted(Long tripId) {
+        Set<Membership> pending = currentPendingAdditions();
+        if (pending != null) {
+            pending.removeIf(membership -> membership.tripId().equals(tripId));
+        }
+        List<Long> affected;
+        synchronized (tripsByUser) {
+            affected = removeTrip(tripId);
+        }
+        afterCompletion(committed -> {
+            if (committed) {
+                removeTrip(tripId);
+            } else {
+                affected.forEach(this::evict);
+            }
+        });
+    }
+
+    public void clear() {
+        synchronized (tripsByUser) {
+            tripsByUser.clear();
+            cachedTripIds = 0;
+            generation++;
+        }
+    }
+
+    /**
+     * Compara los usuarios cargados con {@code users_trip} y corrige los que no coinciden
+     *
+     * @return cantidad de usuarios corregidos
+     */
+    public int verifyAndRepair() {
+        List<Long> userIds;
+        synchronized (tripsByUser) {
+            userIds = new ArrayList<>(tripsByUser.keySet());
+        }
+        int repaired = 0;
+        for (int from = 0; from < userIds.size(); from += VERIFY_CHUNK_SIZE) {
+            List<Long> chunk = userIds.subList(from, Math.min(from + VERIFY_CHUNK_SIZE, userIds.size()));
+            long loadedAt;
+            synchronized (tripsByUser) {
+                loadedAt = generation;
+            }
+            Map<Long, long[]> actual = loadAll(chunk);
+            synchronized (tripsByUser) {
+                // Si hubo cambios mientras se consultaba, la diferencia puede ser solo de tiempo
+                if (generation != loadedAt) {
+                    continue;
+                }
+                for (Long userId : chunk) {
+                    long[] cached = tripsByUser.get(userId);
+                    long[] trips = actual.getOrDefault(userId, NO_TRIPS);
+                    if (cached != null && !Arrays.equals(cached, trips)) {
+                        logger.warn("Índice de participantes desactualizado para el usuario {}, se corrige", userId);
+                        put(userId, trips);
+                        repaired++;
+                    }
+                }
+            }
+        }
+        return repaired;
+    }
+
+    private long[] tripsOf(Long userId) {
+        long loadedAt;
+        synchronized (tripsByUser) {
+            long[] trips = tripsByUser.get(userId);
+            if (trips != null) {
+                return trips;
+            }
+            loadedAt = generation;
+        }
+        long[] trips = load(userId);
+        // Dentro de la transacción que lo agregó se leen también sus altas sin commit: no se guarda
+        Set<Membership> pending = currentPendingAdditions();
+        if (pending != null && pending.stream().anyMatch(membership -> membership.userId().equals(userId))) {
+            return trips;
+        }
+        synchronized (tripsByUser) {
+            // Si hubo un cambio mientras se consultaba, lo leído puede estar viejo: no se guarda
+            if (generation == loadedAt) {
+                put(userId, trips);
+            }
+        }
+        return trips;
+    }
+
+    private long[] load(Long userId) {
+        return jdbcTemplate.queryForList("SELECT trip_id FROM users_trip WHERE user_id = ? ORDER BY trip_id",
+                Long.class, userId).stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private Map<Long, long[]> loadAll(List<Long> userIds) {
+        Map<Long, List<Long>> trips = new HashMap<>();
+        jdbcTemplate.query("SELECT user_id, trip_id FROM users_trip WHERE user_id = ANY (?) ORDER BY user_id, trip_id",
+                rs -> {
+                    trips.computeIfAbsent(rs.getLong(1), id -> new ArrayList<>()).add(rs.getLong(2));
+                },
+                (Object) userIds.toArray(new Long[0]));
+        Map<Long, long[]> result = new HashMap<>();
+        trips.forEach((userId, ids) -> result.put(userId, ids.stream().mapToLong(Long::longValue).toArray()));
+        return result;
+    }
+
+    /**
+     * Agrega o quita el viaje del usuario si está cargado (si no, se cargará de la base)
+     */
+    private void setMember(Long userId, Long tripId, boolean member) {
+        generation++;
+        long[] trips = tripsByUser.get(userId);
+        if (trips == null) {
+            return;
+        }
+        int position = Arrays.binarySearch(trips, tripId);
+        if (member && position < 0) {
+            int insertAt = -position - 1;
+            long[] updated = new long[trips.length + 1];
+            System.arraycopy(trips, 0, updated, 0, insertAt);
+            updated[insertAt] = tripId;
+            System.arraycopy(trips, insertAt, updated, insertAt + 1, trips.length - insertAt);
+            put(userId, updated);
+        } else if (!member && position >= 0) {
+            put(userId, without(trips, position));
+        }
+    }
+
+    /**
+     * Quita el viaje de todos los usuarios cargados
+     *
+     * @return los usuarios que lo tenían
+     */
+    private List<Long> removeTrip(Long tripId) {
+        generation++;
+        List<Long> affected = new ArrayList<>();
+        for (Map.Entry<Long, long[]> entry : tripsByUser.entrySet()) {
+            int position = Arrays.binarySearch(entry.getValue(), tripId);
+            if (position >= 0) {
+                affected.add(entry.getKey());
+            }
+        }
+        for (Long userId : affected) {
+            long[] trips = tripsByUser.get(userId);
+            put(userId, without(trips, Arrays.binarySearch(trips, tripId)));
+        }
+        return affected;
+    }
+
+    private void evict(Long userId) {
+        generation++;
+        long[] removed = tripsByUser.remove(userId);
+        if (removed != null) {
+            cachedTripIds -= removed.length;
+        }
+    }
+
+    private void put(Long userId, long[] trips) {
+        if (maxUsers <= 0) {
+            return;
+        }
+        long[] previous = tripsByUser.put(userId, trips);
+        cachedTripIds += trips.length - (previous != null ? previous.length : 0);
+        // Se descartan los menos usados hasta volver a los límites
+        Iterator<long[]> eldest = tripsByUser.values().iterator();
+        while ((tripsByUser.size() > maxUsers || cachedTripIds > maxTripIds) && eldest.hasNext()) {
+            cachedTripIds -= eldest.next().length;
+            eldest.remove();
+        }
+    }
+
+    private static long[] without(long[] trips, int position) {
+        long[] updated = new long[trips.length - 1];
+        System.arraycopy(trips, 0, updated, 0, position);
+        System.arraycopy(trips, position + 1, updated, position, trips.length - position - 1);
+        return updated;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<Membership> currentPendingAdditions() {
+        return (Set<Membership>) TransactionSynchronizationManager.getResource(pendingAdditionsKey);
+    }
+
+    /**
+     * Altas de la transacción en curso, que se descartan al terminarla (se haya confirmado o no)
+     */
+    private Set<Membership> pendingAdditions() {
+        Set<Membership> pending = currentPendingAdditions();
+        if (pending != null) {
+            return pending;
+        }
+        Set<Membership> created = new HashSet<>();
+        TransactionSynchronizationManager.bindResource(pendingAdditionsKey, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void suspend() {
+                TransactionSynchronizationManager.unbindResource(pendingAdditionsKey);
+            }
+
+            @Override
+            public void resume() {
+                TransactionSynchronizationManager.bindResource(pendingAdditionsKey, created);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(pendingAdditionsKey);
+            }
+        });
+        return created;
+    }
+
+    private record Membership(Long userId, Long tripId) {
+    }
+
+    private void afterCompletion(Consumer<Boolean> action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                synchronized (tripsByUser) {
+                    action.accept(status == STATUS_COMMITTED);
+                }
+            }
+        });
+    }
+}
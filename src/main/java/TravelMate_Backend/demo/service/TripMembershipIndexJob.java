@@ -0,0 +1,25 @@
+package TravelMate_Backend.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Verifica periódicamente el índice de participantes contra {@code users_trip}
+ */
+@Component
+public class TripMembershipIndexJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(TripMembershipIndexJob.class);
+
+    @Autowired
+    private TripMembershipIndex membershipIndex;
+
+    @Scheduled(cron = "${trips.membership.verify-cron:-}")
+    public void verify() {
+        int repaired = membershipIndex.verifyAndRepair();
+        logger.info("Verificación del índice de participantes: {} usuarios corregidos", repaired);
+    }
+}
@@ -0,0 +1,217 @@
+package TravelMate_Backend.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Termina de borrar los viajes eliminados. {@code TripServices.deleteTrip} solo marca el viaje
+ * ({@code trips.deleted_at}) y quita a sus participantes, con lo que deja de verse enseguida; acá se
+ * borran en segundo plano sus compras, tips, billeteras, destinos e imágenes y por último la fila
+ * del viaje.
+ *
+ * Todo se borra por lotes de {@code trips.purge.batch-size} filas, cada lote en su propia
+ * transacción corta, así un viaje con miles de compras no bloquea las tablas ni hace esperar al
+ * request. Si la purga se corta a mitad de camino el viaje sigue marcado y lo retoma la pasada
+ * periódica ({@code trips.purge.sweep-delay-ms}).
+ */
+@Service
+public class TripPurgeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TripPurgeService.class);
+
+    private static final String PENDING_INDEX = "idx_trips_deleted_at";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TripStatsCache tripStatsCache;
+
+    @Autowired
+    @Qualifier("tripPurgeExecutor")
+    private ExecutorService tripPurgeExecutor;
+
+    @Value("${trips.purge.batch-size:500}")
+    private int batchSize;
+
+    // Un archivo recién guardado puede ser de una fila que todavía no hizo commit
+    @Value("${trips.purge.blob-min-age-minutes:60}")
+    private long blobMinAgeMinutes;
+
+    // Viajes que se están purgando, para que la pasada periódica no repita uno en curso
+    private final Set<Long> purging = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Índice parcial para encontrar los viajes pendientes sin recorrer la tabla. Se crea al arrancar,
+     * cuando Hibernate ya agregó la columna {@code deleted_at}.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensurePendingIndex() {
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + PENDING_INDEX
+                + " ON trips (deleted_at) WHERE deleted_at IS NOT NULL");
+    }
+
+    /**
+     * Encola la purga para cuando termine la transacción que marcó el viaje como borrado
+     */
+    public void scheduleAfterCommit(Long tripId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    schedule(tripId);
+                }
+            });
+        } else {
+            schedule(tripId);
+        }
+    }
+
+    public void schedule(Long tripId) {
+        try {
+            tripPurgeExecutor.execute(() -> purgeQuietly(tripId));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Cola de purga llena, el viaje {} se borra en la próxima pasada", tripId);
+        }
+    }
+
+    /**
+     * Purga los viajes que quedaron marcados (rechazados por la cola o cortados por un reinicio)
+     */
+    @Scheduled(fixedDelayString = "${trips.purge.sweep-delay-ms:300000}",
+            initialDelayString = "${trips.purge.sweep-delay-ms:300000}")
+    public void purgePending() {
+        List<Long> tripIds = jdbcTemplate.queryForList(
+                "SELECT id FROM trips WHERE deleted_at IS NOT NULL ORDER BY deleted_at LIMIT 100", Long.class);
+        tripIds.forEach(this::purgeQuietly);
+    }
+
+    /**
+     * Borra todo lo del viaje, si está marcado como borrado
+     *
+     * @return si se borró (false si no estaba marcado o ya lo estaba purgando otro hilo)
+     */
+    public boolean purge(Long tripId) {
+        if (!purging.add(tripId)) {
+            return false;
+        }
+        try {
+            Boolean pending = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM trips WHERE id = ? AND deleted_at IS NOT NULL)", Boolean.class, tripId);
+            if (!Boolean.TRUE.equals(pending)) {
+                return false;
+            }
+            long purchases = deleteInBatches("purchase", tripId);
+            long tips = deleteTips(tripId);
+            long wallets = deleteInBatches("wallet", tripId);
+            deleteInBatches("trip_destinations", tripId);
+            int images = deleteImages(tripId);
+            jdbcTemplate.update("DELETE FROM trips WHERE id = ? AND deleted_at IS NOT NULL", tripId);
+            tripStatsCache.forgetTrip(tripId);
+            logger.info("Viaje {} purgado: {} compras, {} tips, {} billeteras, {} imágenes",
+                    tripId, purchases, tips, wallets, images);
+            return true;
+        } finally {
+            purging.remove(tripId);
+        }
+    }
+
+    private void purgeQuietly(Long tripId) {
+        try {
+            purge(tripId);
+        } catch (Exception e) {
+            logger.warn("No se pudo purgar el viaje {}, se reintenta en la próxima pasada: {}", tripId, e.getMessage());
+        }
+    }
+
+    /**
+     * Borra las filas de la tabla que apuntan al viaje, de a un lote por sentencia (cada una es su
+     * propia transacción)
+     */
+    private long deleteInBatches(String table, Long tripId) {
+        String sql = "DELETE FROM " + table + " WHERE ctid = ANY (ARRAY(SELECT ctid FROM " + table
+                + " WHERE trip_id = ? LIMIT ?))";
+        long deleted = 0;
+        int batch;
+        do {
+            batch = jdbcTemplate.update(sql, tripId, batchSize);
+            deleted += batch;
+        } while (batch == batchSize);
+        return deleted;
+    }
+
+    /**
+     * Los tips tienen sus tipos en {@code tip_types}: cada lote borra los tipos y los tips juntos
+     */
+    private long deleteTips(Long tripId) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        long deleted = 0;
+        int batch;
+        do {
+            batch = transaction.execute(status -> {
+                List<Long> tipIds = jdbcTemplate.queryForList(
+                        "SELECT id FROM tips WHERE trip_id = ? ORDER BY id LIMIT ?", Long.class, tripId, batchSize);
+                if (tipIds.isEmpty()) {
+                    return 0;
+                }
+                Long[] ids = tipIds.toArray(new Long[0]);
+                jdbcTemplate.update("DELETE FROM tip_types WHERE tip_id = ANY (?)", (Object) ids);
+                return jdbcTemplate.update("DELETE FROM tips WHERE id = ANY (?)", (Object) ids);
+            });
+            deleted += batch;
+        } while (batch == batchSize);
+        return deleted;
+    }
+
+    /**
+     * Borra la imagen del viaje y sus miniaturas si ninguna otra fila usa el mismo archivo
+     */
+    private int deleteImages(Long tripId) {
+        Set<String> hashes = new LinkedHashSet<>(jdbcTemplate.queryForList(
+                "SELECT image_hash FROM trips WHERE id = ? AND image_hash IS NOT NULL " +
+                "UNION ALL SELECT e.value FROM trips t, jsonb_each_text(t.image_thumbnails) e WHERE t.id = ?",
+                String.class, tripId, tripId));
+        Duration minAge = Duration.ofMinutes(blobMinAgeMinutes);
+        int deleted = 0;
+        for (String hash : hashes) {
+            if (!isReferencedElsewhere(hash, tripId) && blobStore.deleteIfOlderThan(hash, minAge)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    private boolean isReferencedElsewhere(String hash, Long tripId) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM trips WHERE image_hash = ? AND id <> ?) " +
+                "OR EXISTS (SELECT 1 FROM trips t, jsonb_each_text(t.image_thumbnails) e WHERE e.value = ? AND t.id <> ?) " +
+                "OR EXISTS (SELECT 1 FROM users WHERE profile_picture_hash = ?)",
+                Boolean.class, hash, tripId, hash, tripId, hash));
+    }
+}
@@ -2,21 +2,25 @@ package TravelMate_Backend.demo.service;
 
 import TravelMate_Backend.demo.dto.TripCreate;
 import TravelMate_Backend.demo.dto.TripDetailsResponse;
+import TravelMate_Backend.demo.dto.TripPage;
+import TravelMate_Backend.demo.dto.TripSummary;
 import TravelMate_Backend.demo.model.*;
 import TravelMate_Backend.demo.repository.TripRepository;
 import TravelMate_Backend.demo.repository.UserRepository;
-import TravelMate_Backend.demo.repository.DestinationRepository;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
 import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.*;
@@ -25,6 +29,8 @@ import java.util.stream.Collectors;
 @Service
 @Transactional
 public class TripServices {
+    private static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private TripRepository tripRepository;
 
@@ -32,7 +38,7 @@ public class TripServices {
     private UserRepository userRepository;
     
     @Autowired
-    private DestinationRepository destinationRepository;
+    private DestinationService destinationService;
     
     @PersistenceContext
     private EntityManager entityManager;
@@ -43,14 +49,38 @@ public class TripServices {
     @Autowired
     private WalletService walletService;
 
+    @Autowired
+    private UserStatsRollupService statsRollupService;
+
+    @Autowired
+    private TripStatsCache tripStatsCache;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private TripImageThumbnailer thumbnailer;
+
+    @Autowired
+    private TripDestinationLoader tripDestinationLoader;
+
+    @Autowired
+    private TripMembershipIndex membershipIndex;
+
+    @Autowired
+    private TripPurgeService tripPurgeService;
+
+    @Autowired
+    private JoinCodeCache joinCodeCache;
+
     public Trip createTrip(TripCreate tripDto, Long userId, MultipartFile imageFile) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
 
         Trip trip = new Trip();
         if (imageFile != null && !imageFile.isEmpty()) {
-            try {
-                trip.setImage(imageFile.getBytes());
+            try (InputStream image = imageFile.getInputStream()) {
+                trip.setImageHash(blobStore.store(image));
             } catch (IOException e) {
                 throw new RuntimeException("Error al procesar la imagen", e);
             }
@@ -63,13 +93,16 @@ public class TripServices {
         trip.setAdminIds(new HashSet<>(List.of(userId)));
 
         Trip savedTrip = tripRepository.save(trip);
-        
-        // Crear la relación usuario-viaje usando SQL directo para evitar ConcurrentModificationException
-        createUserTripRelation(userId, savedTrip.getId());
+        joinCodeCache.putAfterCommit(joinCode, savedTrip.getId());
         
         // Crear TripDestination para origen y destino si están disponibles (después de guardar el trip)
         createTripDestinations(savedTrip, tripDto);
 
+        // Las miniaturas se generan en segundo plano cuando el viaje ya está guardado
+        if (savedTrip.getImageHash() != null) {
+            thumbnailer.scheduleAfterCommit(savedTrip.getId(), savedTrip.getImageHash());
+        }
+
         // Crear billeteras: general e individual del usuario creador
         BigDecimal generalAmount = tripDto.getCost() != null ? tripDto.getCost() : BigDecimal.ZERO;
         TravelMate_Backend.demo.model.Currency currency = tripDto.getCurrency() != null ? tripDto.getCurrency() : TravelMate_Backend.demo.model.Currency.PESOS;
@@ -80,25 +113,107 @@ public class TripServices {
         // Crear billetera individual del usuario creador
         walletService.createIndividualWallet(savedTrip, user, currency);
 
+        // Crear la relación usuario-viaje usando SQL directo para evitar ConcurrentModificationException.
+        // Va al final: antes del INSERT Hibernate manda juntos el viaje, el destino y las billeteras
+        createUserTripRelation(userId, savedTrip.getId());
+
         trip.setStatus(determineStatus(trip));
 
         return trip;
     }
 
-    public List<Trip> getUserTrips(Long userId) {
+    public List<TripSummary> getUserTrips(Long userId) {
+        return getUserTrips(userId, null);
+    }
+
+    /**
+     * Todos los viajes del usuario, opcionalmente solo los de un estado
+     */
+    public List<TripSummary> getUserTrips(Long userId, String status) {
         // Verificar que el usuario existe
         userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
 
-        // Query directa a los trips del usuario
-        List<Trip> trips = tripRepository.findByUsersId(userId);
+        // Solo las columnas del listado, sin la imagen
+        TripStatusFilter filter = TripStatusFilter.of(status, LocalDate.now());
+        List<TripSummary> trips = tripRepository.findSummariesByUserId(userId,
+                filter.minStart(), filter.maxStart(), filter.minEnd(), filter.maxEnd());
+        completeSummaries(trips);
+        return trips;
+    }
 
-        return trips.stream()
-                .map(trip -> {
-                    trip.setStatus(determineStatus(trip));
-                    return trip;
-                })
-                .collect(Collectors.toList());
+    /**
+     * Una página de los viajes del usuario, del más reciente al más viejo por fecha de inicio. La
+     * primera página se pide sin cursor; las siguientes con el último viaje de la anterior.
+     */
+    public TripPage getUserTripsPage(Long userId, String status, LocalDate afterDateI, Long afterId, int limit) {
+        if ((afterDateI == null) != (afterId == null)) {
+            throw new RuntimeException("afterDateI y afterId se envían juntos");
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+
+        TripStatusFilter filter = TripStatusFilter.of(status, LocalDate.now());
+        // Se pide uno más para saber si hay otra página
+        List<TripSummary> trips = new ArrayList<>(tripRepository.findSummaryPageByUserId(userId,
+                filter.minStart(), filter.maxStart(), filter.minEnd(), filter.maxEnd(),
+                afterDateI != null ? afterDateI : TripStatusFilter.firstPageDate(),
+                afterId != null ? afterId : Long.MAX_VALUE,
+                Limit.of(pageSize + 1)));
+        boolean hasMore = trips.size() > pageSize;
+        if (hasMore) {
+            trips.remove(pageSize);
+        }
+        completeSummaries(trips);
+
+        TripSummary last = hasMore ? trips.get(trips.size() - 1) : null;
+        return new TripPage(trips, last != null ? last.getDateI() : null, last != null ? last.getId() : null, hasMore);
+    }
+
+    /**
+     * Completa los datos del listado que no salen de la consulta: estado, destino e imágenes
+     */
+    private void completeSummaries(List<TripSummary> trips) {
+        Map<Long, List<TripDestination>> destinations = tripDestinationLoader.loadByTripIds(
+                trips.stream().map(TripSummary::getId).collect(Collectors.toList()));
+
+        for (TripSummary trip : trips) {
+            trip.setStatus(determineStatus(trip.getDateI(), trip.getDateF()));
+            List<TripDestination> tripDestinations = destinations.get(trip.getId());
+            if (tripDestinations != null) {
+                TripDestination first = tripDestinations.get(0);
+                trip.setDestination(first.getDestination() != null
+                        ? first.getDestination().getName()
+                        : first.getDestinationAddress());
+            }
+            if (Boolean.TRUE.equals(trip.getHasImage())) {
+                // Con el hash en la URL se puede cachear sin revalidar
+                trip.setImageUrl("/api/trips/" + trip.getId() + "/image?v=" + trip.getImageHash());
+                if (trip.getImageThumbnails() != null) {
+                    Map<Integer, String> thumbnailUrls = new TreeMap<>();
+                    trip.getImageThumbnails().forEach((size, hash) -> thumbnailUrls.put(size,
+                            "/api/trips/" + trip.getId() + "/image?size=" + size + "&v=" + hash));
+                    trip.setThumbnailUrls(thumbnailUrls);
+                }
+            }
+        }
+    }
+
+    /**
+     * Hash de la imagen del viaje en el {@link BlobStore}. Con {@code size} se devuelve la miniatura
+     * de ese tamaño, o la imagen original si todavía no se generó.
+     */
+    public String getTripImageHash(Long tripId, Integer size) {
+        Trip trip = tripRepository.findById(tripId)
+                .orElseThrow(() -> new RuntimeException("Viaje no encontrado"));
+        if (trip.getImageHash() == null) {
+            throw new RuntimeException("El viaje no tiene imagen");
+        }
+        if (size != null && trip.getImageThumbnails() != null && trip.getImageThumbnails().containsKey(size)) {
+            return trip.getImageThumbnails().get(size);
+        }
+        return trip.getImageHash();
     }
 
     public void addUserToTrip(Long newUserId, Long tripId, Long currentUserId) {
@@ -116,6 +231,9 @@ public class TripServices {
 
         newUser.getTrips().add(trip);
         userRepository.save(newUser);
+        membershipIndex.memberAdded(newUserId, tripId);
+        statsRollupService.memberAdded(newUserId, tripId);
+        tripStatsCache.invalidateTrip(tripId);
 
         // Crear billetera individual para el nuevo usuario
         // Obtener la moneda de la billetera general del viaje
@@ -150,6 +268,9 @@ public class TripServices {
             
             // 1️⃣ Borrar relaciones en users_trip
             jdbcTemplate.update("DELETE FROM users_trip WHERE trip_id = ? AND user_id = ?", tripId, userToRemoveId);
+            membershipIndex.memberRemoved(userToRemoveId, tripId);
+            statsRollupService.memberRemoved(userToRemoveId, tripId);
+            tripStatsCache.invalidateTrip(tripId);
 
             System.out.println("✅ Usuario eliminado del viaje: " + tripId);
         } catch (Exception e) {
@@ -162,6 +283,7 @@ public class TripServices {
         Trip trip = getTripById(tripId, userId);
         MockTrip(tripDto, trip);
         trip = tripRepository.save(trip);
+        tripStatsCache.invalidateTrip(tripId);
         trip.setStatus(determineStatus(trip));
         return trip;
     }
@@ -179,6 +301,7 @@ public class TripServices {
             // Simplemente actualizar el nombre sin verificar permisos por ahora
             trip.setName(newName);
             Trip savedTrip = tripRepository.save(trip);
+            tripStatsCache.invalidateTrip(tripId);
             
             System.out.println("updateTripName - Nombre actualizado exitosamente");
             return savedTrip;
@@ -201,6 +324,7 @@ public class TripServices {
         trip.setDateI(request.getDateI());
         trip.setDateF(request.getDateF());
         trip.setStatus(determineStatus(trip));
+        tripStatsCache.invalidateTrip(tripId);
         
         return tripRepository.save(trip);
     }
@@ -218,7 +342,7 @@ public class TripServices {
             }
             
             // Cargar TripDestinations existentes
-            List<TripDestination> tripDestinations = loadTripDestinations(tripId);
+            List<TripDestination> tripDestinations = tripDestinationLoader.loadByTripId(tripId);
             
             // Si hay TripDestinations, actualizar usando actualización directa en BD
             if (!tripDestinations.isEmpty()) {
@@ -229,7 +353,7 @@ public class TripServices {
                 System.out.println("TripServices.updateTripLocations - Destination ID actual: " + currentDestinationId);
                 
                 // Actualizar destino si es diferente
-                Destination destination = findOrCreateDestination(request.getDestination());
+                Destination destination = destinationService.findOrCreate(request.getDestination());
                 System.out.println("TripServices.updateTripLocations - Nuevo Destination ID: " + destination.getId());
                 
                 // Si el destination_id cambió, necesitamos eliminar el antiguo y crear uno nuevo
@@ -302,12 +426,13 @@ public class TripServices {
             } else {
                 // Si no hay TripDestinations, crear uno nuevo
                 System.out.println("TripServices.updateTripLocations - No hay TripDestinations existentes, creando uno nuevo");
-                Destination destination = findOrCreateDestination(request.getDestination());
+                Destination destination = destinationService.findOrCreate(request.getDestination());
                 createTripDestinationWithOriginAndDestination(trip, destination, 
                     createTripCreateFromLocationRequest(request));
             }
             
             System.out.println("TripServices.updateTripLocations - Actualización completada exitosamente");
+            tripStatsCache.invalidateTrip(tripId);
             return tripRepository.save(trip);
             
         } catch (Exception e) {
@@ -357,7 +482,7 @@ public class TripServices {
                 .orElseThrow(() -> new RuntimeException("Viaje no encontrado"));
 
         // Verificar acceso sin tocar la relación
-        boolean userParticipates = tripRepository.existsByIdAndUsersId(tripId, userId);
+        boolean userParticipates = membershipIndex.isMember(tripId, userId);
 
         if (!userParticipates) {
             throw new RuntimeException("No tienes acceso a este viaje");
@@ -387,7 +512,7 @@ public class TripServices {
         
         // Cargar información de TripDestination de forma segura
         try {
-            List<TripDestination> tripDestinations = loadTripDestinations(tripId);
+            List<TripDestination> tripDestinations = tripDestinationLoader.loadByTripId(tripId);
             if (!tripDestinations.isEmpty()) {
                 TripDestination tripDestination = tripDestinations.get(0); // Tomar el primero
                 
@@ -449,48 +574,39 @@ public class TripServices {
         
         return response;
     }
+    /**
+     * Marca el viaje como borrado y quita a sus participantes, con lo que deja de verse en todas
+     * las consultas. Compras, tips, billeteras, destinos e imágenes se borran después en segundo
+     * plano ({@link TripPurgeService}).
+     */
     @Transactional
     public void deleteTrip(Long tripId, Long userId) {
-        try {
-            // Verificar acceso del usuario
-            if (!userHasAccess(tripId, userId)) {
-                throw new RuntimeException("No tienes acceso a este viaje");
-            }
-
-            // 1️⃣ Borrar relaciones en users_trip
-            jdbcTemplate.update("DELETE FROM users_trip WHERE trip_id = ?", tripId);
-
-            // 2️⃣ Borrar relaciones con destinos, si existen
-            jdbcTemplate.update("DELETE FROM trip_destinations WHERE trip_id = ?", tripId);
-
-            // Borrar la relacion con wallet
-            jdbcTemplate.update("DELETE FROM wallet WHERE trip_id = ?", tripId);
+        // Verificar acceso del usuario
+        if (!userHasAccess(tripId, userId)) {
+            throw new RuntimeException("No tienes acceso a este viaje");
+        }
 
-            // 3️⃣ Borrar el viaje en sí
-            jdbcTemplate.update("DELETE FROM trips WHERE id = ?", tripId);
+        // Quitar los gastos del viaje de las estadísticas precalculadas
+        statsRollupService.tripDeleted(tripId);
 
-            System.out.println("✅ Viaje eliminado correctamente (SQL directo): " + tripId);
-        } catch (Exception e) {
-            System.err.println("❌ Error eliminando trip: " + e.getMessage());
-            e.printStackTrace();
-        }
+        jdbcTemplate.update("UPDATE trips SET deleted_at = now() WHERE id = ? AND deleted_at IS NULL", tripId);
+        jdbcTemplate.update("DELETE FROM users_trip WHERE trip_id = ?", tripId);
+        membershipIndex.tripDeleted(tripId);
+        joinCodeCache.evictTrip(tripId);
+        tripStatsCache.invalidateTrip(tripId);
 
+        tripPurgeService.scheduleAfterCommit(tripId);
     }
 
     private boolean userHasAccess(Long tripId, Long userId) {
-        Integer count = jdbcTemplate.queryForObject(
-                "SELECT COUNT(*) FROM users_trip WHERE trip_id = ? AND user_id = ?",
-                Integer.class,
-                tripId, userId
-        );
-        return count != null && count > 0;
+        return membershipIndex.isMember(tripId, userId);
     }
 
     public List<User> getTripParticipants(Long tripId, Long userId) {
         tripRepository.findById(tripId)
                 .orElseThrow(() -> new RuntimeException("Viaje no encontrado"));
 
-        boolean userParticipates = tripRepository.existsByIdAndUsersId(tripId, userId);
+        boolean userParticipates = membershipIndex.isMember(tripId, userId);
 
         if (!userParticipates) {
             throw new RuntimeException("No tienes acceso a este viaje");
@@ -502,11 +618,15 @@ public class TripServices {
     }
 
     private String determineStatus(Trip trip) {
+        return determineStatus(trip.getDateI(), trip.getDateF());
+    }
+
+    private String determineStatus(LocalDate dateI, LocalDate dateF) {
         LocalDate today = LocalDate.now();
 
-        if (trip.getDateF().isBefore(today)) {
+        if (dateF.isBefore(today)) {
             return "completed";
-        } else if (trip.getDateI().isAfter(today)) {
+        } else if (dateI.isAfter(today)) {
             return "planning";
         } else {
             return "active";
@@ -520,7 +640,7 @@ public class TripServices {
                 tripDto.getOrigin() != null && !tripDto.getOrigin().trim().isEmpty()) {
                 
                 // Crear destino principal
-                Destination destination = findOrCreateDestination(tripDto.getDestination());
+                Destination destination = destinationService.findOrCreate(tripDto.getDestination());
                 
                 // Crear un solo TripDestination con origen y destino
                 createTripDestinationWithOriginAndDestination(trip, destination, tripDto);
@@ -533,23 +653,6 @@ public class TripServices {
         }
     }
     
-    private Destination findOrCreateDestination(String destinationName) {
-        // Buscar destino existente
-        Optional<Destination> existingDestination = destinationRepository.findByName(destinationName);
-        
-        if (existingDestination.isPresent()) {
-            return existingDestination.get();
-        }
-        
-        // Crear nuevo destino
-        Destination newDestination = new Destination();
-        newDestination.setName(destinationName);
-        newDestination.setCountry(extractCountry(destinationName));
-        newDestination.setCost(BigDecimal.ZERO);
-        
-        return destinationRepository.save(newDestination);
-    }
-    
     private void createTripDestinationWithOriginAndDestination(Trip trip, Destination destination, TripCreate tripDto) {
         TripDestination tripDestination = new TripDestination();
         
@@ -594,7 +697,6 @@ public class TripServices {
         // Guardar el TripDestination directamente en la base de datos
         try {
             entityManager.persist(tripDestination);
-            entityManager.flush();
             System.out.println("TripDestination creado exitosamente con origen y destino");
         } catch (Exception e) {
             System.err.println("Error guardando TripDestination: " + e.getMessage());
@@ -602,96 +704,6 @@ public class TripServices {
         }
     }
     
-    private String extractCountry(String destinationName) {
-        // Extraer país del nombre del destino (última parte después de la coma)
-        String[] parts = destinationName.split(",");
-        if (parts.length > 1) {
-            return parts[parts.length - 1].trim();
-        }
-        return "Unknown";
-    }
-    
-    private List<TripDestination> loadTripDestinations(Long tripId) {
-        try {
-            // Usar consulta más específica para evitar problemas
-            String sql = "SELECT origin_address, origin_latitude, origin_longitude, " +
-                        "destination_address, destination_latitude, destination_longitude, " +
-                        "transport_mode, destination_id FROM trip_destinations WHERE trip_id = ?";
-            List<Object[]> results = entityManager.createNativeQuery(sql)
-                    .setParameter(1, tripId)
-                    .getResultList();
-            
-            System.out.println("TripServices.loadTripDestinations - Consulta ejecutada para tripId: " + tripId);
-            System.out.println("TripServices.loadTripDestinations - Resultados encontrados: " + results.size());
-            
-            List<TripDestination> tripDestinations = new ArrayList<>();
-            
-            for (Object[] row : results) {
-                System.out.println("TripServices.loadTripDestinations - Procesando fila: " + java.util.Arrays.toString(row));
-                
-                TripDestination tripDestination = new TripDestination();
-                
-                // Crear ID compuesto
-                TripDestinationId id = new TripDestinationId();
-                id.setTripId(tripId);
-                id.setDestinationId(((Number) row[7]).longValue()); // destination_id
-                tripDestination.setId(id);
-                
-                // Mapear campos según la nueva consulta:
-                // 0: origin_address, 1: origin_latitude, 2: origin_longitude,
-                // 3: destination_address, 4: destination_latitude, 5: destination_longitude,
-                // 6: transport_mode, 7: destination_id
-                
-                if (row[0] != null) { // origin_address
-                    tripDestination.setOriginAddress((String) row[0]);
-                    System.out.println("TripServices.loadTripDestinations - Origin address: " + row[0]);
-                }
-                if (row[1] != null) { // origin_latitude
-                    tripDestination.setOriginLatitude(new BigDecimal(row[1].toString()));
-                    System.out.println("TripServices.loadTripDestinations - Origin latitude: " + row[1]);
-                }
-                if (row[2] != null) { // origin_longitude
-                    tripDestination.setOriginLongitude(new BigDecimal(row[2].toString()));
-                    System.out.println("TripServices.loadTripDestinations - Origin longitude: " + row[2]);
-                }
-                if (row[3] != null) { // destination_address
-                    tripDestination.setDestinationAddress((String) row[3]);
-                    System.out.println("TripServices.loadTripDestinations - Destination address: " + row[3]);
-                }
-                if (row[4] != null) { // destination_latitude
-                    tripDestination.setDestinationLatitude(new BigDecimal(row[4].toString()));
-                    System.out.println("TripServices.loadTripDestinations - Destination latitude: " + row[4]);
-                }
-                if (row[5] != null) { // destination_longitude
-                    tripDestination.setDestinationLongitude(new BigDecimal(row[5].toString()));
-                    System.out.println("TripServices.loadTripDestinations - Destination longitude: " + row[5]);
-                }
-                if (row[6] != null) { // transport_mode
-                    tripDestination.setTransportMode((String) row[6]);
-                    System.out.println("TripServices.loadTripDestinations - Transport mode: " + row[6]);
-                }
-                
-                // Cargar el destino relacionado
-                Long destinationId = ((Number) row[7]).longValue();
-                Destination destination = destinationRepository.findById(destinationId).orElse(null);
-                if (destination != null) {
-                    tripDestination.setDestination(destination);
-                    System.out.println("TripServices.loadTripDestinations - Destination name: " + destination.getName());
-                }
-                
-                tripDestinations.add(tripDestination);
-            }
-            
-            System.out.println("TripServices.loadTripDestinations - Cargados " + tripDestinations.size() + " TripDestinations");
-            return tripDestinations;
-            
-        } catch (Exception e) {
-            System.err.println("TripServices.loadTripDestinations - Error: " + e.getMessage());
-            e.printStackTrace();
-            return new ArrayList<>();
-        }
-    }
-    
     private void createUserTripRelation(Long userId, Long tripId) {
         try {
             // Crear la relación usuario-viaje usando SQL directo
@@ -700,6 +712,9 @@ public class TripServices {
                     .setParameter(1, userId)
                     .setParameter(2, tripId)
                     .executeUpdate();
+            membershipIndex.memberAdded(userId, tripId);
+            statsRollupService.memberAdded(userId, tripId);
+            tripStatsCache.invalidateTrip(tripId);
             System.out.println("Relación usuario-viaje creada: userId=" + userId + ", tripId=" + tripId);
         } catch (Exception e) {
             System.err.println("Error creando relación usuario-viaje: " + e.getMessage());
@@ -707,36 +722,37 @@ public class TripServices {
         }
     }
 
+    /**
+     * Une al usuario al viaje del código. El código se resuelve con {@link JoinCodeCache} (también
+     * los que no existen), así unirse cuesta un INSERT en {@code users_trip} y otro en
+     * {@code wallet}.
+     */
     @Transactional
     public void joinTripByCode(String code, Long userId) {
-        Trip trip = tripRepository.findByJoinCode(code)
+        Long tripId = joinCodeCache.get(code, tripRepository::findIdByJoinCode)
                 .orElseThrow(() -> new RuntimeException("Código inválido o viaje no encontrado"));
 
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
-
-        boolean exists = entityManager.createNativeQuery(
-                        "SELECT COUNT(*) FROM users_trip WHERE user_id = ? AND trip_id = ?")
-                .setParameter(1, userId)
-                .setParameter(2, trip.getId())
-                .getSingleResult() != null &&
-                ((Number) entityManager.createNativeQuery(
-                                "SELECT COUNT(*) FROM users_trip WHERE user_id = ? AND trip_id = ?")
-                        .setParameter(1, userId)
-                        .setParameter(2, trip.getId())
-                        .getSingleResult()).intValue() > 0;
-
-        if (exists) {
+        int inserted;
+        try {
+            inserted = jdbcTemplate.update(
+                    "INSERT INTO users_trip (user_id, trip_id) VALUES (?, ?) ON CONFLICT DO NOTHING", userId, tripId);
+        } catch (DataIntegrityViolationException e) {
+            throw new RuntimeException("Usuario no encontrado");
+        }
+        if (inserted == 0) {
             throw new RuntimeException("El usuario ya está en este viaje");
         }
 
-        createUserTripRelation(userId, trip.getId());
-        
-        // Crear billetera individual para el nuevo usuario
-        // Obtener la moneda de la billetera general del viaje
-        TravelMate_Backend.demo.model.Currency currency = walletService.getGeneralWallet(trip.getId()).getCurrency();
-        walletService.createIndividualWallet(trip, user, currency);
-        
+        // Crear billetera individual para el nuevo usuario, con la moneda de la billetera general.
+        // Si no se crea, el viaje se borró después de cachear el código
+        if (!walletService.createIndividualWalletFromGeneral(tripId, userId)) {
+            joinCodeCache.evict(code);
+            throw new RuntimeException("Código inválido o viaje no encontrado");
+        }
+        membershipIndex.memberAdded(userId, tripId);
+        statsRollupService.memberAdded(userId, tripId);
+        tripStatsCache.invalidateTrip(tripId);
+
         System.out.println("usuario guardado");
     }
 
@@ -0,0 +1,179 @@
+package TravelMate_Backend.demo.service;
+
+import TravelMate_Backend.demo.dto.TripStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache de {@link StatsService#getTripStats(Long, Long)} por (viaje, usuario).
+ *
+ * Cada escritura que afecta las estadísticas de un viaje (compras, billeteras, participantes,
+ * fechas) le asigna un sello nuevo de un contador global que solo crece. Una entrada solo se usa si
+ * fue calculada con el sello actual del viaje y en el mismo día (el estado del viaje depende de la
+ * fecha); si no, se descarta. Además tiene un tamaño máximo (LRU) y un tiempo de vida.
+ *
+ * Los sellos se guardan solo para los últimos {@code stats.trip-cache.max-tracked-trips} viajes
+ * usados. Un viaje sin sello recibe uno nuevo al consultarlo, mayor que el de cualquier entrada ya
+ * guardada, así que olvidar un sello (por el límite o porque el viaje se purgó) solo provoca un
+ * fallo del cache, nunca un acierto viejo.
+ *
+ * {@link TripStats} es mutable, así que se guarda una copia ({@link TripStats#copy()}) y cada
+ * acierto devuelve otra: lo que haga un llamador con el resultado no le llega a los demás.
+ */
+@Component
+public class TripStatsCache {
+
+    @Value("${stats.trip-cache.max-entries:1000}")
+    private int maxEntries;
+
+    @Value("${stats.trip-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${stats.trip-cache.max-tracked-trips:10000}")
+    private int maxTrackedTrips;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    // Último sello de cada viaje
+    private final Map<Long, Long> stamps = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+            return size() > maxTrackedTrips;
+        }
+    };
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            if (size() > maxEntries) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Versión actual del viaje. Hay que leerla antes de consultar la base para que un cálculo
+     * concurrente con una escritura quede guardado con la versión vieja y no se reutilice.
+     */
+    public long currentVersion(Long tripId) {
+        synchronized (stamps) {
+            return stamps.computeIfAbsent(tripId, id -> clock.incrementAndGet());
+        }
+    }
+
+    /**
+     * @return las estadísticas cacheadas, o {@code null} si no hay una entrada vigente
+     */
+    public TripStats get(Long tripId, Long userId, long version) {
+        Key key = new Key(tripId, userId);
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && !entry.isValid(version, ttlSeconds)) {
+                entries.remove(key);
+                evictions.incrementAndGet();
+                entry = null;
+            }
+            if (entry == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return entry.stats.copy();
+        }
+    }
+
+    public void put(Long tripId, Long userId, long version, TripStats stats) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(new Key(tripId, userId), new Entry(version, stats.copy()));
+        }
+    }
+
+    /**
+     * Invalida las estadísticas del viaje. Si hay una transacción en curso se vuelve a incrementar
+     * la versión al confirmarla, así no queda cacheado nada leído antes del commit.
+     */
+    public void invalidateTrip(Long tripId) {
+        if (tripId == null) {
+            return;
+        }
+        bumpVersion(tripId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bumpVersion(tripId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Olvida el sello y las entradas de un viaje que ya no existe
+     */
+    public void forgetTrip(Long tripId) {
+        synchronized (stamps) {
+            stamps.remove(tripId);
+        }
+        synchronized (entries) {
+            entries.keySet().removeIf(key -> key.tripId().equals(tripId));
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        synchronized (entries) {
+            statistics.put("size", entries.size());
+        }
+        statistics.put("maxEntries", maxEntries);
+        synchronized (stamps) {
+            statistics.put("trackedTrips", stamps.size());
+        }
+        statistics.put("hits", hits.get());
+        statistics.put("misses", misses.get());
+        statistics.put("evictions", evictions.get());
+        return statistics;
+    }
+
+    private void bumpVersion(Long tripId) {
+        synchronized (stamps) {
+            stamps.put(tripId, clock.incrementAndGet());
+        }
+    }
+
+    private record Key(Long tripId, Long userId) {
+    }
+
+    private static class Entry {
+        private final long version;
+        private final TripStats stats;
+        private final LocalDate computedOn = LocalDate.now();
+        private final long computedAt = System.currentTimeMillis();
+
+        private Entry(long version, TripStats stats) {
+            this.version = version;
+            this.stats = stats;
+        }
+
+        private boolean isValid(long currentVersion, long ttlSeconds) {
+            return version == currentVersion
+                    && computedOn.equals(LocalDate.now())
+                    && System.currentTimeMillis() - computedAt <= ttlSeconds * 1000;
+        }
+    }
+}
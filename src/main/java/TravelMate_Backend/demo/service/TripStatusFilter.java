@@ -0,0 +1,40 @@
+package TravelMate_Backend.demo.service;
+
+import java.time.LocalDate;
+
+/**
+ * El estado de un viaje ("planning", "active", "completed") expresado como rangos sobre sus fechas,
+ * para filtrar en la base con el índice de {@code date_i} en lugar de calcular el estado de cada
+ * viaje en Java. Es la misma regla que {@code TripServices.determineStatus}.
+ */
+public record TripStatusFilter(LocalDate minStart, LocalDate maxStart, LocalDate minEnd, LocalDate maxEnd) {
+
+    private static final LocalDate MIN = LocalDate.of(1, 1, 1);
+    private static final LocalDate MAX = LocalDate.of(9999, 12, 31);
+
+    /**
+     * @param status estado pedido, o {@code null} para no filtrar
+     */
+    public static TripStatusFilter of(String status, LocalDate today) {
+        if (status == null || status.isBlank()) {
+            return new TripStatusFilter(MIN, MAX, MIN, MAX);
+        }
+        switch (status.trim().toLowerCase()) {
+            case "planning":
+                return new TripStatusFilter(today.plusDays(1), MAX, MIN, MAX);
+            case "active":
+                return new TripStatusFilter(MIN, today, today, MAX);
+            case "completed":
+                return new TripStatusFilter(MIN, MAX, MIN, today.minusDays(1));
+            default:
+                throw new RuntimeException("Estado inválido: " + status);
+        }
+    }
+
+    /**
+     * Cursor inicial de la paginación: antes que cualquier viaje
+     */
+    static LocalDate firstPageDate() {
+        return MAX;
+    }
+}
@@ -22,6 +22,12 @@ public class UserDetailsServiceImpl implements UserDetailsService {
     
     @Autowired
     UserRepository userRepository;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private UserSummaryCache userSummaryCache;
     
     @Override
     @Transactional
@@ -52,18 +58,19 @@ public class UserDetailsServiceImpl implements UserDetailsService {
             // Solo actualizar la imagen si se proporciona
             if (userUpdate.getProfilePictureUrl() != null &&
                     !userUpdate.getProfilePictureUrl().trim().isEmpty()) {
-                realUser.setProfilePictureUrl(userUpdate.getProfilePictureUrl());
+                setProfilePicture(realUser, userUpdate.getProfilePictureUrl());
             }
 
             // Guardar cambios
             User updatedUser = userRepository.save(realUser);
+            userSummaryCache.evict(updatedUser.getId());
 
             // Crear respuesta
             UserProfileResponse response = new UserProfileResponse(
                     updatedUser.getId(),
                     updatedUser.getName(),
                     updatedUser.getEmail(),
-                    updatedUser.getProfilePictureUrl(),
+                    profilePictureUrl(updatedUser),
                     updatedUser.getProvider().toString(),
                     updatedUser.getEmailVerified(),
                     updatedUser.getCreatedAt(),
@@ -82,6 +89,7 @@ public class UserDetailsServiceImpl implements UserDetailsService {
     public void deleteProfilePicture(User currentUser) {
         try {
             currentUser.setProfilePictureUrl(null);
+            currentUser.setProfilePictureHash(null);
             userRepository.save(currentUser);
 
             Map<String, String> response = new HashMap<>();
@@ -97,12 +105,40 @@ public class UserDetailsServiceImpl implements UserDetailsService {
     public String getPhoto(User currentUser) {
         User realUser = userRepository.findById(currentUser.getId())
                 .orElseThrow(() -> new RuntimeException("User not found"));
-        return realUser.getProfilePictureUrl();
+        return profilePictureUrl(realUser);
     }
 
     public String getPhotoByUserId(Long userId) {
-        User user = userRepository.findById(userId)
+        return profilePictureUrl(getUserById(userId));
+    }
+
+    public User getUserById(Long userId) {
+        return userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
+    }
+
+    /**
+     * Guarda la foto de perfil: las data URL que mandan los clientes van al {@link BlobStore} y en
+     * el usuario solo queda el hash; las URLs externas (como la de Google) se guardan tal cual
+     */
+    public void setProfilePicture(User user, String picture) {
+        if (BlobStore.isDataUrl(picture)) {
+            user.setProfilePictureHash(blobStore.storeDataUrl(picture));
+            user.setProfilePictureUrl(null);
+        } else {
+            user.setProfilePictureUrl(picture);
+            user.setProfilePictureHash(null);
+        }
+    }
+
+    /**
+     * Foto de perfil para las respuestas: la URL externa o, si la subió el usuario, la data URL
+     * armada desde el {@link BlobStore}
+     */
+    public String profilePictureUrl(User user) {
+        if (user.getProfilePictureHash() != null) {
+            return blobStore.dataUrl(user.getProfilePictureHash());
+        }
         return user.getProfilePictureUrl();
     }
 
@@ -113,6 +149,7 @@ public class UserDetailsServiceImpl implements UserDetailsService {
             // Esto se manejará en cascada si las relaciones están configuradas correctamente
             // Por ahora, eliminamos el usuario directamente
             userRepository.delete(currentUser);
+            userSummaryCache.evict(currentUser.getId());
         } catch (Exception e) {
             throw new RuntimeException("Error al eliminar la cuenta: " + e.getMessage());
         }
@@ -0,0 +1,214 @@
+package TravelMate_Backend.demo.service;
+
+import TravelMate_Backend.demo.model.Currency;
+import TravelMate_Backend.demo.model.Purchase;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * Índice en memoria con los gastos de un usuario (compras generales de sus viajes + sus compras
+ * individuales). Se arma una sola vez por request y todos los calculadores de
+ * {@link StatsService#getUserStats(Long)} leen de acá en lugar de consultar la base por viaje.
+ *
+ * Los datos se cargan por "buckets" (viaje, general/individual, mes de compra, moneda) para poder
+ * alimentarlo tanto con compras sueltas como con agregados ya calculados. La moneda "actual" de un
+ * viaje, mes o del total se resuelve igual que antes: la de la última compra recorriendo los viajes
+ * en orden, primero las generales y después las individuales, por id.
+ *
+ * Los montos se suman en {@link MoneyAccumulator} y se convierten a {@code BigDecimal} recién en los
+ * getters.
+ */
+public class UserExpenseIndex {
+
+    private final Map<Long, Integer> tripPositions = new HashMap<>();
+    private final Map<Long, TripTotals> tripTotals = new HashMap<>();
+    private final Map<YearMonth, PeriodTotals> periodTotals = new TreeMap<>();
+    private final MoneyAccumulator general = new MoneyAccumulator();
+    private final MoneyAccumulator individual = new MoneyAccumulator();
+    private Currency lastCurrency;
+    private long[] lastCurrencyRank;
+
+    /**
+     * @param tripIds ids de los viajes del usuario, en el orden en que se recorren
+     */
+    public UserExpenseIndex(List<Long> tripIds) {
+        for (int i = 0; i < tripIds.size(); i++) {
+            tripPositions.put(tripIds.get(i), i);
+        }
+    }
+
+    public void addPurchase(Purchase purchase) {
+        YearMonth period = purchase.getPurchaseDate() != null ? YearMonth.from(purchase.getPurchaseDate()) : null;
+        addBucket(purchase.getTrip().getId(), Boolean.TRUE.equals(purchase.getIsGeneral()), period,
+                purchase.getCurrency(), purchase.getPrice(), 1, purchase.getId());
+    }
+
+    /**
+     * Suma un grupo de compras del mismo viaje, tipo, mes y moneda.
+     *
+     * @param lastPurchaseId id más alto del grupo, usado para decidir cuál es la última moneda
+     */
+    public void addBucket(Long tripId, boolean general, YearMonth period, Currency currency,
+                          BigDecimal total, long count, Long lastPurchaseId) {
+        if (count <= 0) {
+            return;
+        }
+        long[] rank = {
+                tripPositions.getOrDefault(tripId, -1),
+                general ? 0 : 1,
+                lastPurchaseId != null ? lastPurchaseId : Long.MIN_VALUE
+        };
+
+        TripTotals trip = tripTotals.computeIfAbsent(tripId, id -> new TripTotals());
+        trip.amounts.add(currency, total, count);
+        if (currency != null && isAfter(rank, trip.currencyRank)) {
+            trip.currency = currency;
+            trip.currencyRank = rank;
+        }
+
+        (general ? this.general : individual).add(currency, total, count);
+
+        if (currency != null && isAfter(rank, lastCurrencyRank)) {
+            lastCurrency = currency;
+            lastCurrencyRank = rank;
+        }
+
+        if (period != null) {
+            PeriodTotals month = periodTotals.computeIfAbsent(period, p -> new PeriodTotals());
+            month.amounts.add(currency, total, count);
+            if (currency != null && isAfter(rank, month.currencyRank)) {
+                month.currency = currency;
+                month.currencyRank = rank;
+            }
+        }
+    }
+
+    public boolean hasPurchases(Long tripId) {
+        TripTotals trip = tripTotals.get(tripId);
+        return trip != null && trip.amounts.totalCount() > 0;
+    }
+
+    public BigDecimal getTripTotal(Long tripId) {
+        TripTotals trip = tripTotals.get(tripId);
+        return trip != null ? trip.amounts.total() : BigDecimal.ZERO;
+    }
+
+    /**
+     * Suma los montos del viaje (por moneda, sin pasar a {@code BigDecimal}) en {@code target}, para
+     * agrupar varios viajes por mes o por año
+     */
+    public void addTripAmountsTo(Long tripId, MoneyAccumulator target) {
+        TripTotals trip = tripTotals.get(tripId);
+        if (trip != null) {
+            target.addAll(trip.amounts);
+        }
+    }
+
+    /**
+     * Moneda de la última compra del viaje, o {@code null} si no tiene compras
+     */
+    public Currency getTripCurrency(Long tripId) {
+        TripTotals trip = tripTotals.get(tripId);
+        return trip != null ? trip.currency : null;
+    }
+
+    public BigDecimal getGeneralTotal() {
+        return general.total();
+    }
+
+    public BigDecimal getIndividualTotal() {
+        return individual.total();
+    }
+
+    public long getGeneralCount() {
+        return general.totalCount();
+    }
+
+    public long getIndividualCount() {
+        return individual.totalCount();
+    }
+
+    /**
+     * Moneda de la última compra de todos los viajes, o {@code null} si no hay compras
+     */
+    public Currency getLastCurrency() {
+        return lastCurrency;
+    }
+
+    public Map<Currency, BigDecimal> getTotalByCurrency() {
+        MoneyAccumulator all = allPurchases();
+        EnumMap<Currency, BigDecimal> totalByCurrency = new EnumMap<>(Currency.class);
+        for (Currency currency : Currency.values()) {
+            if (all.contains(currency)) {
+                totalByCurrency.put(currency, all.get(currency));
+            }
+        }
+        return totalByCurrency;
+    }
+
+    public Map<Currency, Long> getCountByCurrency() {
+        MoneyAccumulator all = allPurchases();
+        EnumMap<Currency, Long> countByCurrency = new EnumMap<>(Currency.class);
+        for (Currency currency : Currency.values()) {
+            if (all.contains(currency)) {
+                countByCurrency.put(currency, all.getCount(currency));
+            }
+        }
+        return countByCurrency;
+    }
+
+    /**
+     * Meses de compra con gastos, ordenados cronológicamente
+     */
+    public Set<YearMonth> getPeriods() {
+        return Collections.unmodifiableSet(periodTotals.keySet());
+    }
+
+    public BigDecimal getPeriodTotal(YearMonth period) {
+        PeriodTotals month = periodTotals.get(period);
+        return month != null ? month.amounts.total() : BigDecimal.ZERO;
+    }
+
+    public long getPeriodCount(YearMonth period) {
+        PeriodTotals month = periodTotals.get(period);
+        return month != null ? month.amounts.totalCount() : 0;
+    }
+
+    public Currency getPeriodCurrency(YearMonth period) {
+        PeriodTotals month = periodTotals.get(period);
+        return month != null ? month.currency : null;
+    }
+
+    private MoneyAccumulator allPurchases() {
+        MoneyAccumulator all = new MoneyAccumulator();
+        all.addAll(general);
+        all.addAll(individual);
+        return all;
+    }
+
+    private static boolean isAfter(long[] rank, long[] current) {
+        if (current == null) {
+            return true;
+        }
+        for (int i = 0; i < rank.length; i++) {
+            if (rank[i] != current[i]) {
+                return rank[i] > current[i];
+            }
+        }
+        return false;
+    }
+
+    private static class TripTotals {
+        final MoneyAccumulator amounts = new MoneyAccumulator();
+        Currency currency;
+        long[] currencyRank;
+    }
+
+    private static class PeriodTotals {
+        final MoneyAccumulator amounts = new MoneyAccumulator();
+        Currency currency;
+        long[] currencyRank;
+    }
+}
@@ -0,0 +1,42 @@
+package TravelMate_Backend.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reconstruye el rollup de estadísticas al arrancar (los cambios hechos con el rollup desactivado
+ * no quedan registrados) y lo verifica periódicamente contra las compras reales.
+ */
+@Component
+public class UserStatsRollupJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserStatsRollupJob.class);
+
+    @Autowired
+    private UserStatsRollupService statsRollupService;
+
+    @Value("${stats.rollup.rebuild-on-startup:true}")
+    private boolean rebuildOnStartup;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (statsRollupService.isEnabled() && rebuildOnStartup) {
+            statsRollupService.rebuildAll();
+        }
+    }
+
+    @Scheduled(cron = "${stats.rollup.verify-cron:-}")
+    public void verify() {
+        if (!statsRollupService.isEnabled()) {
+            return;
+        }
+        int repaired = statsRollupService.verifyAndRepair();
+        logger.info("Verificación del rollup de estadísticas: {} usuarios reparados", repaired);
+    }
+}
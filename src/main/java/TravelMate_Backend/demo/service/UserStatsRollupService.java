@@ -0,0 +1,217 @@
+package TravelMate_Backend.demo.service;
+
+import TravelMate_Backend.demo.model.Currency;
+import TravelMate_Backend.demo.model.Purchase;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Mantiene la tabla user_stats_rollup_entry (gastos de cada usuario por viaje, tipo, mes y moneda)
+ * con deltas dentro de la misma transacción que modifica compras o participantes, para que
+ * getUserStats lea esos grupos ya calculados en lugar de recorrer todas las compras. Los totales
+ * del usuario salen de sumar sus grupos al cargarlos.
+ *
+ * Se activa con {@code stats.rollup.enabled}. Mientras está desactivado no se escribe ni se lee nada.
+ */
+@Service
+@Transactional
+public class UserStatsRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserStatsRollupService.class);
+
+    private static final String ENTRY_COLUMNS =
+            "INSERT INTO user_stats_rollup_entry " +
+            "(user_id, trip_id, is_general, period, currency, total, purchase_count, last_purchase_id) ";
+
+    private static final String ENTRY_DELTA_CONFLICT =
+            "ON CONFLICT (user_id, trip_id, is_general, period, currency) DO UPDATE SET " +
+            "total = user_stats_rollup_entry.total + EXCLUDED.total, " +
+            "purchase_count = user_stats_rollup_entry.purchase_count + EXCLUDED.purchase_count, " +
+            "last_purchase_id = GREATEST(user_stats_rollup_entry.last_purchase_id, EXCLUDED.last_purchase_id)";
+
+    // Detalle calculado desde las compras reales: generales de cada viaje para todos sus
+    // participantes + individuales de cada participante
+    private static final String LIVE_ENTRIES =
+            "SELECT ut.user_id, p.trip_id, p.is_general, to_char(p.purchase_date, 'YYYY-MM'), p.currency, " +
+            "SUM(p.price), COUNT(*), MAX(p.id) " +
+            "FROM purchase p JOIN users_trip ut ON ut.trip_id = p.trip_id " +
+            "WHERE (p.is_general OR p.user_id = ut.user_id) ";
+
+    private static final String LIVE_ENTRIES_GROUP_BY =
+            "GROUP BY ut.user_id, p.trip_id, p.is_general, to_char(p.purchase_date, 'YYYY-MM'), p.currency ";
+
+    private static final String STORED_ENTRIES =
+            "SELECT user_id, trip_id, is_general, period, currency, total, purchase_count, last_purchase_id " +
+            "FROM user_stats_rollup_entry ";
+
+    @Value("${stats.rollup.enabled:false}")
+    private boolean enabled;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Suma una compra nueva, o el estado nuevo de una compra editada
+     */
+    public void purchaseAdded(Purchase purchase) {
+        if (!enabled) {
+            return;
+        }
+        applyDelta(purchase, purchase.getPrice(), 1, purchase.getId());
+    }
+
+    /**
+     * Resta una compra que se elimina, o el estado anterior de una compra que se va a editar.
+     * Debe llamarse antes de modificar la entidad.
+     */
+    public void purchaseRemoved(Purchase purchase) {
+        if (!enabled) {
+            return;
+        }
+        applyDelta(purchase, purchase.getPrice().negate(), -1, null);
+
+        Long tripId = purchase.getTrip().getId();
+        boolean general = Boolean.TRUE.equals(purchase.getIsGeneral());
+        String period = YearMonth.from(purchase.getPurchaseDate()).toString();
+
+        // Si era la última compra del grupo, buscar la anterior para resolver bien la moneda
+        jdbcTemplate.update(
+                "UPDATE user_stats_rollup_entry e SET last_purchase_id = (" +
+                "SELECT MAX(p.id) FROM purchase p " +
+                "WHERE p.trip_id = e.trip_id AND p.is_general = e.is_general AND p.currency = e.currency " +
+                "AND to_char(p.purchase_date, 'YYYY-MM') = e.period AND p.id <> ? " +
+                "AND (e.is_general OR p.user_id = e.user_id)) " +
+                "WHERE e.trip_id = ? AND e.is_general = ? AND e.period = ? AND e.currency = ? " +
+                "AND e.last_purchase_id = ?",
+                purchase.getId(), tripId, general, period, purchase.getCurrency().name(), purchase.getId());
+
+        jdbcTemplate.update("DELETE FROM user_stats_rollup_entry WHERE trip_id = ? AND purchase_count <= 0", tripId);
+    }
+
+    /**
+     * Agrega al usuario los gastos de un viaje al que se acaba de sumar
+     */
+    public void memberAdded(Long userId, Long tripId) {
+        if (!enabled) {
+            return;
+        }
+        jdbcTemplate.update("DELETE FROM user_stats_rollup_entry WHERE user_id = ? AND trip_id = ?", userId, tripId);
+        // No se usa users_trip porque la relación puede no estar sincronizada todavía (addUserToTrip)
+        jdbcTemplate.update(ENTRY_COLUMNS +
+                "SELECT CAST(? AS BIGINT), p.trip_id, p.is_general, to_char(p.purchase_date, 'YYYY-MM'), p.currency, " +
+                "SUM(p.price), COUNT(*), MAX(p.id) " +
+                "FROM purchase p WHERE p.trip_id = ? AND (p.is_general OR p.user_id = ?) " +
+                "GROUP BY p.trip_id, p.is_general, to_char(p.purchase_date, 'YYYY-MM'), p.currency",
+                userId, tripId, userId);
+    }
+
+    /**
+     * Quita al usuario los gastos de un viaje del que salió
+     */
+    public void memberRemoved(Long userId, Long tripId) {
+        if (!enabled) {
+            return;
+        }
+        jdbcTemplate.update("DELETE FROM user_stats_rollup_entry WHERE user_id = ? AND trip_id = ?", userId, tripId);
+    }
+
+    public void tripDeleted(Long tripId) {
+        if (!enabled) {
+            return;
+        }
+        jdbcTemplate.update("DELETE FROM user_stats_rollup_entry WHERE trip_id = ?", tripId);
+    }
+
+    /**
+     * Carga en el índice los grupos precalculados del usuario, solo para los viajes indicados
+     */
+    public void loadInto(UserExpenseIndex expenseIndex, Long userId, Collection<Long> tripIds) {
+        jdbcTemplate.query(
+                "SELECT trip_id, is_general, period, currency, total, purchase_count, last_purchase_id " +
+                "FROM user_stats_rollup_entry WHERE user_id = ? AND trip_id = ANY(?)",
+                ps -> {
+                    ps.setLong(1, userId);
+                    ps.setArray(2, ps.getConnection().createArrayOf("bigint", tripIds.toArray()));
+                },
+                rs -> {
+                    expenseIndex.addBucket(
+                            rs.getLong("trip_id"),
+                            rs.getBoolean("is_general"),
+                            YearMonth.parse(rs.getString("period")),
+                            Currency.valueOf(rs.getString("currency")),
+                            rs.getBigDecimal("total"),
+                            rs.getLong("purchase_count"),
+                            rs.getObject("last_purchase_id", Long.class));
+                });
+    }
+
+    /**
+     * Recalcula todas las tablas desde cero a partir de las compras y participantes actuales
+     */
+    public void rebuildAll() {
+        long start = System.currentTimeMillis();
+        jdbcTemplate.update("DELETE FROM user_stats_rollup_entry");
+        jdbcTemplate.update(ENTRY_COLUMNS + LIVE_ENTRIES + LIVE_ENTRIES_GROUP_BY);
+        logger.info("Rollup de estadísticas reconstruido en {} ms", System.currentTimeMillis() - start);
+    }
+
+    public void rebuildUser(Long userId) {
+        jdbcTemplate.update("DELETE FROM user_stats_rollup_entry WHERE user_id = ?", userId);
+        jdbcTemplate.update(ENTRY_COLUMNS + LIVE_ENTRIES + "AND ut.user_id = ? " + LIVE_ENTRIES_GROUP_BY, userId);
+    }
+
+    /**
+     * Compara el rollup contra las compras reales y reconstruye los usuarios que no coinciden.
+     *
+     * @return cantidad de usuarios reparados
+     */
+    public int verifyAndRepair() {
+        Set<Long> mismatched = new TreeSet<>(jdbcTemplate.queryForList(
+                "SELECT DISTINCT d.user_id FROM (" +
+                "(" + LIVE_ENTRIES + LIVE_ENTRIES_GROUP_BY + "EXCEPT " + STORED_ENTRIES + ") " +
+                "UNION ALL " +
+                "(" + STORED_ENTRIES + "EXCEPT " + LIVE_ENTRIES + LIVE_ENTRIES_GROUP_BY + ")" +
+                ") d",
+                Long.class));
+
+        for (Long userId : mismatched) {
+            logger.warn("Rollup de estadísticas desincronizado para el usuario {}, reconstruyendo", userId);
+            rebuildUser(userId);
+        }
+        return mismatched.size();
+    }
+
+    private void applyDelta(Purchase purchase, BigDecimal amount, long count, Long lastPurchaseId) {
+        Long tripId = purchase.getTrip().getId();
+        String period = YearMonth.from(purchase.getPurchaseDate()).toString();
+        String currency = purchase.getCurrency().name();
+
+        if (Boolean.TRUE.equals(purchase.getIsGeneral())) {
+            // Las compras generales cuentan para todos los participantes del viaje
+            jdbcTemplate.update(ENTRY_COLUMNS +
+                    "SELECT ut.user_id, ?, true, ?, ?, ?, ?, CAST(? AS BIGINT) FROM users_trip ut WHERE ut.trip_id = ? " +
+                    ENTRY_DELTA_CONFLICT,
+                    tripId, period, currency, amount, count, lastPurchaseId, tripId);
+        } else {
+            Long userId = purchase.getUser().getId();
+            jdbcTemplate.update(ENTRY_COLUMNS +
+                    "VALUES (?, ?, false, ?, ?, ?, ?, CAST(? AS BIGINT)) " + ENTRY_DELTA_CONFLICT,
+                    userId, tripId, period, currency, amount, count, lastPurchaseId);
+        }
+    }
+}
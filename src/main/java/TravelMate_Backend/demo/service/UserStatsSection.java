@@ -0,0 +1,132 @@
+package TravelMate_Backend.demo.service;
+
+import TravelMate_Backend.demo.dto.UserStatsResponse;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Secciones de {@link UserStatsResponse} que se pueden pedir por separado con {@code ?sections=...}.
+ * Cada sección declara qué datos necesita además de los viajes del usuario, para que
+ * {@link StatsService#getUserStats(Long, Set)} cargue solo eso.
+ *
+ * El orden de declaración es el orden en que se calculan. Cada sección sabe también qué campos
+ * completa, para juntar los resultados cuando se calculan por separado (modo paralelo).
+ */
+public enum UserStatsSection {
+
+    SUMMARY("summary", (from, to) -> {
+        to.setTotalTrips(from.getTotalTrips());
+        to.setCompletedTrips(from.getCompletedTrips());
+        to.setPlanningTrips(from.getPlanningTrips());
+        to.setActiveTrips(from.getActiveTrips());
+        to.setTotalDaysTraveled(from.getTotalDaysTraveled());
+    }),
+    EXPENSES("expenses", (from, to) -> {
+        to.setTotalSpent(from.getTotalSpent());
+        to.setAverageSpentPerTrip(from.getAverageSpentPerTrip());
+        to.setMostExpensiveTrip(from.getMostExpensiveTrip());
+    }, Source.EXPENSES),
+    DESTINATIONS("destinations", (from, to) -> {
+        to.setMostTraveledLocation(from.getMostTraveledLocation());
+        to.setMostTraveledLocationCount(from.getMostTraveledLocationCount());
+    }, Source.DESTINATIONS),
+    MONTHLY("monthly", (from, to) -> {
+        to.setMonthlyTrips(from.getMonthlyTrips());
+        to.setMonthlyExpenses(from.getMonthlyExpenses());
+    }, Source.EXPENSES),
+    TOP_TRIPS("topTrips", (from, to) -> to.setTopExpensiveTrips(from.getTopExpensiveTrips()), Source.EXPENSES),
+    PARTICIPANTS("participants", (from, to) -> to.setTotalParticipants(from.getTotalParticipants()),
+            Source.PARTICIPANTS),
+    CURRENCIES("currencies", (from, to) -> to.setExpensesByCurrency(from.getExpensesByCurrency()), Source.EXPENSES),
+    COUNTRIES("countries", (from, to) -> to.setCountriesVisited(from.getCountriesVisited()), Source.DESTINATIONS),
+    TIPS("tips", (from, to) -> to.setTipStats(from.getTipStats()), Source.TIPS),
+    YEARLY("yearly", (from, to) -> to.setYearlyExpenses(from.getYearlyExpenses()), Source.EXPENSES),
+    DURATION("duration", (from, to) -> to.setTripDurationStats(from.getTripDurationStats())),
+    TRANSPORT("transport", (from, to) -> to.setTransportModeStats(from.getTransportModeStats()), Source.DESTINATIONS),
+    GENERAL_VS_INDIVIDUAL("generalVsIndividual",
+            (from, to) -> to.setGeneralVsIndividualExpenses(from.getGeneralVsIndividualExpenses()), Source.EXPENSES),
+    TOP_DESTINATIONS("topDestinations", (from, to) -> to.setTopDestinations(from.getTopDestinations()),
+            Source.DESTINATIONS),
+    TEMPORAL("temporal", (from, to) -> to.setTemporalExpenses(from.getTemporalExpenses()), Source.EXPENSES);
+
+    /**
+     * Datos que se cargan aparte de la lista de viajes
+     */
+    public enum Source {
+        /** Destinos de cada viaje (trip_destinations + destinations) */
+        DESTINATIONS,
+        /** Compras generales de los viajes e individuales del usuario */
+        EXPENSES,
+        /** Participantes de cada viaje */
+        PARTICIPANTS,
+        /** Tips de cada viaje */
+        TIPS
+    }
+
+    private final String key;
+    private final BiConsumer<UserStatsResponse, UserStatsResponse> merge;
+    private final Set<Source> sources;
+
+    UserStatsSection(String key, BiConsumer<UserStatsResponse, UserStatsResponse> merge, Source... sources) {
+        this.key = key;
+        this.merge = merge;
+        this.sources = sources.length > 0
+                ? Collections.unmodifiableSet(EnumSet.copyOf(Arrays.asList(sources)))
+                : Collections.emptySet();
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Set<Source> getSources() {
+        return sources;
+    }
+
+    /**
+     * Copia a {@code to} solo los campos que calcula esta sección
+     */
+    public void mergeInto(UserStatsResponse from, UserStatsResponse to) {
+        merge.accept(from, to);
+    }
+
+    public static Set<UserStatsSection> all() {
+        return EnumSet.allOf(UserStatsSection.class);
+    }
+
+    /**
+     * Interpreta el parámetro {@code sections} (claves separadas por coma, sin distinguir
+     * mayúsculas). Vacío o {@code null} equivale a todas las secciones.
+     *
+     * @throws IllegalArgumentException si alguna clave no corresponde a una sección
+     */
+    public static Set<UserStatsSection> parse(String sections) {
+        if (sections == null || sections.isBlank()) {
+            return all();
+        }
+        Set<UserStatsSection> selected = EnumSet.noneOf(UserStatsSection.class);
+        for (String key : sections.split(",")) {
+            String trimmed = key.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            selected.add(Arrays.stream(values())
+                    .filter(section -> section.key.equalsIgnoreCase(trimmed))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Sección de estadísticas desconocida: " + trimmed)));
+        }
+        return selected.isEmpty() ? all() : selected;
+    }
+
+    public static Set<Source> requiredSources(Set<UserStatsSection> sections) {
+        Set<Source> sources = EnumSet.noneOf(Source.class);
+        for (UserStatsSection section : sections) {
+            sources.addAll(section.sources);
+        }
+        return sources;
+    }
+}
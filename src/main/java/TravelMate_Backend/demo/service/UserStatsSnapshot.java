@@ -0,0 +1,53 @@
+package TravelMate_Backend.demo.service;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copia inmutable de los datos que usan los calculadores de
+ * {@link StatsService#getUserStats(Long, java.util.Set)}. Se arma en el hilo del request (dentro
+ * de la transacción) y después los calculadores la leen sin tocar entidades ni la sesión de
+ * Hibernate, así pueden correr en paralelo.
+ *
+ * Solo se cargan las partes que piden las secciones seleccionadas; el resto queda vacío (o
+ * {@code null} en el caso de {@code expenses}).
+ *
+ * @param trips    viajes del usuario, en el orden en que se recorren
+ * @param expenses gastos del usuario; no se modifica una vez armado
+ * @param tipsByTrip tips por id de viaje, del más nuevo al más viejo
+ * @param participantsByTrip cantidad de participantes por id de viaje
+ */
+public record UserStatsSnapshot(List<TripData> trips,
+                                UserExpenseIndex expenses,
+                                Map<Long, List<TipData>> tipsByTrip,
+                                Map<Long, Long> participantsByTrip) {
+
+    public UserStatsSnapshot {
+        trips = List.copyOf(trips);
+        tipsByTrip = Map.copyOf(tipsByTrip);
+        participantsByTrip = Map.copyOf(participantsByTrip);
+    }
+
+    /**
+     * @param destinations destinos del viaje en el mismo orden que {@code Trip.getTripDestinations()}
+     */
+    public record TripData(Long id, String name, LocalDate dateI, LocalDate dateF,
+                           List<DestinationData> destinations) {
+
+        public TripData {
+            destinations = List.copyOf(destinations);
+        }
+    }
+
+    /**
+     * @param name    nombre del {@code Destination} asociado, o {@code null} si no tiene
+     * @param country país del {@code Destination} asociado
+     * @param address dirección cargada en el {@code TripDestination}
+     */
+    public record DestinationData(String name, String country, String address, String transportMode) {
+    }
+
+    public record TipData(String tipType, Double rating, String tipIcon) {
+    }
+}
@@ -0,0 +1,102 @@
+package TravelMate_Backend.demo.service;
+
+import TravelMate_Backend.demo.model.User;
+import TravelMate_Backend.demo.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cache de nombre y email por id de usuario, para completar los listados (quién creó cada compra,
+ * de quién es) sin buscar a cada usuario por separado. Los que faltan se traen todos juntos con un
+ * {@code findAllById}.
+ *
+ * Quien cambia el nombre o el email de un usuario (o lo borra) llama a {@link #evict}: se descarta
+ * enseguida y otra vez después del commit, por si otra consulta lo volvió a cargar con los datos
+ * viejos mientras tanto. Tamaño máximo LRU ({@code users.summary-cache.max-entries}).
+ */
+@Component
+public class UserSummaryCache {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${users.summary-cache.max-entries:10000}")
+    private int maxEntries;
+
+    private final Map<Long, UserSummary> summaries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, UserSummary> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    /**
+     * @return nombre y email de cada usuario; los que no existen no aparecen en el mapa
+     */
+    public Map<Long, UserSummary> getAll(Collection<Long> userIds) {
+        Map<Long, UserSummary> result = new HashMap<>();
+        Set<Long> missing = new LinkedHashSet<>();
+        synchronized (summaries) {
+            for (Long userId : userIds) {
+                if (userId == null) {
+                    continue;
+                }
+                UserSummary summary = summaries.get(userId);
+                if (summary != null) {
+                    result.put(userId, summary);
+                } else {
+                    missing.add(userId);
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        List<UserSummary> loaded = new ArrayList<>();
+        for (User user : userRepository.findAllById(missing)) {
+            UserSummary summary = new UserSummary(user.getId(), user.getName(), user.getEmail());
+            loaded.add(summary);
+            result.put(summary.id(), summary);
+        }
+        if (maxEntries > 0) {
+            synchronized (summaries) {
+                loaded.forEach(summary -> summaries.put(summary.id(), summary));
+            }
+        }
+        return result;
+    }
+
+    public void evict(Long userId) {
+        remove(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    remove(userId);
+                }
+            });
+        }
+    }
+
+    private void remove(Long userId) {
+        synchronized (summaries) {
+            summaries.remove(userId);
+        }
+    }
+
+    public record UserSummary(Long id, String name, String email) {
+    }
+}
@@ -24,9 +24,15 @@ public class WalletService {
     @Autowired
     private TripRepository tripRepository;
 
+    @Autowired
+    private TripMembershipIndex membershipIndex;
+
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private TripStatsCache tripStatsCache;
+
     public WalletResponse getGeneralWallet(Long tripId) {
         Wallet wallet = walletRepository.findByTripIdAndIsGeneralTrue(tripId)
                 .orElseThrow(() -> new RuntimeException("Billetera general no encontrada para el viaje"));
@@ -56,6 +62,7 @@ public class WalletService {
         wallet.setAmount(request.getAmount());
         wallet.setCurrency(request.getCurrency());
         wallet = walletRepository.save(wallet);
+        tripStatsCache.invalidateTrip(tripId);
 
         return convertToResponse(wallet);
     }
@@ -67,8 +74,8 @@ public class WalletService {
         userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
 
-        // Verificar que el usuario pertenece al viaje usando el método del repository
-        boolean userBelongsToTrip = tripRepository.existsByIdAndUsersId(tripId, userId);
+        // Verificar que el usuario pertenece al viaje (índice en memoria de users_trip)
+        boolean userBelongsToTrip = membershipIndex.isMember(tripId, userId);
         if (!userBelongsToTrip) {
             throw new RuntimeException("El usuario no pertenece a este viaje");
         }
@@ -79,6 +86,7 @@ public class WalletService {
         wallet.setAmount(request.getAmount());
         wallet.setCurrency(request.getCurrency());
         wallet = walletRepository.save(wallet);
+        tripStatsCache.invalidateTrip(tripId);
 
         return convertToResponse(wallet);
     }
@@ -90,6 +98,7 @@ public class WalletService {
         wallet.setAmount(amount);
         wallet.setCurrency(currency);
         wallet.setIsGeneral(true);
+        tripStatsCache.invalidateTrip(trip.getId());
         return walletRepository.save(wallet);
     }
 
@@ -100,9 +109,22 @@ public class WalletService {
         wallet.setAmount(BigDecimal.ZERO);
         wallet.setCurrency(currency);
         wallet.setIsGeneral(false);
+        tripStatsCache.invalidateTrip(trip.getId());
         return walletRepository.save(wallet);
     }
 
+    /**
+     * Crea la billetera individual del usuario en la moneda de la billetera general del viaje, con
+     * un solo INSERT
+     *
+     * @return false si el viaje no tiene billetera general o ya fue borrado
+     */
+    public boolean createIndividualWalletFromGeneral(Long tripId, Long userId) {
+        boolean created = walletRepository.insertIndividualFromGeneral(tripId, userId) > 0;
+        tripStatsCache.invalidateTrip(tripId);
+        return created;
+    }
+
     private WalletResponse convertToResponse(Wallet wallet) {
         WalletResponse response = new WalletResponse();
         response.setId(wallet.getId());
@@ -0,0 +1,129 @@
+package TravelMate_Backend.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class DailyExpenseHistogramTests {
+
+	private static final LocalDate START = LocalDate.of(2025, 3, 1);
+
+	@Test
+	void topDaysOrdersByTotalAndBreaksTiesByEarlierDay() {
+		DailyExpenseHistogram histogram = histogram(6, "10", "30", "10", "30", "20", "30");
+
+		assertArrayEquals(new int[]{1, 3, 5, 4}, histogram.topDays(4));
+		assertArrayEquals(new int[]{1, 3}, histogram.topDays(2));
+	}
+
+	@Test
+	void topDaysWithMoreDaysRequestedThanTheTripHas() {
+		DailyExpenseHistogram histogram = histogram(3, "5", "15", "10");
+
+		assertArrayEquals(new int[]{1, 2, 0}, histogram.topDays(10));
+		assertArrayEquals(new int[0], histogram.topDays(0));
+		assertArrayEquals(new int[0], histogram.topDays(-1));
+	}
+
+	@Test
+	void topDaysSkipsDaysWithoutPositiveSpending() {
+		DailyExpenseHistogram histogram = new DailyExpenseHistogram(START, START.plusDays(4));
+		histogram.add(START, new BigDecimal("12.50"));
+		// Día 1 sin compras, día 2 suma cero, día 3 negativo (reintegros)
+		histogram.add(START.plusDays(2), new BigDecimal("5"));
+		histogram.add(START.plusDays(2), new BigDecimal("-5"));
+		histogram.add(START.plusDays(3), new BigDecimal("-8"));
+		histogram.add(START.plusDays(4), new BigDecimal("0.01"));
+
+		assertArrayEquals(new int[]{0, 4}, histogram.topDays(5));
+		assertEquals(2, histogram.count(2));
+		assertEquals(new BigDecimal("0"), histogram.total(2));
+		assertEquals(BigDecimal.ZERO, histogram.total(1));
+	}
+
+	@Test
+	void topDaysMatchesAFullSort() {
+		Random random = new Random(42);
+		for (int run = 0; run < 500; run++) {
+			int days = 1 + random.nextInt(40);
+			DailyExpenseHistogram histogram = new DailyExpenseHistogram(START, START.plusDays(days - 1));
+			for (int purchase = random.nextInt(60); purchase > 0; purchase--) {
+				// Pocos montos distintos para que haya empates
+				histogram.add(START.plusDays(random.nextInt(days)), BigDecimal.valueOf(random.nextInt(5) - 1));
+			}
+			int k = random.nextInt(days + 3);
+
+			int[] expected = IntStream.range(0, days)
+					.boxed()
+					.filter(day -> histogram.total(day).signum() > 0)
+					.sorted(Comparator.comparing(histogram::total).reversed().thenComparing(day -> day))
+					.limit(k)
+					.mapToInt(Integer::intValue)
+					.toArray();
+			assertArrayEquals(expected, histogram.topDays(k), "días=" + days + " k=" + k);
+		}
+	}
+
+	@Test
+	void purchasesOutsideTheTripGoToTheOverflowBuckets() {
+		DailyExpenseHistogram histogram = new DailyExpenseHistogram(START, START.plusDays(2));
+		histogram.add(START.minusDays(10), new BigDecimal("1.5"));
+		histogram.add(START.minusDays(1), new BigDecimal("2"));
+		histogram.add(START.minusDays(4), new BigDecimal("3.25"));
+		histogram.add(START, new BigDecimal("100"));
+		histogram.add(START.plusDays(2), new BigDecimal("7"));
+		histogram.add(START.plusDays(3), new BigDecimal("4"));
+
+		assertEquals(3, histogram.count(DailyExpenseHistogram.BEFORE_TRIP));
+		assertEquals(new BigDecimal("6.75"), histogram.total(DailyExpenseHistogram.BEFORE_TRIP));
+		assertEquals(START.minusDays(10), histogram.firstDate(DailyExpenseHistogram.BEFORE_TRIP));
+		assertEquals(START.minusDays(1), histogram.lastDate(DailyExpenseHistogram.BEFORE_TRIP));
+
+		assertEquals(1, histogram.count(DailyExpenseHistogram.AFTER_TRIP));
+		assertEquals(new BigDecimal("4"), histogram.total(DailyExpenseHistogram.AFTER_TRIP));
+		assertEquals(START.plusDays(3), histogram.firstDate(DailyExpenseHistogram.AFTER_TRIP));
+		assertEquals(START.plusDays(3), histogram.lastDate(DailyExpenseHistogram.AFTER_TRIP));
+
+		// El último día del viaje queda adentro
+		assertEquals(1, histogram.count(2));
+		assertArrayEquals(new int[]{0, 2}, histogram.topDays(5));
+	}
+
+	@Test
+	void emptyOverflowBucketsHaveNoDates() {
+		DailyExpenseHistogram histogram = histogram(2, "1", "2");
+
+		assertEquals(0, histogram.count(DailyExpenseHistogram.BEFORE_TRIP));
+		assertEquals(BigDecimal.ZERO, histogram.total(DailyExpenseHistogram.AFTER_TRIP));
+		assertNull(histogram.firstDate(DailyExpenseHistogram.BEFORE_TRIP));
+		assertNull(histogram.lastDate(DailyExpenseHistogram.AFTER_TRIP));
+	}
+
+	@Test
+	void tripEndingBeforeItStartsHasNoDays() {
+		DailyExpenseHistogram histogram = new DailyExpenseHistogram(START, START.minusDays(3));
+		histogram.add(START.minusDays(5), BigDecimal.ONE);
+		histogram.add(START, BigDecimal.TEN);
+
+		assertEquals(0, histogram.days());
+		assertArrayEquals(new int[0], histogram.topDays(3));
+		assertEquals(1, histogram.count(DailyExpenseHistogram.BEFORE_TRIP));
+		assertEquals(1, histogram.count(DailyExpenseHistogram.AFTER_TRIP));
+	}
+
+	private static DailyExpenseHistogram histogram(int days, String... totals) {
+		DailyExpenseHistogram histogram = new DailyExpenseHistogram(START, START.plusDays(days - 1));
+		for (int day = 0; day < totals.length; day++) {
+			histogram.add(START.plusDays(day), new BigDecimal(totals[day]));
+		}
+		return histogram;
+	}
+}
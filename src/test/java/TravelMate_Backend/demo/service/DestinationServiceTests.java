@@ -0,0 +1,125 @@
+package TravelMate_Backend.demo.service;
+
+import TravelMate_Backend.demo.model.Trip;
+import TravelMate_Backend.demo.repository.TripRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Alta de destinos por nombre normalizado ({@code INSERT ... ON CONFLICT}) y la unión de destinos
+ * repetidos antes de crear el índice único. Todo corre dentro de la transacción del test, que se
+ * deshace al terminar (también el DROP INDEX).
+ */
+@SpringBootTest
+@Transactional
+class DestinationServiceTests {
+
+	private static final String UNIQUE_INDEX = "uk_destinations_normalized_name";
+
+	@Autowired
+	private DestinationService destinationService;
+
+	@Autowired
+	private TripRepository tripRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void sameNormalizedNameReusesTheRow() {
+		String city = "Ciudad " + UUID.randomUUID();
+
+		Long created = destinationService.findOrCreateId("  " + city + ",   Argentina ");
+		Long again = destinationService.findOrCreateId(city.toUpperCase() + ", argentina");
+		Long other = destinationService.findOrCreateId(city + ", Chile");
+
+		assertEquals(created, again);
+		assertNotEquals(created, other);
+		assertEquals(1, countByPrefix(city + ", a"));
+		assertEquals(city + ", Argentina", jdbcTemplate.queryForObject(
+				"SELECT name FROM destinations WHERE id = ?", String.class, created));
+		assertEquals("Argentina", jdbcTemplate.queryForObject(
+				"SELECT contry FROM destinations WHERE id = ?", String.class, created));
+	}
+
+	@Test
+	void existingRowIsFoundThroughTheConflict() {
+		String name = "Pueblo " + UUID.randomUUID() + ", Uruguay";
+		Long existing = jdbcTemplate.queryForObject(
+				"INSERT INTO destinations (name, contry, cost) VALUES (?, 'Uruguay', 0) RETURNING id",
+				Long.class, name.toLowerCase());
+
+		assertEquals(existing, destinationService.findOrCreateId(name));
+		assertEquals(1, countByPrefix(name));
+	}
+
+	@Test
+	void blankNamesAreRejected() {
+		assertThrows(RuntimeException.class, () -> destinationService.findOrCreateId("   "));
+		assertThrows(RuntimeException.class, () -> destinationService.findOrCreateId(null));
+	}
+
+	@Test
+	void duplicatesAreMergedBeforeCreatingTheUniqueIndex() {
+		jdbcTemplate.execute("DROP INDEX " + UNIQUE_INDEX);
+		String name = "Repetido " + UUID.randomUUID() + ", Peru";
+		Long keep = insertDestination(name);
+		Long sameCase = insertDestination(name.toUpperCase());
+		Long extraSpaces = insertDestination("  " + name.replace(", ", ",    ") + " ");
+
+		// Un viaje con el destino que queda y uno repetido, y otro solo con uno repetido
+		Long bothTrip = createTrip();
+		Long duplicateOnlyTrip = createTrip();
+		insertTripDestination(bothTrip, keep);
+		insertTripDestination(bothTrip, sameCase);
+		insertTripDestination(duplicateOnlyTrip, extraSpaces);
+
+		destinationService.ensureUniqueIndex();
+
+		assertEquals(List.of(keep), jdbcTemplate.queryForList(
+				"SELECT id FROM destinations WHERE id IN (?, ?, ?)", Long.class, keep, sameCase, extraSpaces));
+		assertEquals(List.of(keep), destinationsOf(bothTrip));
+		assertEquals(List.of(keep), destinationsOf(duplicateOnlyTrip));
+		assertTrue(jdbcTemplate.queryForObject(
+				"SELECT EXISTS (SELECT 1 FROM pg_indexes WHERE indexname = ?)", Boolean.class, UNIQUE_INDEX));
+		assertEquals(keep, destinationService.findOrCreateId(name));
+	}
+
+	private long countByPrefix(String prefix) {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM destinations WHERE lower(name) LIKE ?",
+				Long.class, prefix.toLowerCase() + "%");
+	}
+
+	private Long insertDestination(String name) {
+		return jdbcTemplate.queryForObject(
+				"INSERT INTO destinations (name, contry, cost) VALUES (?, 'Peru', 0) RETURNING id", Long.class, name);
+	}
+
+	private Long createTrip() {
+		return tripRepository.saveAndFlush(new Trip("Viaje con destinos", null, LocalDate.of(2025, 5, 1),
+				LocalDate.of(2025, 5, 10), BigDecimal.ZERO)).getId();
+	}
+
+	private void insertTripDestination(Long tripId, Long destinationId) {
+		jdbcTemplate.update("INSERT INTO trip_destinations (trip_id, destination_id, transport_mode) VALUES (?, ?, 'auto')",
+				tripId, destinationId);
+	}
+
+	private List<Long> destinationsOf(Long tripId) {
+		return jdbcTemplate.queryForList("SELECT destination_id FROM trip_destinations WHERE trip_id = ?",
+				Long.class, tripId);
+	}
+}
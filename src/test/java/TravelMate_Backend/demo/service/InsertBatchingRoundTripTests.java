@@ -0,0 +1,139 @@
+package TravelMate_Backend.demo.service;
+
+import TravelMate_Backend.demo.model.Currency;
+import TravelMate_Backend.demo.model.Purchase;
+import TravelMate_Backend.demo.model.Tip;
+import TravelMate_Backend.demo.model.Trip;
+import TravelMate_Backend.demo.repository.PurchaseRepository;
+import TravelMate_Backend.demo.repository.TipRepository;
+import TravelMate_Backend.demo.repository.TripRepository;
+import TravelMate_Backend.demo.support.SqlStatementCounter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cuenta las idas a la base (cada {@code execute*} de un statement, un batch entero cuenta como una)
+ * al guardar muchas compras y tips: con ids de secuencia por bloques Hibernate tiene que mandar los
+ * INSERT en batch y pedir un valor a la secuencia cada {@code allocationSize} filas.
+ */
+@SpringBootTest
+@Transactional
+class InsertBatchingRoundTripTests {
+
+	private static final int PURCHASES = 120;
+	private static final int TIPS = 30;
+	private static final int TYPES_PER_TIP = 3;
+
+	@Value("${spring.jpa.properties.hibernate.jdbc.batch_size}")
+	private int batchSize;
+
+	@Value("${ids.allocation-size}")
+	private int allocationSize;
+
+	@Autowired
+	private TripRepository tripRepository;
+
+	@Autowired
+	private PurchaseRepository purchaseRepository;
+
+	@Autowired
+	private TipRepository tipRepository;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@AfterEach
+	void stopRecording() {
+		SqlStatementCounter.stopRecording();
+	}
+
+	@Test
+	void bulkInsertsGoOutInBatches() {
+		SqlStatementCounter.startRecording();
+
+		Trip trip = tripRepository.save(new Trip("Viaje en batch", null, LocalDate.of(2025, 3, 1),
+				LocalDate.of(2025, 3, 10), BigDecimal.ZERO));
+		List<Purchase> purchases = new ArrayList<>();
+		for (int p = 0; p < PURCHASES; p++) {
+			Purchase purchase = new Purchase();
+			purchase.setTrip(trip);
+			purchase.setIsGeneral(true);
+			purchase.setDescription("Compra " + p);
+			purchase.setPrice(BigDecimal.valueOf(1000 + p, 2));
+			purchase.setCurrency(Currency.PESOS);
+			purchase.setPurchaseDate(LocalDate.of(2025, 3, 1 + p % 10));
+			purchase.setCreatedBy(1L);
+			purchases.add(purchase);
+		}
+		purchaseRepository.saveAll(purchases);
+		List<Tip> tips = new ArrayList<>();
+		for (int t = 0; t < TIPS; t++) {
+			Tip tip = new Tip();
+			tip.setTrip(trip);
+			tip.setName("Lugar " + t);
+			tip.setAddress("Dirección " + t);
+			tip.setLatitude(-34.6);
+			tip.setLongitude(-58.4);
+			tip.setCreatedBy("batch@travelmate.test");
+			tip.setTypes(List.of("restaurant", "food", "point_of_interest").subList(0, TYPES_PER_TIP));
+			tips.add(tip);
+		}
+		tipRepository.saveAll(tips);
+		entityManager.flush();
+
+		List<String> executed = SqlStatementCounter.stopRecording();
+		assertEquals(1, count(executed, "insert into trips"));
+		assertEquals(batches(PURCHASES), count(executed, "insert into purchase"));
+		assertEquals(batches(TIPS), count(executed, "insert into tips"));
+		assertEquals(batches(TIPS * TYPES_PER_TIP), count(executed, "insert into tip_types"));
+		// Un valor por bloque; uno más si el primer bloque ya venía usado
+		assertTrue(count(executed, "nextval('purchase_seq')") <= sequenceCalls(PURCHASES));
+		assertTrue(count(executed, "nextval('tips_seq')") <= sequenceCalls(TIPS));
+
+		int rows = 1 + PURCHASES + TIPS + TIPS * TYPES_PER_TIP;
+		long maxRoundTrips = sequenceCalls(1) + 1
+				+ sequenceCalls(PURCHASES) + batches(PURCHASES)
+				+ sequenceCalls(TIPS) + batches(TIPS) + batches(TIPS * TYPES_PER_TIP);
+		assertTrue(executed.size() <= maxRoundTrips,
+				"Idas a la base: " + executed.size() + " para " + rows + " filas: " + executed);
+	}
+
+	private int sequenceCalls(int rows) {
+		return rows / allocationSize + 2;
+	}
+
+	private int batches(int rows) {
+		return (rows + batchSize - 1) / batchSize;
+	}
+
+	private static long count(List<String> executed, String sql) {
+		return executed.stream().filter(statement -> statement.toLowerCase(Locale.ROOT).contains(sql)).count();
+	}
+
+	@TestConfiguration
+	static class SqlStatementCounterConfig {
+
+		@Bean
+		static BeanPostProcessor countingDataSource() {
+			return SqlStatementCounter.dataSourceWrapper();
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package TravelMate_Backend.demo.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JoinCodeCacheTests {
+
+	private JoinCodeCache cache;
+	private final AtomicInteger loads = new AtomicInteger();
+
+	@BeforeEach
+	void createCache() {
+		cache = new JoinCodeCache();
+		ReflectionTestUtils.setField(cache, "maxEntries", 100);
+		ReflectionTestUtils.setField(cache, "negativeTtlSeconds", 30L);
+	}
+
+	@AfterEach
+	void clearSynchronization() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	void foundCodesAreLoadedOnce() {
+		assertEquals(Optional.of(7L), cache.get("ABC123", loader(7L)));
+		assertEquals(Optional.of(7L), cache.get("ABC123", loader(8L)));
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	void missingCodesAreCachedUntilTheyExpire() throws InterruptedException {
+		ReflectionTestUtils.setField(cache, "negativeTtlSeconds", 1L);
+
+		assertEquals(Optional.empty(), cache.get("NOEXISTE", loader(null)));
+		assertEquals(Optional.empty(), cache.get("NOEXISTE", loader(3L)));
+		assertEquals(1, loads.get());
+
+		Thread.sleep(1100);
+		// Vencida la entrada negativa, se vuelve a buscar y se encuentra el viaje creado mientras tanto
+		assertEquals(Optional.of(3L), cache.get("NOEXISTE", loader(3L)));
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	void missingCodesAreNotCachedWithoutTtl() {
+		ReflectionTestUtils.setField(cache, "negativeTtlSeconds", 0L);
+
+		cache.get("NOEXISTE", loader(null));
+		assertEquals(Optional.of(4L), cache.get("NOEXISTE", loader(4L)));
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	void missingResultNeverReplacesACodeCreatedMeanwhile() {
+		// La búsqueda no encuentra el código, pero el viaje se crea antes de que guarde el resultado
+		Optional<Long> missed = cache.get("NUEVO", code -> {
+			cache.put(code, 9L);
+			return Optional.empty();
+		});
+
+		assertEquals(Optional.empty(), missed);
+		assertEquals(Optional.of(9L), cache.get("NUEVO", loader(null)));
+		assertEquals(0, loads.get());
+	}
+
+	@Test
+	void evictTripRemovesEveryCodeOfThatTripOnly() {
+		cache.put("VIEJO", 5L);
+		cache.put("ACTUAL", 5L);
+		cache.put("OTRO", 6L);
+		cache.get("NOEXISTE", loader(null));
+
+		cache.evictTrip(5L);
+
+		assertEquals(Optional.empty(), cache.get("VIEJO", loader(null)));
+		assertEquals(Optional.empty(), cache.get("ACTUAL", loader(null)));
+		assertEquals(3, loads.get());
+		// El otro viaje y la entrada negativa siguen en el cache
+		assertEquals(Optional.of(6L), cache.get("OTRO", loader(null)));
+		assertEquals(Optional.empty(), cache.get("NOEXISTE", loader(1L)));
+		assertEquals(3, loads.get());
+	}
+
+	@Test
+	void newTripsAreAddedOnlyAfterCommit() {
+		TransactionSynchronizationManager.initSynchronization();
+		cache.putAfterCommit("CREADO", 11L);
+
+		assertEquals(Optional.empty(), cache.get("CREADO", loader(null)));
+
+		TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+		assertEquals(Optional.of(11L), cache.get("CREADO", loader(null)));
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	void leastRecentlyUsedCodesAreDroppedAboveTheLimit() {
+		ReflectionTestUtils.setField(cache, "maxEntries", 2);
+		cache.put("A", 1L);
+		cache.put("B", 2L);
+		cache.get("A", loader(null));
+		cache.put("C", 3L);
+
+		assertEquals(Optional.of(1L), cache.get("A", loader(null)));
+		assertEquals(Optional.of(3L), cache.get("C", loader(null)));
+		assertEquals(Optional.empty(), cache.get("B", loader(null)));
+		assertEquals(1, loads.get());
+	}
+
+	private Function<String, Optional<Long>> loader(Long tripId) {
+		return code -> {
+			loads.incrementAndGet();
+			return Optional.ofNullable(tripId);
+		};
+	}
+}
@@ -0,0 +1,101 @@
+package TravelMate_Backend.demo.service;
+
+import TravelMate_Backend.demo.model.Currency;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MoneyAccumulatorTests {
+
+	// El monto más grande que entra en un long de centavos
+	private static final BigDecimal MAX_AMOUNT = BigDecimal.valueOf(Long.MAX_VALUE, MoneyAccumulator.SCALE);
+	private static final BigDecimal ONE_CENT = new BigDecimal("0.01");
+
+	@Test
+	void sumsLikeBigDecimalAndKeepsTheLargestScale() {
+		MoneyAccumulator accumulator = new MoneyAccumulator();
+		accumulator.add(Currency.PESOS, new BigDecimal("10.5"));
+		accumulator.add(Currency.PESOS, new BigDecimal("0.25"));
+		accumulator.add(Currency.DOLARES, new BigDecimal("3"), 2);
+		accumulator.add(null, null);
+
+		assertEquals(new BigDecimal("10.75"), accumulator.get(Currency.PESOS));
+		assertEquals(new BigDecimal("3"), accumulator.get(Currency.DOLARES));
+		assertEquals(BigDecimal.ZERO, accumulator.get(Currency.EUROS));
+		assertEquals(new BigDecimal("13.75"), accumulator.total());
+		assertEquals(2, accumulator.getCount(Currency.PESOS));
+		assertEquals(2, accumulator.getCount(Currency.DOLARES));
+		assertEquals(5, accumulator.totalCount());
+		assertTrue(accumulator.contains(Currency.DOLARES));
+		assertFalse(accumulator.contains(Currency.EUROS));
+	}
+
+	@Test
+	void emptyAccumulatorTotalsZero() {
+		MoneyAccumulator accumulator = new MoneyAccumulator();
+		assertTrue(accumulator.isEmpty());
+		assertEquals(BigDecimal.ZERO, accumulator.total());
+		assertEquals(0, accumulator.totalCount());
+	}
+
+	@Test
+	void amountsWithMoreThanTwoDecimalsAreAcceptedOnlyWithoutFractionsOfCent() {
+		assertEquals(1234, MoneyAccumulator.toMinorUnits(new BigDecimal("12.3400")));
+		assertEquals(150, MoneyAccumulator.toMinorUnits(new BigDecimal("1.500")));
+		assertThrows(ArithmeticException.class, () -> MoneyAccumulator.toMinorUnits(new BigDecimal("1.005")));
+
+		MoneyAccumulator accumulator = new MoneyAccumulator();
+		accumulator.add(Currency.EUROS, new BigDecimal("1.500"));
+		accumulator.add(Currency.EUROS, new BigDecimal("2.25"));
+		// Igual que BigDecimal.add: conserva la escala 3
+		assertEquals(new BigDecimal("3.750"), accumulator.get(Currency.EUROS));
+		assertThrows(ArithmeticException.class, () -> accumulator.add(Currency.EUROS, new BigDecimal("0.001")));
+	}
+
+	@Test
+	void amountsOutsideTheLongRangeAreRejected() {
+		assertEquals(Long.MAX_VALUE, MoneyAccumulator.toMinorUnits(MAX_AMOUNT));
+		assertThrows(ArithmeticException.class, () -> MoneyAccumulator.toMinorUnits(MAX_AMOUNT.add(ONE_CENT)));
+		assertThrows(ArithmeticException.class, () -> MoneyAccumulator.toMinorUnits(new BigDecimal("1E20")));
+	}
+
+	@Test
+	void overflowInOneCurrencyIsDetected() {
+		MoneyAccumulator accumulator = new MoneyAccumulator();
+		accumulator.add(Currency.PESOS, MAX_AMOUNT);
+
+		ArithmeticException e = assertThrows(ArithmeticException.class,
+				() -> accumulator.add(Currency.PESOS, ONE_CENT));
+		assertTrue(e.getMessage().contains("PESOS"), e.getMessage());
+		// El casillero queda como estaba
+		assertEquals(MAX_AMOUNT, accumulator.get(Currency.PESOS));
+
+		accumulator.add(Currency.PESOS, ONE_CENT.negate());
+		assertEquals(MAX_AMOUNT.subtract(ONE_CENT), accumulator.get(Currency.PESOS));
+	}
+
+	@Test
+	void overflowWhenMergingIsDetected() {
+		MoneyAccumulator first = new MoneyAccumulator();
+		first.add(Currency.DOLARES, MAX_AMOUNT);
+		MoneyAccumulator second = new MoneyAccumulator();
+		second.add(Currency.DOLARES, ONE_CENT);
+
+		assertThrows(ArithmeticException.class, () -> first.addAll(second));
+	}
+
+	@Test
+	void overflowOfTheTotalAcrossCurrenciesIsDetected() {
+		MoneyAccumulator accumulator = new MoneyAccumulator();
+		accumulator.add(Currency.PESOS, MAX_AMOUNT);
+		accumulator.add(Currency.DOLARES, ONE_CENT);
+
+		assertEquals(MAX_AMOUNT, accumulator.get(Currency.PESOS));
+		assertThrows(ArithmeticException.class, accumulator::total);
+	}
+}
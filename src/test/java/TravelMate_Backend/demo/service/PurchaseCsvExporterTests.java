@@ -0,0 +1,52 @@
+package TravelMate_Backend.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PurchaseCsvExporterTests {
+
+	@Test
+	void plainTextIsWrittenAsIs() {
+		assertEquals("", PurchaseCsvExporter.text(null));
+		assertEquals("", PurchaseCsvExporter.text(""));
+		assertEquals("Cena en el centro", PurchaseCsvExporter.text("Cena en el centro"));
+		// Solo el primer carácter puede convertirlo en fórmula
+		assertEquals("Taxi = 2 viajes", PurchaseCsvExporter.text("Taxi = 2 viajes"));
+		assertEquals("e-mail@travelmate.test", PurchaseCsvExporter.text("e-mail@travelmate.test"));
+	}
+
+	@Test
+	void leadingFormulaCharactersAreEscaped() {
+		assertEquals("'=HYPERLINK(\"x\")", unquote(PurchaseCsvExporter.text("=HYPERLINK(\"x\")")));
+		assertEquals("'+54 11 5555", PurchaseCsvExporter.text("+54 11 5555"));
+		assertEquals("'-5", PurchaseCsvExporter.text("-5"));
+		assertEquals("'@SUM(A1)", PurchaseCsvExporter.text("@SUM(A1)"));
+		assertEquals("'\tTab", PurchaseCsvExporter.text("\tTab"));
+		assertEquals("\"'\rRetorno\"", PurchaseCsvExporter.text("\rRetorno"));
+	}
+
+	@Test
+	void specialCharactersAreQuotedAsInRfc4180() {
+		assertEquals("\"Almuerzo, cena\"", PurchaseCsvExporter.text("Almuerzo, cena"));
+		assertEquals("\"El \"\"mejor\"\" asado\"", PurchaseCsvExporter.text("El \"mejor\" asado"));
+		assertEquals("\"Línea 1\nLínea 2\"", PurchaseCsvExporter.text("Línea 1\nLínea 2"));
+		assertEquals("\"Línea 1\r\nLínea 2\"", PurchaseCsvExporter.text("Línea 1\r\nLínea 2"));
+	}
+
+	@Test
+	void formulaGuardAndQuotingCombine() {
+		assertEquals("\"'=SUM(A1,B1)\"", PurchaseCsvExporter.text("=SUM(A1,B1)"));
+		assertEquals("\"'=\"\"a\"\"&\"\"b\"\"\"", PurchaseCsvExporter.text("=\"a\"&\"b\""));
+	}
+
+	/**
+	 * El valor de una celda entre comillas, como lo lee una planilla
+	 */
+	private static String unquote(String cell) {
+		if (cell.length() >= 2 && cell.startsWith("\"") && cell.endsWith("\"")) {
+			return cell.substring(1, cell.length() - 1).replace("\"\"", "\"");
+		}
+		return cell;
+	}
+}
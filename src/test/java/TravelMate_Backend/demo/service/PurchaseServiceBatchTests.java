@@ -0,0 +1,159 @@
+package TravelMate_Backend.demo.service;
+
+import TravelMate_Backend.demo.dto.PurchaseBatchRequest;
+import TravelMate_Backend.demo.dto.PurchaseBatchResponse;
+import TravelMate_Backend.demo.model.AuthProvider;
+import TravelMate_Backend.demo.model.Currency;
+import TravelMate_Backend.demo.model.Trip;
+import TravelMate_Backend.demo.model.User;
+import TravelMate_Backend.demo.repository.TripRepository;
+import TravelMate_Backend.demo.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Alta de varias compras en un request: cada compra se valida por separado y la pertenencia al
+ * viaje se consulta una sola vez por usuario.
+ */
+@SpringBootTest
+@Transactional
+class PurchaseServiceBatchTests {
+
+	@Autowired
+	private PurchaseService purchaseService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private TripRepository tripRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@MockitoSpyBean
+	private TripMembershipIndex membershipIndex;
+
+	private User member;
+	private User outsider;
+	private Long tripId;
+
+	@BeforeEach
+	void createTrip() {
+		member = createUser("Participante");
+		outsider = createUser("Ajeno");
+		tripId = tripRepository.saveAndFlush(new Trip("Viaje en lote", null, LocalDate.of(2025, 6, 1),
+				LocalDate.of(2025, 6, 15), BigDecimal.ZERO)).getId();
+		jdbcTemplate.update("INSERT INTO users_trip (user_id, trip_id) VALUES (?, ?)", member.getId(), tripId);
+	}
+
+	@Test
+	void invalidItemsAreRejectedWithoutAffectingTheOthers() {
+		PurchaseBatchRequest.Item noDescription = item("sin-descripcion", null, "5");
+		noDescription.setDescription(null);
+
+		List<PurchaseBatchRequest.Item> items = Arrays.asList(
+				item("general", null, "10.50"),
+				item("precio-negativo", null, "-1"),
+				null,
+				item("ajeno", outsider.getId(), "3"),
+				item("individual", member.getId(), "7"),
+				noDescription);
+
+		PurchaseBatchResponse response = purchaseService.createPurchaseBatch(tripId, member.getId(), items);
+
+		assertEquals(2, response.getCreated());
+		assertEquals(4, response.getRejected());
+		List<PurchaseBatchResponse.ItemResult> results = response.getResults();
+		assertEquals(List.of(0, 1, 2, 3, 4, 5),
+				results.stream().map(PurchaseBatchResponse.ItemResult::getIndex).collect(Collectors.toList()));
+		assertEquals(List.of("created", "rejected", "rejected", "rejected", "created", "rejected"),
+				results.stream().map(PurchaseBatchResponse.ItemResult::getStatus).collect(Collectors.toList()));
+		assertEquals("precio-negativo", results.get(1).getClientId());
+		assertEquals("El precio debe ser mayor a 0", results.get(1).getMessage());
+		assertEquals("La compra es obligatoria", results.get(2).getMessage());
+		assertEquals("El usuario no pertenece a este viaje", results.get(3).getMessage());
+		assertEquals("La descripción es obligatoria", results.get(5).getMessage());
+		assertNull(results.get(3).getPurchaseId());
+
+		// Solo las válidas quedan en la base, con el id informado
+		Long general = results.get(0).getPurchaseId();
+		Long individual = results.get(4).getPurchaseId();
+		assertNotNull(general);
+		assertNotNull(individual);
+		assertEquals(List.of(general, individual), jdbcTemplate.queryForList(
+				"SELECT id FROM purchase WHERE trip_id = ? ORDER BY id", Long.class, tripId));
+		assertEquals(member.getId(), jdbcTemplate.queryForObject(
+				"SELECT user_id FROM purchase WHERE id = ? AND NOT is_general", Long.class, individual));
+	}
+
+	@Test
+	void membershipIsCheckedOncePerUser() {
+		List<PurchaseBatchRequest.Item> items = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			items.add(item("propia-" + i, member.getId(), "2"));
+			items.add(item("ajena-" + i, outsider.getId(), "2"));
+			items.add(item("general-" + i, null, "2"));
+		}
+
+		PurchaseBatchResponse response = purchaseService.createPurchaseBatch(tripId, member.getId(), items);
+
+		assertEquals(10, response.getCreated());
+		assertEquals(5, response.getRejected());
+		verify(membershipIndex, times(1)).isMember(tripId, member.getId());
+		verify(membershipIndex, times(1)).isMember(tripId, outsider.getId());
+		verify(membershipIndex, times(2)).isMember(any(), anyLong());
+	}
+
+	@Test
+	void wholeBatchIsRejectedWhenTheTripDoesNotExist() {
+		List<PurchaseBatchRequest.Item> items = List.of(item("general", null, "1"));
+
+		assertThrows(RuntimeException.class,
+				() -> purchaseService.createPurchaseBatch(-1L, member.getId(), items));
+		assertThrows(RuntimeException.class,
+				() -> purchaseService.createPurchaseBatch(tripId, member.getId(), List.of()));
+	}
+
+	private static PurchaseBatchRequest.Item item(String clientId, Long userId, String price) {
+		PurchaseBatchRequest.Item item = new PurchaseBatchRequest.Item();
+		item.setClientId(clientId);
+		item.setUserId(userId);
+		item.setDescription("Compra " + clientId);
+		item.setPrice(new BigDecimal(price));
+		item.setCurrency(Currency.PESOS);
+		item.setPurchaseDate(LocalDate.of(2025, 6, 2));
+		return item;
+	}
+
+	private User createUser(String name) {
+		User user = new User();
+		user.setName(name);
+		user.setEmail(name.toLowerCase() + "." + System.nanoTime() + "@travelmate.test");
+		user.setPassword("password");
+		user.setProvider(AuthProvider.LOCAL);
+		user.setEmailVerified(true);
+		return userRepository.save(user);
+	}
+}
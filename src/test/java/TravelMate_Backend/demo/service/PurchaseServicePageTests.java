@@ -0,0 +1,177 @@
+package TravelMate_Backend.demo.service;
+
+import TravelMate_Backend.demo.dto.PurchasePage;
+import TravelMate_Backend.demo.dto.PurchaseResponse;
+import TravelMate_Backend.demo.model.Currency;
+import TravelMate_Backend.demo.model.Purchase;
+import TravelMate_Backend.demo.model.Trip;
+import TravelMate_Backend.demo.repository.PurchaseRepository;
+import TravelMate_Backend.demo.repository.TripRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Páginas de compras con cursor (fecha de compra, id): varias compras por día para que el id tenga
+ * que desempatar entre páginas.
+ */
+@SpringBootTest
+@Transactional
+class PurchaseServicePageTests {
+
+	private static final LocalDate START = LocalDate.of(2025, 7, 1);
+	private static final int PURCHASES = 12;
+	private static final int DAYS = 3;
+
+	@Autowired
+	private PurchaseService purchaseService;
+
+	@Autowired
+	private TripRepository tripRepository;
+
+	@Autowired
+	private PurchaseRepository purchaseRepository;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Value("${purchases.page.default-size}")
+	private int defaultPageSize;
+
+	@Value("${purchases.page.max-size}")
+	private int maxPageSize;
+
+	private Long tripId;
+	private List<Purchase> expectedOrder;
+
+	@BeforeEach
+	void createPurchases() {
+		Trip trip = tripRepository.saveAndFlush(new Trip("Viaje paginado", null, START, START.plusDays(DAYS),
+				BigDecimal.ZERO));
+		tripId = trip.getId();
+		List<Purchase> purchases = new ArrayList<>();
+		for (int i = 0; i < PURCHASES; i++) {
+			// Los días se intercalan, así el orden por id no coincide con el orden por fecha
+			purchases.add(purchase(trip, START.plusDays(i % DAYS), "Compra " + i));
+		}
+		purchaseRepository.saveAll(purchases);
+
+		// Una compra de otro viaje con la misma fecha no aparece en las páginas
+		Trip other = tripRepository.saveAndFlush(new Trip("Otro viaje", null, START, START, BigDecimal.ZERO));
+		purchaseRepository.save(purchase(other, START, "Compra ajena"));
+		entityManager.flush();
+
+		expectedOrder = purchases.stream()
+				.sorted(Comparator.comparing(Purchase::getPurchaseDate).thenComparing(Purchase::getId).reversed())
+				.collect(Collectors.toList());
+	}
+
+	@AfterEach
+	void restorePageSizes() {
+		ReflectionTestUtils.setField(purchaseService, "defaultPageSize", defaultPageSize);
+		ReflectionTestUtils.setField(purchaseService, "maxPageSize", maxPageSize);
+	}
+
+	@Test
+	void pagingThroughEqualDatesNeitherSkipsNorRepeats() {
+		for (int limit = 1; limit <= PURCHASES + 1; limit++) {
+			List<Long> seen = new ArrayList<>();
+			LocalDate afterDate = null;
+			Long afterId = null;
+			int pages = 0;
+			PurchasePage page;
+			do {
+				page = purchaseService.getPurchasesPage(tripId, null, null, afterDate, afterId, limit);
+				page.getPurchases().forEach(purchase -> seen.add(purchase.getId()));
+				afterDate = page.getNextDate();
+				afterId = page.getNextId();
+				pages++;
+			} while (page.isHasMore());
+
+			assertEquals(ids(expectedOrder), seen, "limit=" + limit);
+			assertEquals((PURCHASES + limit - 1) / limit, pages, "limit=" + limit);
+		}
+	}
+
+	@Test
+	void hasMoreOnlyWhenAnotherPurchaseRemains() {
+		PurchasePage first = purchaseService.getPurchasesPage(tripId, null, null, null, null, PURCHASES / 2);
+		assertTrue(first.isHasMore());
+		Purchase last = expectedOrder.get(PURCHASES / 2 - 1);
+		assertEquals(last.getPurchaseDate(), first.getNextDate());
+		assertEquals(last.getId(), first.getNextId());
+
+		// Quedan exactamente limit compras: la que se pide de más no existe
+		PurchasePage second = purchaseService.getPurchasesPage(tripId, null, null,
+				first.getNextDate(), first.getNextId(), PURCHASES / 2);
+		assertEquals(PURCHASES / 2, second.getPurchases().size());
+		assertFalse(second.isHasMore());
+		assertNull(second.getNextDate());
+		assertNull(second.getNextId());
+
+		PurchasePage all = purchaseService.getPurchasesPage(tripId, null, null, null, null, PURCHASES);
+		assertEquals(PURCHASES, all.getPurchases().size());
+		assertFalse(all.isHasMore());
+	}
+
+	@Test
+	void cursorNeedsBothDateAndId() {
+		assertThrows(RuntimeException.class,
+				() -> purchaseService.getPurchasesPage(tripId, null, null, START, null, 5));
+		assertThrows(RuntimeException.class,
+				() -> purchaseService.getPurchasesPage(tripId, null, null, null, 1L, 5));
+	}
+
+	@Test
+	void limitIsClampedToTheConfiguredRange() {
+		ReflectionTestUtils.setField(purchaseService, "defaultPageSize", 4);
+		ReflectionTestUtils.setField(purchaseService, "maxPageSize", 5);
+
+		assertEquals(4, purchaseService.getPurchasesPage(tripId, null, null, null, null, null).getPurchases().size());
+		assertEquals(5, purchaseService.getPurchasesPage(tripId, null, null, null, null, 1000).getPurchases().size());
+		assertEquals(1, purchaseService.getPurchasesPage(tripId, null, null, null, null, 0).getPurchases().size());
+		PurchasePage negative = purchaseService.getPurchasesPage(tripId, null, null, null, null, -3);
+		assertEquals(List.of(expectedOrder.get(0).getId()), responseIds(negative.getPurchases()));
+		assertTrue(negative.isHasMore());
+	}
+
+	private static Purchase purchase(Trip trip, LocalDate date, String description) {
+		Purchase purchase = new Purchase();
+		purchase.setTrip(trip);
+		purchase.setIsGeneral(true);
+		purchase.setDescription(description);
+		purchase.setPrice(new BigDecimal("10.00"));
+		purchase.setCurrency(Currency.PESOS);
+		purchase.setPurchaseDate(date);
+		purchase.setCreatedBy(1L);
+		return purchase;
+	}
+
+	private static List<Long> ids(List<Purchase> purchases) {
+		return purchases.stream().map(Purchase::getId).collect(Collectors.toList());
+	}
+
+	private static List<Long> responseIds(List<PurchaseResponse> purchases) {
+		return purchases.stream().map(PurchaseResponse::getId).collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,130 @@
+package TravelMate_Backend.demo.service;
+
+import TravelMate_Backend.demo.dto.UserStatsResponse;
+import TravelMate_Backend.demo.model.AuthProvider;
+import TravelMate_Backend.demo.model.Currency;
+import TravelMate_Backend.demo.model.Purchase;
+import TravelMate_Backend.demo.model.Trip;
+import TravelMate_Backend.demo.model.User;
+import TravelMate_Backend.demo.repository.PurchaseRepository;
+import TravelMate_Backend.demo.repository.TripRepository;
+import TravelMate_Backend.demo.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Compara las estadísticas calculadas con las compras sumadas en la base (GROUP BY) contra las
+ * calculadas cargando cada compra, sobre un conjunto de datos generado.
+ */
+@SpringBootTest
+@Transactional
+class StatsServiceExpenseAggregationTests {
+
+	private static final Set<UserStatsSection> EXPENSE_SECTIONS = EnumSet.of(
+			UserStatsSection.MONTHLY, UserStatsSection.YEARLY, UserStatsSection.TEMPORAL);
+
+	@Autowired
+	private StatsService statsService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private TripRepository tripRepository;
+
+	@Autowired
+	private PurchaseRepository purchaseRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@AfterEach
+	void restoreAggregation() {
+		ReflectionTestUtils.setField(statsService, "aggregateExpensesInDb", true);
+	}
+
+	@Test
+	void databaseAggregationMatchesPurchaseByPurchaseCalculation() {
+		Random random = new Random(20240601L);
+		List<User> users = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			users.add(createUser("Usuario " + i));
+		}
+
+		for (int t = 0; t < 12; t++) {
+			LocalDate start = LocalDate.of(2022 + random.nextInt(3), 1 + random.nextInt(12), 1 + random.nextInt(28));
+			Trip trip = new Trip("Viaje " + t, null, start, start.plusDays(random.nextInt(20)), BigDecimal.ZERO);
+			// Con ids de secuencia el INSERT espera al flush; users_trip se inserta por SQL directo
+			trip = tripRepository.saveAndFlush(trip);
+
+			List<User> participants = new ArrayList<>();
+			for (User user : users) {
+				if (participants.isEmpty() || random.nextInt(3) > 0) {
+					participants.add(user);
+					jdbcTemplate.update("INSERT INTO users_trip (user_id, trip_id) VALUES (?, ?)", user.getId(), trip.getId());
+				}
+			}
+
+			int purchases = random.nextInt(40);
+			for (int p = 0; p < purchases; p++) {
+				boolean general = random.nextBoolean();
+				Purchase purchase = new Purchase();
+				purchase.setTrip(trip);
+				purchase.setIsGeneral(general);
+				purchase.setUser(general ? null : participants.get(random.nextInt(participants.size())));
+				purchase.setDescription("Compra " + p);
+				purchase.setPrice(BigDecimal.valueOf(random.nextInt(5_000_000), 2));
+				purchase.setCurrency(Currency.values()[random.nextInt(Currency.values().length)]);
+				// Fechas alrededor del viaje para que haya meses y años que se crucen entre viajes
+				purchase.setPurchaseDate(start.plusDays(random.nextInt(90) - 30));
+				purchase.setCreatedBy(users.get(0).getId());
+				purchaseRepository.save(purchase);
+			}
+		}
+		entityManager.flush();
+
+		for (User user : users) {
+			UserStatsResponse inJava = calculate(user.getId(), false, UserStatsSection.all());
+			UserStatsResponse inDatabase = calculate(user.getId(), true, UserStatsSection.all());
+			assertEquals(inJava, inDatabase);
+			assertEquals(calculate(user.getId(), false, EXPENSE_SECTIONS), calculate(user.getId(), true, EXPENSE_SECTIONS));
+			assertFalse(inDatabase.getTemporalExpenses().isEmpty());
+		}
+	}
+
+	private UserStatsResponse calculate(Long userId, boolean aggregateInDb, Set<UserStatsSection> sections) {
+		ReflectionTestUtils.setField(statsService, "aggregateExpensesInDb", aggregateInDb);
+		return statsService.getUserStats(userId, sections);
+	}
+
+	private User createUser(String name) {
+		User user = new User();
+		user.setName(name);
+		user.setEmail(name.replace(" ", "").toLowerCase() + "." + System.nanoTime() + "@travelmate.test");
+		user.setPassword("password");
+		user.setProvider(AuthProvider.LOCAL);
+		user.setEmailVerified(true);
+		return userRepository.save(user);
+	}
+}
@@ -0,0 +1,79 @@
+package TravelMate_Backend.demo.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Un alta en el índice de participantes solo la ve la transacción que la hizo hasta el commit. Los
+ * ids no existen en la base: el índice los carga vacíos.
+ */
+@SpringBootTest
+class TripMembershipIndexTests {
+
+	private static final Long USER_ID = -1001L;
+	private static final Long TRIP_ID = -2001L;
+
+	@Autowired
+	private TripMembershipIndex membershipIndex;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@AfterEach
+	void forgetMembership() {
+		membershipIndex.memberRemoved(USER_ID, TRIP_ID);
+	}
+
+	@Test
+	void additionIsVisibleToOtherRequestsOnlyAfterCommit() {
+		// El usuario ya está cargado en el índice
+		assertFalse(membershipIndex.isMember(TRIP_ID, USER_ID));
+
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			membershipIndex.memberAdded(USER_ID, TRIP_ID);
+
+			assertTrue(membershipIndex.isMember(TRIP_ID, USER_ID));
+			assertFalse(isMemberFromAnotherThread());
+		});
+
+		assertTrue(membershipIndex.isMember(TRIP_ID, USER_ID));
+		assertTrue(isMemberFromAnotherThread());
+	}
+
+	@Test
+	void rolledBackAdditionIsNeverVisible() {
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			membershipIndex.memberAdded(USER_ID, TRIP_ID);
+			assertTrue(membershipIndex.isMember(TRIP_ID, USER_ID));
+			assertFalse(isMemberFromAnotherThread());
+			status.setRollbackOnly();
+		});
+
+		assertFalse(membershipIndex.isMember(TRIP_ID, USER_ID));
+		assertFalse(isMemberFromAnotherThread());
+	}
+
+	@Test
+	void removalInsideTheTransactionHidesThePendingAddition() {
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			membershipIndex.memberAdded(USER_ID, TRIP_ID);
+			membershipIndex.memberRemoved(USER_ID, TRIP_ID);
+			assertFalse(membershipIndex.isMember(TRIP_ID, USER_ID));
+		});
+
+		assertFalse(membershipIndex.isMember(TRIP_ID, USER_ID));
+	}
+
+	private boolean isMemberFromAnotherThread() {
+		return CompletableFuture.supplyAsync(() -> membershipIndex.isMember(TRIP_ID, USER_ID)).join();
+	}
+}
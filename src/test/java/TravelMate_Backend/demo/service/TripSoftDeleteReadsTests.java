@@ -0,0 +1,141 @@
+package TravelMate_Backend.demo.service;
+
+import TravelMate_Backend.demo.model.AuthProvider;
+import TravelMate_Backend.demo.model.Currency;
+import TravelMate_Backend.demo.model.Purchase;
+import TravelMate_Backend.demo.model.Tip;
+import TravelMate_Backend.demo.model.Trip;
+import TravelMate_Backend.demo.model.User;
+import TravelMate_Backend.demo.repository.PurchaseRepository;
+import TravelMate_Backend.demo.repository.TipRepository;
+import TravelMate_Backend.demo.repository.TripRepository;
+import TravelMate_Backend.demo.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Un viaje borrado deja de verse en las consultas por viaje de compras, billeteras y tips apenas se
+ * marca, aunque sus filas sigan en la base hasta la purga. La transacción del test se deshace, así
+ * que la purga nunca corre.
+ */
+@SpringBootTest
+@Transactional
+class TripSoftDeleteReadsTests {
+
+	@Autowired
+	private TripServices tripServices;
+
+	@Autowired
+	private PurchaseService purchaseService;
+
+	@Autowired
+	private WalletService walletService;
+
+	@Autowired
+	private TipService tipService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private TripRepository tripRepository;
+
+	@Autowired
+	private PurchaseRepository purchaseRepository;
+
+	@Autowired
+	private TipRepository tipRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Test
+	void deletedTripHasNoPurchasesWalletsOrTips() {
+		User user = createUser();
+		Trip trip = tripRepository.saveAndFlush(new Trip("Viaje a borrar", null, LocalDate.of(2025, 4, 1),
+				LocalDate.of(2025, 4, 10), BigDecimal.ZERO));
+		Long tripId = trip.getId();
+		jdbcTemplate.update("INSERT INTO users_trip (user_id, trip_id) VALUES (?, ?)", user.getId(), tripId);
+
+		walletService.createGeneralWallet(trip, new BigDecimal("1000"), Currency.PESOS);
+		walletService.createIndividualWallet(trip, user, Currency.PESOS);
+		Purchase general = purchaseRepository.save(purchase(trip, null, user.getId()));
+		purchaseRepository.save(purchase(trip, user, user.getId()));
+		tipRepository.save(tip(trip, user.getEmail()));
+		entityManager.flush();
+
+		assertEquals(2, purchaseService.getAllPurchasesByTrip(tripId).size());
+		assertEquals(2, walletService.getAllWalletsByTrip(tripId).size());
+		assertEquals(1, tipService.getTipsByTripId(tripId).size());
+
+		tripServices.deleteTrip(tripId, user.getId());
+
+		// Las filas siguen ahí hasta la purga
+		assertEquals(2, jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM purchase WHERE trip_id = ?", Long.class, tripId));
+
+		assertTrue(purchaseService.getAllPurchasesByTrip(tripId).isEmpty());
+		assertTrue(purchaseService.getGeneralPurchases(tripId).isEmpty());
+		assertTrue(purchaseService.getIndividualPurchases(tripId, user.getId()).isEmpty());
+		assertThrows(RuntimeException.class, () -> purchaseService.getPurchaseById(general.getId(), tripId));
+		assertTrue(purchaseService.getPurchasesPage(tripId, null, null, null, null, null).getPurchases().isEmpty());
+
+		assertTrue(walletService.getAllWalletsByTrip(tripId).isEmpty());
+		assertThrows(RuntimeException.class, () -> walletService.getGeneralWallet(tripId));
+		assertThrows(RuntimeException.class, () -> walletService.getIndividualWallet(tripId, user.getId()));
+
+		assertTrue(tipService.getTipsByTripId(tripId).isEmpty());
+		assertTrue(tipService.getTipsByTripIdAndUser(tripId, user.getEmail()).isEmpty());
+		assertTrue(tipService.getNearbyTips(tripId, -34.6, -58.4, 1.0).isEmpty());
+		assertEquals(0, tipService.countTipsByTripId(tripId));
+	}
+
+	private User createUser() {
+		User user = new User();
+		user.setName("Usuario borrado");
+		user.setEmail("borrado." + System.nanoTime() + "@travelmate.test");
+		user.setPassword("password");
+		user.setProvider(AuthProvider.LOCAL);
+		user.setEmailVerified(true);
+		return userRepository.save(user);
+	}
+
+	private static Purchase purchase(Trip trip, User user, Long createdBy) {
+		Purchase purchase = new Purchase();
+		purchase.setTrip(trip);
+		purchase.setIsGeneral(user == null);
+		purchase.setUser(user);
+		purchase.setDescription(user == null ? "Compra general" : "Compra individual");
+		purchase.setPrice(new BigDecimal("25.50"));
+		purchase.setCurrency(Currency.PESOS);
+		purchase.setPurchaseDate(LocalDate.of(2025, 4, 2));
+		purchase.setCreatedBy(createdBy);
+		return purchase;
+	}
+
+	private static Tip tip(Trip trip, String createdBy) {
+		Tip tip = new Tip();
+		tip.setTrip(trip);
+		tip.setName("Parrilla");
+		tip.setAddress("Calle 123");
+		tip.setLatitude(-34.6);
+		tip.setLongitude(-58.4);
+		tip.setCreatedBy(createdBy);
+		return tip;
+	}
+}
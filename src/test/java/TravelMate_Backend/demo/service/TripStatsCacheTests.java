@@ -0,0 +1,201 @@
+package TravelMate_Backend.demo.service;
+
+import TravelMate_Backend.demo.dto.TripStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Un acierto del cache devuelve una copia igual a lo calculado e independiente de lo que guardan los
+ * demás. Los {@link TripStats} de prueba se completan por reflexión, así un campo nuevo queda
+ * cubierto sin tocar el test (o lo hace fallar si es de un tipo que todavía no sabe completar).
+ */
+class TripStatsCacheTests {
+
+	private static final Long TRIP_ID = 7L;
+	private static final Long USER_ID = 3L;
+
+	// Tipos que se pueden compartir entre copias
+	private static final Set<Class<?>> IMMUTABLE = Set.of(String.class, Long.class, Integer.class, Double.class,
+			Boolean.class, BigDecimal.class, LocalDate.class);
+
+	private TripStatsCache cache;
+
+	@BeforeEach
+	void createCache() {
+		cache = new TripStatsCache();
+		ReflectionTestUtils.setField(cache, "maxEntries", 10);
+		ReflectionTestUtils.setField(cache, "ttlSeconds", 300L);
+		ReflectionTestUtils.setField(cache, "maxTrackedTrips", 2);
+	}
+
+	@Test
+	void invalidatingTheTripMissesItsEntries() {
+		TripStats stats = filled(TripStats.class, 0);
+		long version = cache.currentVersion(TRIP_ID);
+		cache.put(TRIP_ID, USER_ID, version, stats);
+		cache.put(TRIP_ID + 1, USER_ID, cache.currentVersion(TRIP_ID + 1), stats);
+
+		cache.invalidateTrip(TRIP_ID);
+
+		assertNull(cache.get(TRIP_ID, USER_ID, cache.currentVersion(TRIP_ID)));
+		assertEquals(stats, cache.get(TRIP_ID + 1, USER_ID, cache.currentVersion(TRIP_ID + 1)));
+	}
+
+	@Test
+	void forgottenStampsOnlyCauseMisses() {
+		TripStats stats = filled(TripStats.class, 0);
+		long version = cache.currentVersion(TRIP_ID);
+		cache.put(TRIP_ID, USER_ID, version, stats);
+		assertEquals(version, cache.currentVersion(TRIP_ID));
+
+		// Otros dos viajes sacan su sello de la lista (máximo 2)
+		cache.invalidateTrip(TRIP_ID + 1);
+		cache.invalidateTrip(TRIP_ID + 2);
+
+		long newVersion = cache.currentVersion(TRIP_ID);
+		assertTrue(newVersion > version);
+		assertNull(cache.get(TRIP_ID, USER_ID, newVersion));
+	}
+
+	@Test
+	void forgetTripDropsItsStampAndEntries() {
+		TripStats stats = filled(TripStats.class, 0);
+		cache.put(TRIP_ID, USER_ID, cache.currentVersion(TRIP_ID), stats);
+		cache.put(TRIP_ID, USER_ID + 1, cache.currentVersion(TRIP_ID), stats);
+
+		cache.forgetTrip(TRIP_ID);
+
+		assertEquals(0, cache.getStatistics().get("size"));
+		assertEquals(0, cache.getStatistics().get("trackedTrips"));
+		assertNull(cache.get(TRIP_ID, USER_ID, cache.currentVersion(TRIP_ID)));
+	}
+
+	@Test
+	void hitReturnsAnEqualCopyOfEveryField() {
+		TripStats stats = filled(TripStats.class, 0);
+		long version = cache.currentVersion(TRIP_ID);
+		cache.put(TRIP_ID, USER_ID, version, stats);
+
+		TripStats hit = cache.get(TRIP_ID, USER_ID, version);
+
+		assertEquals(stats, hit);
+		assertIndependent(stats, hit, "TripStats");
+	}
+
+	@Test
+	void changesToACopyDoNotReachTheCache() {
+		TripStats stats = filled(TripStats.class, 0);
+		TripStats expected = stats.copy();
+		long version = cache.currentVersion(TRIP_ID);
+		cache.put(TRIP_ID, USER_ID, version, stats);
+
+		// Lo que se guardó y lo que devolvió un acierto se pueden modificar sin afectar al siguiente
+		stats.getDailyExpenses().get(0).setTotalExpense(BigDecimal.ZERO);
+		TripStats hit = cache.get(TRIP_ID, USER_ID, version);
+		hit.setTotalSpent(BigDecimal.ONE);
+		hit.getExpensesByCategory().clear();
+		hit.getExpensesBeforeTrip().setExpenseCount(-1);
+
+		assertEquals(expected, cache.get(TRIP_ID, USER_ID, version));
+	}
+
+	/**
+	 * Cada lista y cada objeto anidado de la copia es otra instancia, igual al original
+	 */
+	private static void assertIndependent(Object original, Object copy, String path) {
+		if (original == null || IMMUTABLE.contains(original.getClass())) {
+			return;
+		}
+		assertNotSame(original, copy, path);
+		if (original instanceof List<?> list) {
+			List<?> copied = (List<?>) copy;
+			for (int i = 0; i < list.size(); i++) {
+				assertIndependent(list.get(i), copied.get(i), path + "[" + i + "]");
+			}
+			return;
+		}
+		for (Field field : fields(original.getClass())) {
+			assertIndependent(ReflectionTestUtils.getField(original, field.getName()),
+					ReflectionTestUtils.getField(copy, field.getName()), path + "." + field.getName());
+		}
+	}
+
+	private static <T> T filled(Class<T> type, int firstSeed) {
+		try {
+			T value = type.getDeclaredConstructor().newInstance();
+			int seed = firstSeed + 1;
+			for (Field field : fields(type)) {
+				Object fieldValue = sample(field.getType(), field.getGenericType(), seed++);
+				assertNotNull(fieldValue, field.getName());
+				ReflectionTestUtils.setField(value, field.getName(), fieldValue);
+			}
+			return value;
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static Object sample(Class<?> type, Type genericType, int seed) {
+		if (type == String.class) {
+			return "valor " + seed;
+		}
+		if (type == Long.class) {
+			return 100L + seed;
+		}
+		if (type == Integer.class) {
+			return 10 + seed;
+		}
+		if (type == Double.class) {
+			return seed + 0.5;
+		}
+		if (type == Boolean.class) {
+			return Boolean.TRUE;
+		}
+		if (type == BigDecimal.class) {
+			return new BigDecimal(seed + ".25");
+		}
+		if (type == LocalDate.class) {
+			return LocalDate.of(2025, 1, 1).plusDays(seed);
+		}
+		if (type == List.class) {
+			Type element = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+			List<Object> list = new ArrayList<>();
+			list.add(sample((Class<?>) element, element, seed));
+			list.add(sample((Class<?>) element, element, seed + 50));
+			return list;
+		}
+		if (type.getName().startsWith("TravelMate_Backend.demo.dto.")) {
+			return filled(type, seed * 100);
+		}
+		fail("No hay un valor de prueba para " + type.getName());
+		return null;
+	}
+
+	private static List<Field> fields(Class<?> type) {
+		List<Field> fields = new ArrayList<>();
+		for (Field field : type.getDeclaredFields()) {
+			if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+				fields.add(field);
+			}
+		}
+		return fields;
+	}
+}
@@ -0,0 +1,154 @@
+package TravelMate_Backend.demo.support;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cuenta las sentencias SQL que se preparan contra la base (Hibernate y JdbcTemplate por igual),
+ * envolviendo el {@link DataSource} de la aplicación. Lo usan los tests y el profiler de los
+ * benchmarks ({@code SqlStatementProfiler}).
+ *
+ * Entre {@link #startRecording()} y {@link #stopRecording()} además anota el SQL de cada ida a la
+ * base: cada {@code execute*} de un statement, un batch entero cuenta como una.
+ */
+public final class SqlStatementCounter {
+
+	private static final Set<String> STATEMENT_METHODS = Set.of("prepareStatement", "prepareCall", "createStatement");
+
+	private static final Set<String> EXECUTE_METHODS = Set.of("execute", "executeQuery", "executeUpdate",
+			"executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+	private static final AtomicLong STATEMENTS = new AtomicLong();
+
+	// null cuando no se está anotando
+	private static volatile List<String> recorded;
+
+	private SqlStatementCounter() {
+	}
+
+	public static long get() {
+		return STATEMENTS.get();
+	}
+
+	/**
+	 * Empieza a anotar el SQL ejecutado, descartando lo anotado antes
+	 */
+	public static void startRecording() {
+		recorded = new ArrayList<>();
+	}
+
+	/**
+	 * Deja de anotar
+	 *
+	 * @return el SQL ejecutado desde {@link #startRecording()}, en orden
+	 */
+	public static List<String> stopRecording() {
+		List<String> executed = recorded;
+		recorded = null;
+		if (executed == null) {
+			return List.of();
+		}
+		synchronized (executed) {
+			return new ArrayList<>(executed);
+		}
+	}
+
+	/**
+	 * Envuelve el {@code DataSource} de la aplicación al crearse el contexto
+	 */
+	public static BeanPostProcessor dataSourceWrapper() {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				return bean instanceof DataSource dataSource && !(bean instanceof CountingDataSource)
+						? new CountingDataSource(dataSource)
+						: bean;
+			}
+		};
+	}
+
+	private static void executed(String sql) {
+		List<String> executed = recorded;
+		if (executed != null) {
+			synchronized (executed) {
+				executed.add(sql);
+			}
+		}
+	}
+
+	private static class CountingDataSource extends DelegatingDataSource {
+
+		private CountingDataSource(DataSource target) {
+			super(target);
+		}
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			return counting(super.getConnection());
+		}
+
+		@Override
+		public Connection getConnection(String username, String password) throws SQLException {
+			return counting(super.getConnection(username, password));
+		}
+
+		private static Connection counting(Connection connection) {
+			return proxy(Connection.class, (method, args) -> {
+				Object result = invoke(connection, method, args);
+				if (!STATEMENT_METHODS.contains(method.getName())) {
+					return result;
+				}
+				STATEMENTS.incrementAndGet();
+				// Los statements se envuelven solo mientras se anota, así los benchmarks no pagan el proxy
+				if (recorded == null) {
+					return result;
+				}
+				// prepareStatement y prepareCall reciben el SQL; createStatement lo recibe al ejecutar
+				String preparedSql = args != null && args.length > 0 && args[0] instanceof String sql ? sql : null;
+				return recording(method.getReturnType().asSubclass(Statement.class), (Statement) result, preparedSql);
+			});
+		}
+
+		private static <T extends Statement> T recording(Class<T> type, Statement statement, String preparedSql) {
+			return proxy(type, (method, args) -> {
+				Object result = invoke(statement, method, args);
+				if (EXECUTE_METHODS.contains(method.getName())) {
+					executed(preparedSql != null ? preparedSql
+							: args != null && args.length > 0 ? (String) args[0] : "batch");
+				}
+				return result;
+			});
+		}
+
+		private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+			try {
+				return method.invoke(target, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		private static <T> T proxy(Class<T> type, Call call) {
+			return (T) Proxy.newProxyInstance(SqlStatementCounter.class.getClassLoader(), new Class<?>[]{type},
+					(proxy, method, args) -> call.invoke(method, args));
+		}
+	}
+
+	@FunctionalInterface
+	private interface Call {
+		Object invoke(Method method, Object[] args) throws Throwable;
+	}
+}